@@ -0,0 +1,162 @@
+package com.ecommerce.benchmarks;
+
+import com.ecommerce.userservice.domain.SignupResult;
+import com.ecommerce.userservice.domain.User;
+import com.ecommerce.userservice.repo.UserRepository;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map-backed UserRepository stand-in, so benchmarks measure the service and not the database.
+ */
+class InMemoryUserRepository implements UserRepository {
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public Mono<User> findByUsername(String username) {
+        return Mono.justOrEmpty(users.values().stream()
+                .filter(u -> u.username.equals(username)).findFirst());
+    }
+
+    @Override
+    public Mono<User> findByEmail(String email) {
+        return Mono.justOrEmpty(users.values().stream()
+                .filter(u -> u.email.equals(email)).findFirst());
+    }
+
+    @Override
+    public Mono<User> findByUsernameOrEmail(String username, String email) {
+        return Mono.justOrEmpty(users.values().stream()
+                .filter(u -> u.username.equals(username) || u.email.equals(email)).findFirst());
+    }
+
+    @Override
+    public Flux<User> findPage(int limit, long offset) {
+        return findAll().skip(offset).take(limit);
+    }
+
+    @Override
+    public Flux<User> findPageAfterId(long afterId, int limit) {
+        return findAll().filter(u -> u.id > afterId).take(limit);
+    }
+
+    @Override
+    public synchronized Mono<SignupResult> insertIfAbsent(String username, String email, String passwordHash,
+                                                          String role) {
+        boolean usernameTaken = users.values().stream().anyMatch(u -> u.username.equals(username));
+        boolean emailTaken = users.values().stream().anyMatch(u -> u.email.equals(email));
+        if (usernameTaken || emailTaken) {
+            return Mono.just(new SignupResult(null, usernameTaken, emailTaken));
+        }
+        User user = new User(username, email, passwordHash, role);
+        save(user);
+        return Mono.just(new SignupResult(user.id, false, false));
+    }
+
+    @Override
+    public Flux<User> findAllNames() {
+        return findAll();
+    }
+
+    @Override
+    public <S extends User> Mono<S> save(S user) {
+        if (user.id == null) {
+            user.id = sequence.incrementAndGet();
+        }
+        users.put(user.id, user);
+        return Mono.just(user);
+    }
+
+    @Override
+    public <S extends User> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).flatMap(this::save);
+    }
+
+    @Override
+    public <S extends User> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).flatMap(this::save);
+    }
+
+    @Override
+    public Mono<User> findById(Long id) {
+        return Mono.justOrEmpty(users.get(id));
+    }
+
+    @Override
+    public Mono<User> findById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return Mono.just(users.containsKey(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<User> findAll() {
+        return Flux.fromStream(() -> users.values().stream().sorted(Comparator.comparing(u -> u.id)));
+    }
+
+    @Override
+    public Flux<User> findAllById(Iterable<Long> ids) {
+        return Flux.fromIterable(ids).flatMap(this::findById);
+    }
+
+    @Override
+    public Flux<User> findAllById(Publisher<Long> idStream) {
+        return Flux.from(idStream).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.just((long) users.size());
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return Mono.fromRunnable(() -> users.remove(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(User entity) {
+        return deleteById(entity.id);
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends Long> ids) {
+        return Mono.fromRunnable(() -> ids.forEach(users::remove));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends User> entities) {
+        return Mono.fromRunnable(() -> entities.forEach(u -> users.remove(u.id)));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends User> entityStream) {
+        return Flux.from(entityStream).doOnNext(u -> users.remove(u.id)).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(users::clear);
+    }
+}
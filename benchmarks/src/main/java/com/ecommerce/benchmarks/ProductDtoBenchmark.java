@@ -0,0 +1,42 @@
+package com.ecommerce.benchmarks;
+
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.dto.ProductDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO mapping done for every product returned by product-service.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ProductDtoBenchmark {
+
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        product = new Product(null, "Galaxy S23", "Samsung flagship phone with 256 GB storage",
+                "Electronics", 899.99, 42, "https://cdn.example.com/img/galaxy-s23.png");
+        product.setId(1001L);
+    }
+
+    @Benchmark
+    public ProductDto fromEntity() {
+        return ProductDto.fromEntity(product);
+    }
+}
@@ -0,0 +1,89 @@
+package com.ecommerce.benchmarks;
+
+import com.ecommerce.productservice.event.ProductStockEvent;
+import com.ecommerce.productservice.event.ProductStockEventAvroCodec;
+import com.ecommerce.productservice.util.FileSchemaRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (De)serialization of ProductStockEvent as done on product-stock-updated and payment-success-events:
+ * JSON (the deserializer configured with a default type and trusted package, no type headers) and the
+ * versioned Avro encoding, written with the newest schema from product-service's avro/ resources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StockEventSerdeBenchmark {
+
+    private static final String TOPIC = "product-stock-updated";
+
+    private JsonSerializer<ProductStockEvent> serializer;
+    private JsonDeserializer<ProductStockEvent> deserializer;
+    private ProductStockEvent event;
+    private byte[] payload;
+    private ProductStockEventAvroCodec avroCodec;
+    private byte[] avroPayload;
+
+    @Setup
+    public void setUp() {
+        serializer = new JsonSerializer<>();
+        serializer.configure(new HashMap<>(), false);
+
+        Map<String, Object> props = new HashMap<>();
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, ProductStockEvent.class);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.ecommerce.productservice.event");
+        deserializer = new JsonDeserializer<>();
+        deserializer.configure(props, false);
+
+        avroCodec = new ProductStockEventAvroCodec(new FileSchemaRegistry("classpath:avro/", "product-stock-event"));
+
+        event = new ProductStockEvent("product-outbox-1", 1001L, 41, "SOLD");
+        payload = serializer.serialize(TOPIC, event);
+        avroPayload = avroCodec.encode(event);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+        deserializer.close();
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public ProductStockEvent deserialize() {
+        return deserializer.deserialize(TOPIC, payload);
+    }
+
+    @Benchmark
+    public byte[] serializeAvro() {
+        return avroCodec.encode(event);
+    }
+
+    @Benchmark
+    public ProductStockEvent deserializeAvro() {
+        return avroCodec.decode(avroPayload);
+    }
+}
@@ -0,0 +1,79 @@
+package com.ecommerce.benchmarks;
+
+import com.ecommerce.userservice.domain.User;
+import com.ecommerce.userservice.dto.AuthResponse;
+import com.ecommerce.userservice.service.PasswordHasher;
+import com.ecommerce.userservice.service.TakenNamesFilter;
+import com.ecommerce.userservice.service.UserCache;
+import com.ecommerce.userservice.service.UserService;
+import com.ecommerce.userservice.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The full UserService.login path (lookup, BCrypt verification on the hashing pool, token signing)
+ * against an in-memory repository, so the numbers are CPU and hand-off cost only.
+ * The user cache runs without its Redis tier; after the first call lookups hit the near cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserLoginBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private UserService userService;
+    private PasswordHasher passwordHasher;
+
+    @Setup
+    public void setUp() {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        repository.save(new User("alice", "alice@example.com",
+                new BCryptPasswordEncoder().encode(PASSWORD), "USER")).block();
+        passwordHasher = new PasswordHasher(new BCryptPasswordEncoder(), 1, 16, new SimpleMeterRegistry());
+        UserCache userCache = new UserCache(1_000, Duration.ofMinutes(10), Duration.ofMinutes(10),
+                Duration.ofSeconds(30), Duration.ofMillis(100), null, null, new ObjectMapper(),
+                new SimpleMeterRegistry());
+        userService = new UserService(repository,
+                new JwtUtil("benchmark-secret-benchmark-secret-0123456789", 3_600_000L), passwordHasher, userCache,
+                new TakenNamesFilter(repository, 1_000, 0.01, new SimpleMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHasher.close();
+    }
+
+    @Benchmark
+    public AuthResponse loginSuccess() {
+        return userService.login("alice", PASSWORD).block();
+    }
+
+    @Benchmark
+    public Throwable loginWrongPassword() {
+        try {
+            userService.login("alice@example.com", "wrong password").block();
+            throw new IllegalStateException("login with a wrong password succeeded");
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ecommerce.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latency histogram and counters of one endpoint run, checked against its budget.
+ */
+public record EndpointReport(LoadProfile profile, Histogram latencies, long requests, long errors, double elapsedSeconds) {
+
+    private static final double NANOS_PER_MS = 1_000_000.0;
+
+    public double p50Ms() {
+        return latencies.getValueAtPercentile(50.0) / NANOS_PER_MS;
+    }
+
+    public double p99Ms() {
+        return latencies.getValueAtPercentile(99.0) / NANOS_PER_MS;
+    }
+
+    public double p999Ms() {
+        return latencies.getValueAtPercentile(99.9) / NANOS_PER_MS;
+    }
+
+    public double maxMs() {
+        return latencies.getMaxValue() / NANOS_PER_MS;
+    }
+
+    public double throughput() {
+        return (requests - errors) / elapsedSeconds;
+    }
+
+    public double errorRate() {
+        return requests == 0 ? 0 : (double) errors / requests;
+    }
+
+    /** Budget violations, empty when the endpoint is within budget. */
+    public List<String> violations() {
+        List<String> violations = new ArrayList<>();
+        check(violations, "p50", p50Ms(), profile.p50BudgetMs());
+        check(violations, "p99", p99Ms(), profile.p99BudgetMs());
+        check(violations, "p99.9", p999Ms(), profile.p999BudgetMs());
+        if (errorRate() > profile.maxErrorRate()) {
+            violations.add(String.format(Locale.ROOT, "%s: error rate %.4f > %.4f",
+                    profile.endpoint(), errorRate(), profile.maxErrorRate()));
+        }
+        return violations;
+    }
+
+    private void check(List<String> violations, String percentile, double actualMs, double budgetMs) {
+        if (actualMs > budgetMs) {
+            violations.add(String.format(Locale.ROOT, "%s: %s %.2f ms > budget %.2f ms",
+                    profile.endpoint(), percentile, actualMs, budgetMs));
+        }
+    }
+
+    public String summaryLine() {
+        return String.format(Locale.ROOT,
+                "%-10s rps=%-5d requests=%-7d errors=%-5d throughput=%8.1f/s p50=%7.2fms p99=%7.2fms p99.9=%7.2fms max=%7.2fms",
+                profile.endpoint(), profile.rps(), requests, errors, throughput(),
+                p50Ms(), p99Ms(), p999Ms(), maxMs());
+    }
+
+    /** Writes the full percentile distribution (milliseconds) as &lt;endpoint&gt;.hgrm, plottable with HdrHistogram tools. */
+    public void writeTo(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(profile.endpoint() + ".hgrm")))) {
+            latencies.outputPercentileDistribution(out, NANOS_PER_MS);
+        }
+    }
+
+    /** One JSON object per endpoint, for diffing runs. */
+    public String toJson() {
+        return String.format(Locale.ROOT,
+                "{\"endpoint\":\"%s\",\"rps\":%d,\"requests\":%d,\"errors\":%d,\"throughput\":%.2f,"
+                        + "\"p50Ms\":%.3f,\"p99Ms\":%.3f,\"p999Ms\":%.3f,\"maxMs\":%.3f,\"withinBudget\":%b}",
+                profile.endpoint(), profile.rps(), requests, errors, throughput(),
+                p50Ms(), p99Ms(), p999Ms(), maxMs(), violations().isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package com.ecommerce.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+/**
+ * Open-model load generator.
+ * <p>
+ * Request i is due at start + i / rps, whether or not earlier requests have completed,
+ * and its latency is measured from that due time. Time spent waiting behind slow requests
+ * is therefore reported instead of hidden (no coordinated omission).
+ */
+public final class LoadGenerator {
+
+    private static final long MAX_TRACKED_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Runs the warmup phase, discards it, then runs and records the measured phase.
+     *
+     * @param profile the endpoint profile
+     * @param request creates the i-th request; a non-2xx response must surface as an error
+     * @return the measured report
+     */
+    public static EndpointReport run(LoadProfile profile, LongFunction<Mono<?>> request) {
+        if (!profile.warmup().isZero()) {
+            drive(profile.rps(), profile.warmup(), profile.maxInFlight(), request, new ConcurrentHistogram(MAX_TRACKED_LATENCY, 3));
+        }
+        Histogram histogram = new ConcurrentHistogram(MAX_TRACKED_LATENCY, 3);
+        long start = System.nanoTime();
+        long[] counts = drive(profile.rps(), profile.duration(), profile.maxInFlight(), request, histogram);
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+        return new EndpointReport(profile, histogram, counts[0], counts[1], elapsed);
+    }
+
+    private static long[] drive(int rps, Duration duration, int maxInFlight,
+                                LongFunction<Mono<?>> request, Histogram histogram) {
+        long total = Math.max(1, rps * duration.toSeconds());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(rps, 1);
+        AtomicLong issued = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+
+        Flux.interval(Duration.ofMillis(1))
+                // a dropped tick loses no request: the next tick issues everything that is due
+                .onBackpressureDrop()
+                .concatMapIterable(tick -> {
+                    long due = Math.min(total, (System.nanoTime() - start) / intervalNanos + 1);
+                    long from = issued.get();
+                    issued.set(Math.max(from, due));
+                    return () -> LongStream.range(from, Math.max(from, due)).iterator();
+                })
+                .take(total)
+                .flatMap(i -> {
+                    long dueAt = start + i * intervalNanos;
+                    return request.apply(i)
+                            .doOnSuccess(ignored -> histogram.recordValue(Math.min(System.nanoTime() - dueAt, MAX_TRACKED_LATENCY)))
+                            .doOnError(e -> {
+                                errors.incrementAndGet();
+                                histogram.recordValue(Math.min(System.nanoTime() - dueAt, MAX_TRACKED_LATENCY));
+                            })
+                            .onErrorResume(e -> Mono.empty());
+                }, maxInFlight)
+                .blockLast(duration.plusMinutes(2));
+        return new long[]{total, errors.get()};
+    }
+}
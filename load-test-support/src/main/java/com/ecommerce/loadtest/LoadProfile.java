@@ -0,0 +1,40 @@
+package com.ecommerce.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Rate, duration and latency budget of one endpoint under load.
+ * <p>
+ * Every value is read from a system property, endpoint-specific first, then global:
+ * -Dload.search.rps=50 overrides -Dload.rps=200 for the "search" endpoint only.
+ * <ul>
+ *   <li>rps: requests started per second (open model, not affected by slow responses)</li>
+ *   <li>duration / warmup: measured and discarded phase, in seconds</li>
+ *   <li>max-in-flight: concurrent requests before the generator queues (queueing counts as latency)</li>
+ *   <li>p50-ms / p99-ms / p999-ms / max-error-rate: the budget; exceeding any fails the run</li>
+ * </ul>
+ */
+public record LoadProfile(String endpoint, int rps, Duration duration, Duration warmup, int maxInFlight,
+                          double p50BudgetMs, double p99BudgetMs, double p999BudgetMs, double maxErrorRate) {
+
+    public static LoadProfile forEndpoint(String endpoint, int defaultRps, double defaultP99Ms) {
+        return new LoadProfile(endpoint,
+                (int) value(endpoint, "rps", defaultRps),
+                Duration.ofSeconds((long) value(endpoint, "duration", 30)),
+                Duration.ofSeconds((long) value(endpoint, "warmup", 5)),
+                (int) value(endpoint, "max-in-flight", 256),
+                value(endpoint, "p50-ms", defaultP99Ms / 4),
+                value(endpoint, "p99-ms", defaultP99Ms),
+                value(endpoint, "p999-ms", defaultP99Ms * 2.5),
+                value(endpoint, "max-error-rate", 0.001));
+    }
+
+    private static double value(String endpoint, String key, double defaultValue) {
+        String specific = System.getProperty("load." + endpoint + "." + key);
+        if (specific != null) {
+            return Double.parseDouble(specific);
+        }
+        String global = System.getProperty("load." + key);
+        return global != null ? Double.parseDouble(global) : defaultValue;
+    }
+}
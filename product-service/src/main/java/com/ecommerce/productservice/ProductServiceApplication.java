@@ -2,6 +2,7 @@ package com.ecommerce.productservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for the Product Service.
@@ -10,11 +11,13 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * 1. Initializes Spring Boot application
  * 2. Loads configuration from application.properties
  * 3. Starts embedded server
+ * 4. Enables scheduling for the stock event outbox relay
  *
  * @author JackyChen
  * @since 2025-04-01
  */
 @SpringBootApplication
+@EnableScheduling
 public class ProductServiceApplication {
     /**
      * Starts the Spring Boot application.
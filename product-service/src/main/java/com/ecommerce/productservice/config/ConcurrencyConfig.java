@@ -0,0 +1,43 @@
+package com.ecommerce.productservice.config;
+
+import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.util.AdaptiveConcurrencyLimiter;
+import com.ecommerce.productservice.util.InFlightRequests;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration class for request concurrency controls in the Product Service.
+ * Provides the single-flight registry that coalesces concurrent product loads and the
+ * adaptive limiter that keeps database-bound product calls from overloading Postgres.
+ */
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Single-flight registry for ProductService.getById cache misses.
+     */
+    @Bean
+    public InFlightRequests<Long, ProductDto> productByIdRequests(MeterRegistry meterRegistry) {
+        return new InFlightRequests<>("productById", meterRegistry);
+    }
+
+    /**
+     * Adaptive (AIMD) concurrency limiter for the database calls of ProductService.getById and create.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter productServiceConcurrencyLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${product.concurrency.initial-limit:20}") int initialLimit,
+            @Value("${product.concurrency.min-limit:4}") int minLimit,
+            @Value("${product.concurrency.max-limit:200}") int maxLimit,
+            @Value("${product.concurrency.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${product.concurrency.latency-threshold:250ms}") Duration latencyThreshold) {
+        return new AdaptiveConcurrencyLimiter("productService", initialLimit, minLimit, maxLimit,
+                backoffRatio, latencyThreshold, meterRegistry);
+    }
+}
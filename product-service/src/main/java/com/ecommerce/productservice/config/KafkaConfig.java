@@ -1,23 +1,41 @@
 package com.ecommerce.productservice.config;
 
 import com.ecommerce.productservice.event.ProductStockEvent;
+import com.ecommerce.productservice.event.ProductStockEventAvroCodec;
+import com.ecommerce.productservice.event.ProductStockEventDeserializer;
+import com.ecommerce.productservice.event.ProductStockEventSerializer;
+import com.ecommerce.productservice.service.StockLedger;
+import com.ecommerce.productservice.util.FileSchemaRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.MicrometerConsumerListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Configuration class for Kafka settings in the Product Service.
- * Provides consumer factory and listener container factory for ProductStockEvent.
+ * Provides consumer factory and listener container factories (single record and batch) for ProductStockEvent,
+ * and its wire encoding: JSON or Avro with versioned schemas from a file-based registry.
+ * Migration to Avro: deploy with dual-read on (the default), switch product.kafka.stock-event.write-format
+ * to avro once every consumer reads Avro, then turn dual-read off when no JSON is left on the topics.
  */
 @Configuration
 public class KafkaConfig {
@@ -28,39 +46,111 @@ public class KafkaConfig {
     private String consumerGroupId;
 
     /**
-     * Consumer Factory for ProductStockEvent
+     * Versions of the ProductStockEvent Avro schema.
      */
     @Bean
-    public ConsumerFactory<String, ProductStockEvent> productStockEventConsumerFactory() {
+    public FileSchemaRegistry productStockEventSchemas(
+            @Value("${product.kafka.schema-registry.location:classpath:avro/}") String location) {
+        return new FileSchemaRegistry(location, "product-stock-event");
+    }
+
+    /**
+     * Avro codec for ProductStockEvent, writing the newest schema version.
+     */
+    @Bean
+    public ProductStockEventAvroCodec productStockEventAvroCodec(FileSchemaRegistry productStockEventSchemas) {
+        return new ProductStockEventAvroCodec(productStockEventSchemas);
+    }
+
+    /**
+     * Makes the auto-configured KafkaTemplate write ProductStockEvent in the configured format.
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public DefaultKafkaProducerFactoryCustomizer productStockEventSerializerCustomizer(
+            ProductStockEventAvroCodec productStockEventAvroCodec,
+            @Value("${product.kafka.stock-event.write-format:json}") String format) {
+        ProductStockEventSerializer.Format writeFormat = ProductStockEventSerializer.Format.from(format);
+        return producerFactory -> ((DefaultKafkaProducerFactory<String, ProductStockEvent>) producerFactory)
+                .setValueSerializer(new ProductStockEventSerializer(productStockEventAvroCodec, writeFormat));
+    }
+
+    /**
+     * Consumer Factory for ProductStockEvent.
+     * Every consumer publishes the Kafka client metrics, including per-partition lag
+     * (kafka.consumer.fetch.manager.records.lag), through Micrometer.
+     */
+    @Bean
+    public ConsumerFactory<String, ProductStockEvent> productStockEventConsumerFactory(
+            MeterRegistry meterRegistry, ProductStockEventAvroCodec productStockEventAvroCodec,
+            @Value("${product.kafka.stock-event.dual-read:true}") boolean dualRead) {
         Map<String, Object> props = new HashMap<>();
 
         // Use Spring Boot properties automatically via application.properties / application.yml
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, consumerGroupId);
 
-        // Configure ErrorHandlingDeserializer
-        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
 
-        // Set delegate classes
-        props.put(ErrorHandlingDeserializer.KEY_DESERIALIZER_CLASS, StringDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        // Rebalances only move the partitions that change owner; the others keep consuming
+        props.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
 
-        // Allow JsonDeserializer to deserialize ProductStockEvent
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, ProductStockEvent.class);
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.ecommerce.productservice.event");
-
-        return new DefaultKafkaConsumerFactory<>(props);
+        // ErrorHandlingDeserializer turns a poison message into a listener error instead of a stuck consumer
+        DefaultKafkaConsumerFactory<String, ProductStockEvent> factory = new DefaultKafkaConsumerFactory<>(props,
+                new ErrorHandlingDeserializer<>(new StringDeserializer()),
+                new ErrorHandlingDeserializer<>(new ProductStockEventDeserializer(productStockEventAvroCodec, dualRead)));
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
     /**
      * Kafka Listener Container Factory for ProductStockEvent
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, ProductStockEvent> productStockEventKafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, ProductStockEvent> productStockEventKafkaListenerContainerFactory(
+            ConsumerFactory<String, ProductStockEvent> productStockEventConsumerFactory) {
         ConcurrentKafkaListenerContainerFactory<String, ProductStockEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(productStockEventConsumerFactory());
+        factory.setConsumerFactory(productStockEventConsumerFactory);
+        return factory;
+    }
+
+    /**
+     * Batch Kafka Listener Container Factory for ProductStockEvent.
+     * The listener receives a whole poll at once; offsets are committed only after it returns,
+     * i.e. after the batch has been applied to the database.
+     * When the StockLedger is enabled, it hands its products back to the database before
+     * partitions are revoked, so the next owner loads up-to-date stock.
+     * Runs one consumer thread per partition up to product.stock.consumer.concurrency; set it to the
+     * partition count of payment-success-events, threads beyond that stay idle.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ProductStockEvent> productStockEventBatchListenerContainerFactory(
+            ConsumerFactory<String, ProductStockEvent> productStockEventConsumerFactory,
+            ObjectProvider<StockLedger> stockLedger,
+            @Value("${product.stock.consumer.concurrency:3}") int concurrency) {
+        ConcurrentKafkaListenerContainerFactory<String, ProductStockEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(productStockEventConsumerFactory);
+        factory.setConcurrency(Math.max(concurrency, 1));
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        StockLedger ledger = stockLedger.getIfAvailable();
+        if (ledger != null) {
+            factory.getContainerProperties().setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+                @Override
+                public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer,
+                                                            Collection<TopicPartition> partitions) {
+                    if (!partitions.isEmpty()) {
+                        ledger.evictAll();
+                    }
+                }
+
+                @Override
+                public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                    ledger.evictAll();
+                }
+            });
+        }
         return factory;
     }
 }
@@ -0,0 +1,49 @@
+package com.ecommerce.productservice.config;
+
+import com.ecommerce.r2dbc.TimedConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the R2DBC connection pool in the Product Service.
+ * Pool sizing and timeouts are the spring.r2dbc.pool.* properties; this class bounds the driver's
+ * prepared-statement cache and times connection acquisition for every pool.
+ */
+@Configuration
+public class R2dbcPoolConfig {
+
+    /**
+     * Caches the parsed form of the most recent statements per connection, so repeated queries skip
+     * the Parse round trip. Applies to the primary and to every read replica.
+     */
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer preparedStatementCacheCustomizer(
+            @Value("${product.r2dbc.statement-cache-size:256}") int statementCacheSize) {
+        return options -> options.option(PostgresqlConnectionFactoryProvider.PREPARED_STATEMENT_CACHE_QUERIES,
+                statementCacheSize);
+    }
+
+    /**
+     * Wraps the auto-configured pool so acquire latency is recorded as "r2dbc.pool.acquire".
+     * Replica pools are wrapped where they are built, in ReadReplicaConfig.
+     */
+    @Bean
+    public static BeanPostProcessor timedConnectionPoolPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ConnectionPool pool) {
+                    return new TimedConnectionFactory(beanName, pool, meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
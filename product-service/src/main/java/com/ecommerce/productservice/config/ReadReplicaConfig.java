@@ -0,0 +1,124 @@
+package com.ecommerce.productservice.config;
+
+import com.ecommerce.r2dbc.TimedConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration class for read replicas in the Product Service.
+ * Active only when product.r2dbc.replicas lists at least one R2DBC URL; replaces the auto-configured
+ * connection factory with one routing read-only pipelines to the replicas and everything else to the primary.
+ * Replicas share the primary's credentials, pool settings and option customizers; every pool publishes
+ * the same r2dbc.pool.* meters as the auto-configured one, tagged with its name.
+ */
+@Configuration
+@ConditionalOnExpression("!'${product.r2dbc.replicas:}'.isBlank()")
+@EnableConfigurationProperties(R2dbcProperties.class)
+public class ReadReplicaConfig {
+
+    /**
+     * Routing connection factory over a pooled primary and one pool per replica.
+     */
+    @Bean
+    public ReadWriteRoutingConnectionFactory connectionFactory(
+            R2dbcProperties properties,
+            ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers,
+            MeterRegistry meterRegistry,
+            @Value("${product.r2dbc.replicas}") List<String> replicaUrls,
+            @Value("${product.r2dbc.replica-max-lag:2s}") Duration maxLag,
+            @Value("${product.r2dbc.replica-check-timeout:500ms}") Duration checkTimeout) {
+        List<ConnectionFactoryOptionsBuilderCustomizer> optionCustomizers = customizers.orderedStream().toList();
+        ConnectionFactory primary = pool("primary", properties.getUrl(), properties, optionCustomizers,
+                meterRegistry);
+        Map<String, ConnectionFactory> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            String name = "replica-" + i;
+            replicas.put(name, pool(name, replicaUrls.get(i).trim(), properties, optionCustomizers, meterRegistry));
+        }
+        return new ReadWriteRoutingConnectionFactory(primary, replicas, maxLag, checkTimeout, meterRegistry);
+    }
+
+    /**
+     * Health of the read replicas: UP while at least one is in rotation, with per-replica lag and errors.
+     * Reads fall back to the primary otherwise, so a replica outage degrades rather than fails the service.
+     */
+    @Bean
+    public ReactiveHealthIndicator readReplicasHealthIndicator(ReadWriteRoutingConnectionFactory connectionFactory) {
+        return () -> Mono.fromSupplier(() -> {
+            Map<String, ReadWriteRoutingConnectionFactory.ReplicaState> states = connectionFactory.getReplicaStates();
+            Health.Builder health = states.values().stream()
+                    .anyMatch(ReadWriteRoutingConnectionFactory.ReplicaState::isHealthy)
+                    ? Health.up() : Health.status("DEGRADED");
+            states.forEach((name, state) -> {
+                Map<String, Object> details = new LinkedHashMap<>();
+                details.put("healthy", state.isHealthy());
+                details.put("lagSeconds", state.getLagSeconds());
+                if (state.getLastError() != null) {
+                    details.put("error", state.getLastError());
+                }
+                health.withDetail(name, details);
+            });
+            return health.build();
+        });
+    }
+
+    /**
+     * Pins reads to the primary for a short window after a client's own write.
+     */
+    @Bean
+    public ReadYourWritesWebFilter readYourWritesWebFilter(
+            @Value("${product.r2dbc.read-your-writes-window:5s}") Duration window) {
+        return new ReadYourWritesWebFilter(window, Clock.systemUTC());
+    }
+
+    private static ConnectionFactory pool(String name, String url, R2dbcProperties properties,
+                                          List<ConnectionFactoryOptionsBuilderCustomizer> customizers,
+                                          MeterRegistry meterRegistry) {
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        ConnectionFactoryBuilder factoryBuilder = ConnectionFactoryBuilder.withUrl(url);
+        map.from(properties.getUsername()).to(factoryBuilder::username);
+        map.from(properties.getPassword()).to(factoryBuilder::password);
+        ConnectionFactory connectionFactory = factoryBuilder
+                .configure(options -> customizers.forEach(customizer -> customizer.customize(options)))
+                .build();
+        R2dbcProperties.Pool pool = properties.getPool();
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration.builder(connectionFactory)
+                .name(name);
+        map.from(pool.getInitialSize()).to(builder::initialSize);
+        map.from(pool.getMaxSize()).to(builder::maxSize);
+        map.from(pool.getMinIdle()).to(builder::minIdle);
+        map.from(pool.getMaxIdleTime()).to(builder::maxIdleTime);
+        map.from(pool.getMaxLifeTime()).to(builder::maxLifeTime);
+        map.from(pool.getMaxAcquireTime()).to(builder::maxAcquireTime);
+        map.from(pool.getMaxCreateConnectionTime()).to(builder::maxCreateConnectionTime);
+        map.from(pool.getMaxValidationTime()).to(builder::maxValidationTime);
+        map.from(pool.getValidationQuery()).to(builder::validationQuery);
+        map.from(pool.getValidationDepth()).to(builder::validationDepth);
+        ConnectionPool connectionPool = new ConnectionPool(builder.build());
+        new ConnectionPoolMetrics(connectionPool, name, Tags.empty()).bindTo(meterRegistry);
+        return new TimedConnectionFactory(name, connectionPool, meterRegistry);
+    }
+}
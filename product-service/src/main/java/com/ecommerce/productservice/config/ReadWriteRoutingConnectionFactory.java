@@ -0,0 +1,213 @@
+package com.ecommerce.productservice.config;
+
+import com.ecommerce.productservice.util.ReadRouting;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection factory sending read-only work to healthy read replicas and everything else to the primary.
+ * <p>
+ * Business rules:
+ * 1. Pipelines marked with ReadRouting.preferReplica get a replica, round-robin over the healthy ones;
+ *    unmarked or primary-pinned pipelines get the primary
+ * 2. A replica is healthy only if its last check succeeded and its replay lag is within the guard;
+ *    replicas start unhealthy, so reads stay on the primary until the first check passes
+ * 3. When no replica is healthy, reads fall back to the primary
+ * 4. Connections bound to a transaction never reach this factory again, so transactions stay on one node
+ * 5. Publishes "product.r2dbc.replica.lag" and "product.r2dbc.replica.healthy" per replica
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ReadWriteRoutingConnectionFactory extends AbstractRoutingConnectionFactory implements DisposableBean {
+    private static final org.slf4j.Logger log
+            = org.slf4j.LoggerFactory.getLogger(ReadWriteRoutingConnectionFactory.class);
+
+    /** Lookup key of the primary. */
+    static final String PRIMARY = "primary";
+
+    /**
+     * Replay lag in seconds; 0 on a caught-up replica (an idle primary must not look like lag) or on a primary.
+     */
+    static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() "
+            + "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END::float8";
+
+    /**
+     * Last observed state of one replica.
+     */
+    static final class ReplicaState {
+        private final String name;
+        private final ConnectionFactory connectionFactory;
+        private volatile boolean healthy;
+        private volatile double lagSeconds = Double.NaN;
+        private volatile String lastError;
+
+        private ReplicaState(String name, ConnectionFactory connectionFactory) {
+            this.name = name;
+            this.connectionFactory = connectionFactory;
+        }
+
+        boolean isHealthy() {
+            return healthy;
+        }
+
+        double getLagSeconds() {
+            return lagSeconds;
+        }
+
+        String getLastError() {
+            return lastError;
+        }
+    }
+
+    private final ConnectionFactory primary;
+    private final Map<String, ReplicaState> replicas = new LinkedHashMap<>();
+    private final Duration maxLag;
+    private final Duration checkTimeout;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile List<String> healthyReplicas = List.of();
+
+    /**
+     * Constructor for ReadWriteRoutingConnectionFactory.
+     *
+     * @param primary the primary connection factory
+     * @param replicas the replica connection factories by name
+     * @param maxLag replicas lagging more than this are taken out of rotation
+     * @param checkTimeout how long one replica check may take
+     * @param meterRegistry the registry the replica gauges are bound to
+     */
+    public ReadWriteRoutingConnectionFactory(ConnectionFactory primary, Map<String, ConnectionFactory> replicas,
+                                             Duration maxLag, Duration checkTimeout, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.checkTimeout = checkTimeout;
+        Map<String, ConnectionFactory> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetConnectionFactories(targets);
+        setDefaultTargetConnectionFactory(primary);
+        setLenientFallback(false);
+        replicas.forEach((name, factory) -> {
+            ReplicaState state = new ReplicaState(name, factory);
+            this.replicas.put(name, state);
+            Gauge.builder("product.r2dbc.replica.lag", state, ReplicaState::getLagSeconds)
+                    .description("Replay lag of the read replica in seconds")
+                    .baseUnit("seconds")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            Gauge.builder("product.r2dbc.replica.healthy", state, s -> s.isHealthy() ? 1 : 0)
+                    .description("Whether the read replica is in rotation")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> {
+            if (!ReadRouting.mayUseReplica(context)) {
+                return Mono.just(PRIMARY);
+            }
+            List<String> healthy = healthyReplicas;
+            if (healthy.isEmpty()) {
+                return Mono.just(PRIMARY);
+            }
+            return Mono.just(healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size())));
+        });
+    }
+
+    @Override
+    public void destroy() {
+        replicas.values().forEach(state -> dispose(state.connectionFactory));
+        dispose(primary);
+    }
+
+    private static void dispose(ConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+    /**
+     * Checks every replica's reachability and replay lag and updates the rotation.
+     */
+    @Scheduled(fixedDelayString = "${product.r2dbc.replica-check-interval-ms:1000}")
+    public void checkReplicas() {
+        checkAll().block(checkTimeout.multipliedBy(2));
+    }
+
+    /**
+     * Returns the last observed state of every replica.
+     *
+     * @return the replica states by name
+     */
+    Map<String, ReplicaState> getReplicaStates() {
+        return Collections.unmodifiableMap(replicas);
+    }
+
+    Mono<Void> checkAll() {
+        return Flux.fromIterable(replicas.values())
+                .flatMap(this::check)
+                .then(Mono.fromRunnable(this::updateRotation));
+    }
+
+    private Mono<Void> check(ReplicaState state) {
+        return Mono.usingWhen(Mono.from(state.connectionFactory.create()),
+                        connection -> Mono.from(connection.createStatement(LAG_QUERY).execute())
+                                .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Double.class)))),
+                        Connection::close)
+                .timeout(checkTimeout)
+                .doOnNext(lag -> {
+                    state.lagSeconds = lag;
+                    state.lastError = lag > maxLag.toMillis() / 1000.0 ? "replication lag " + lag + "s" : null;
+                    state.healthy = state.lastError == null;
+                })
+                .onErrorResume(e -> {
+                    if (state.healthy) {
+                        log.warn("Read replica {} taken out of rotation: {}", state.name, e.getMessage());
+                    }
+                    state.healthy = false;
+                    state.lastError = e.getMessage();
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    void updateRotation() {
+        List<String> healthy = new ArrayList<>();
+        replicas.values().forEach(state -> {
+            if (state.healthy) {
+                healthy.add(state.name);
+            }
+        });
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    /**
+     * Sets a replica's state directly; for tests.
+     */
+    void setReplicaState(String name, boolean healthy, double lagSeconds) {
+        ReplicaState state = replicas.get(name);
+        state.healthy = healthy;
+        state.lagSeconds = lagSeconds;
+        updateRotation();
+    }
+}
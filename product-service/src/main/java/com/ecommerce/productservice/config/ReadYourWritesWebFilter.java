@@ -0,0 +1,81 @@
+package com.ecommerce.productservice.config;
+
+import com.ecommerce.productservice.util.ReadRouting;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Keeps a client on the primary database for a short window after it changed something.
+ * <p>
+ * Business rules:
+ * 1. A successful mutating request (anything but GET, HEAD, OPTIONS) sets a cookie holding
+ *    the time until which that client's reads must see the primary
+ * 2. A read carrying an unexpired cookie is pinned to the primary, so it cannot miss its own
+ *    write on a lagging replica; the cookie makes this work across instances without shared state
+ * 3. The window should exceed the replica lag guard
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ReadYourWritesWebFilter implements WebFilter {
+
+    /** Cookie holding the epoch millisecond until which reads go to the primary. */
+    static final String COOKIE_NAME = "primary-until";
+
+    private final Duration window;
+    private final Clock clock;
+
+    /**
+     * Constructor for ReadYourWritesWebFilter.
+     *
+     * @param window how long reads stay on the primary after a write
+     * @param clock the clock the window is measured with
+     */
+    public ReadYourWritesWebFilter(Duration window, Clock clock) {
+        this.window = window;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        HttpMethod method = exchange.getRequest().getMethod();
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS) {
+            if (pinned(exchange.getRequest().getCookies().getFirst(COOKIE_NAME))) {
+                return chain.filter(exchange).contextWrite(ReadRouting::pinPrimary);
+            }
+            return chain.filter(exchange);
+        }
+        exchange.getResponse().beforeCommit(() -> {
+            if (exchange.getResponse().getStatusCode() == null
+                    || exchange.getResponse().getStatusCode().is2xxSuccessful()) {
+                exchange.getResponse().addCookie(ResponseCookie
+                        .from(COOKIE_NAME, String.valueOf(clock.millis() + window.toMillis()))
+                        .maxAge(window)
+                        .path("/")
+                        .httpOnly(true)
+                        .build());
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange);
+    }
+
+    private boolean pinned(HttpCookie cookie) {
+        if (cookie == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(cookie.getValue()) > clock.millis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
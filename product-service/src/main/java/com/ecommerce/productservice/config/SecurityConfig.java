@@ -1,11 +1,21 @@
 package com.ecommerce.productservice.config;
 
+import com.ecommerce.security.JwtAuthenticationWebFilter;
+import com.ecommerce.security.JwtVerifier;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.config.Customizer;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+import java.nio.charset.StandardCharsets;
 
 /**
  * Configuration class for Spring Security settings in the Product Service.
@@ -14,6 +24,7 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
  * 1. Enables reactive method security
  * 2. Configures HTTP security for endpoints
  * 3. Permits access to actuator and API docs
+ * 4. Authenticates with the JWTs issued by user-service; no session, no HTTP Basic
  *
  * @author JackyChen
  * @since 2025-04-01
@@ -28,24 +39,53 @@ public class SecurityConfig {
      * Business rules:
      * 1. Permits access to actuator and API docs endpoints
      * 2. Requires authentication for other exchanges
-     * 3. Enables HTTP basic authentication
+     * 3. Authenticates bearer tokens with the JWT filter; unauthenticated access to a protected
+     *    resource is answered with 401
      *
      * @param http the ServerHttpSecurity to configure
+     * @param jwtVerifier the JWT verifier
      * @return the configured SecurityWebFilterChain
      * @author JackyChen
      * @since 2025-04-01
      */
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtVerifier jwtVerifier) {
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterAt(new JwtAuthenticationWebFilter(jwtVerifier), SecurityWebFiltersOrder.AUTHENTICATION)
                 .authorizeExchange(auth -> auth
                         .pathMatchers("/actuator/**", "/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**").permitAll()
                         .pathMatchers("/api/products/init").permitAll() //hasRole("ADMIN")
                         .pathMatchers("/api/products/**").permitAll()
                         .anyExchange().authenticated()
                 )
-                .httpBasic(Customizer.withDefaults())
                 .build();
     }
+
+    /**
+     * Creates the JWT verifier.
+     * <p>
+     * Business rules:
+     * 1. Uses the HS256 secret shared with user-service (at least 32 bytes)
+     * 2. Caches up to jwt.cache.max-size verified tokens
+     *
+     * @param secret the shared HMAC secret
+     * @param maxCachedTokens the maximum number of cached verified tokens
+     * @param meterRegistry the meter registry
+     * @return the JwtVerifier
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @Bean
+    public JwtVerifier jwtVerifier(@Value("${jwt.secret}") String secret,
+                                   @Value("${jwt.cache.max-size:100000}") long maxCachedTokens,
+                                   MeterRegistry meterRegistry) {
+        return new JwtVerifier(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)),
+                maxCachedTokens, meterRegistry);
+    }
 }
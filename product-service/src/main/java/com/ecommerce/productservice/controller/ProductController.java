@@ -2,11 +2,21 @@ package com.ecommerce.productservice.controller;
 
 import com.ecommerce.productservice.customexception.ProductNotFoundException;
 import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.dto.BulkImportResult;
+import com.ecommerce.productservice.dto.ProductBatch;
+import com.ecommerce.productservice.dto.ProductBatchRequest;
+import com.ecommerce.productservice.dto.ProductBrowseResult;
 import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.service.ProductBrowseService;
+import com.ecommerce.productservice.service.ProductExportService;
+import com.ecommerce.productservice.service.ProductImportService;
 import com.ecommerce.productservice.service.ProductService;
 import com.ecommerce.productservice.util.DataInitializer;
+import com.ecommerce.productservice.util.ProductETags;
 import org.springframework.data.repository.query.Param;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -14,13 +24,15 @@ import reactor.core.publisher.Mono;
 import lombok.*;
 
 import java.net.URI;
+import java.time.Instant;
+import java.util.List;
 
 /**
  * REST Controller for Product operations.
  * <p>
  * Business rules:
  * 1. Handles HTTP requests for product CRUD operations
- * 2. Supports pagination and search
+ * 2. Supports pagination, search and streaming export
  * 3. Requires admin role for create operations
  *
  * @author JackyChen
@@ -30,22 +42,37 @@ import java.net.URI;
 @RequestMapping("/api/products")
 public class ProductController {
 
+    /** Response header carrying the cursor of the next listing page. */
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ProductService productService;
+    private final ProductExportService productExportService;
+    private final ProductImportService productImportService;
+    private final ProductBrowseService productBrowseService;
     private final DataInitializer dataInitializer;
 
     /**
      * Constructor for ProductController.
      * <p>
      * Business rules:
-     * 1. Injects ProductService and DataInitializer
+     * 1. Injects ProductService, ProductExportService, ProductImportService, ProductBrowseService
+     *    and DataInitializer
      *
      * @param productService the product service
+     * @param productExportService the catalog export service
+     * @param productImportService the bulk import service
+     * @param productBrowseService the faceted browse service
      * @param dataInitializer the data initializer
      * @author JackyChen
      * @since 2025-04-01
      */
-    ProductController (ProductService productService, DataInitializer dataInitializer) {
+    ProductController (ProductService productService, ProductExportService productExportService,
+                       ProductImportService productImportService, ProductBrowseService productBrowseService,
+                       DataInitializer dataInitializer) {
         this.productService = productService;
+        this.productExportService = productExportService;
+        this.productImportService = productImportService;
+        this.productBrowseService = productBrowseService;
         this.dataInitializer = dataInitializer;
     }
 
@@ -53,18 +80,42 @@ public class ProductController {
      * Retrieves all products with pagination.
      * <p>
      * Business rules:
-     * 1. Supports optional page and size parameters
-     * 2. Defaults to page 0 and size 10
+     * 1. Uses keyset pagination: pass the X-Next-Cursor header of the previous response as "after"
+     * 2. Supports an optional sort key (id, price, name), defaults to id
+     * 3. A legacy page number is still honoured when no cursor is given
+     * 4. Defaults to size 10, capped at 100
+     * 5. Sends an ETag and Last-Modified for the page; a matching If-None-Match or If-Modified-Since
+     *    gets 304 Not Modified without a body
      *
-     * @param page the page number (optional)
+     * @param after the opaque cursor of the previous page (optional)
+     * @param sort the sort key (optional)
+     * @param page the legacy page number (optional)
      * @param size the page size (optional)
-     * @return a Flux of ProductDto
+     * @return a Mono of ResponseEntity with the page of ProductDto
      * @author JackyChen
      * @since 2025-04-01
      */
     @GetMapping
-    public Flux<ProductDto> listAll(@Param("page") Integer page, @Param("size") Integer size) {
-        return productService.getAll(page!=null? page : 0, size!=null? size : 10);
+    public Mono<ResponseEntity<List<ProductDto>>> listAll(@Param("after") String after,
+                                                          @Param("sort") String sort,
+                                                          @Param("page") Integer page,
+                                                          @Param("size") Integer size) {
+        int pageSize = size != null ? size : 10;
+        if (page != null && after == null && sort == null) {
+            return productService.getAll(page, pageSize)
+                    .collectList()
+                    .map(products -> okWithValidators(ProductETags.ofPage(products, null), products)
+                            .body(products));
+        }
+        return productService.getPage(after, sort, pageSize)
+                .map(result -> {
+                    ResponseEntity.BodyBuilder builder = okWithValidators(
+                            ProductETags.ofPage(result.getItems(), result.getNextCursor()), result.getItems());
+                    if (result.getNextCursor() != null) {
+                        builder.header(NEXT_CURSOR_HEADER, result.getNextCursor());
+                    }
+                    return builder.body(result.getItems());
+                });
     }
 
     /**
@@ -73,6 +124,8 @@ public class ProductController {
      * Business rules:
      * 1. Returns 200 OK if found
      * 2. Returns 404 Not Found if not found
+     * 3. Sends an ETag and Last-Modified from the product's updatedAt; a matching If-None-Match or
+     *    If-Modified-Since gets 304 Not Modified without a body
      *
      * @param id the product ID
      * @return a Mono of ResponseEntity with ProductDto
@@ -82,25 +135,156 @@ public class ProductController {
     @GetMapping("/{id}")
     public Mono<ResponseEntity<ProductDto>> getOne(@PathVariable Long id) {
         return productService.getById(id)
-                .map(ResponseEntity::ok)
+                .map(product -> okWithValidators(ProductETags.of(product), List.of(product)).body(product))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()));
     }
 
+    /**
+     * Starts a 200 response carrying the validators of the given products. Spring answers a GET with
+     * 304 Not Modified instead, skipping the body, when the request's conditional headers match them.
+     */
+    private static ResponseEntity.BodyBuilder okWithValidators(String eTag, List<ProductDto> products) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (eTag != null) {
+            builder.eTag(eTag);
+        }
+        Instant lastModified = ProductETags.lastModified(products);
+        if (lastModified != null) {
+            builder.lastModified(lastModified);
+        }
+        return builder;
+    }
+
+    /**
+     * Retrieves many products by ID in one call, e.g. "?ids=3,1,2".
+     * <p>
+     * Business rules:
+     * 1. Resolves all IDs with a single database query (cached products are not queried)
+     * 2. Returns the found products in request order plus the IDs that do not exist
+     * 3. Returns 400 Bad Request for more than 100 distinct IDs
+     *
+     * @param ids the product IDs
+     * @return a Mono of ProductBatch
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @GetMapping(params = "ids")
+    public Mono<ProductBatch> getMany(@RequestParam List<Long> ids) {
+        return productService.getByIds(ids);
+    }
+
+    /**
+     * Retrieves many products by ID, for ID lists too long for a query string.
+     * <p>
+     * Business rules:
+     * 1. Same behaviour as GET with "ids", the IDs come in the body as {"ids": [...]}
+     *
+     * @param request the IDs to resolve
+     * @return a Mono of ProductBatch
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @PostMapping("/batch")
+    public Mono<ProductBatch> getManyByBody(@RequestBody ProductBatchRequest request) {
+        return productService.getByIds(request.getIds());
+    }
+
+    /**
+     * Streams the full catalog as newline-delimited JSON.
+     * <p>
+     * Business rules:
+     * 1. One ProductDto per line, flushed as rows arrive (no JSON array buffering)
+     * 2. The export is a consistent snapshot in ID order; resume with "after" = last received ID
+     * 3. "fetchSize" controls rows per database round trip
+     *
+     * @param after the last product ID already received (optional)
+     * @param fetchSize the rows per database fetch (optional)
+     * @return a Flux of ProductDto
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ProductDto> exportNdjson(@RequestParam(defaultValue = "0") long after,
+                                         @RequestParam(required = false) Integer fetchSize) {
+        return productExportService.exportAfter(after, fetchSize).map(ProductDto::fromEntity);
+    }
+
+    /**
+     * Streams the full catalog as Server-Sent Events.
+     * <p>
+     * Business rules:
+     * 1. Each event carries one ProductDto and uses the product ID as event id
+     * 2. A reconnecting EventSource resumes after its Last-Event-ID
+     *
+     * @param lastEventId the Last-Event-ID sent by a reconnecting client (optional)
+     * @param after the last product ID already received (optional)
+     * @param fetchSize the rows per database fetch (optional)
+     * @return a Flux of ServerSentEvent with ProductDto
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @GetMapping(value = "/export", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ProductDto>> exportEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(required = false) Integer fetchSize) {
+        long resumeAfter = lastEventId != null ? Math.max(lastEventId, after) : after;
+        return productExportService.exportAfter(resumeAfter, fetchSize)
+                .map(product -> ServerSentEvent.builder(ProductDto.fromEntity(product))
+                        .id(String.valueOf(product.getId()))
+                        .event("product")
+                        .build());
+    }
+
+    /**
+     * Browses products for a storefront category page.
+     * <p>
+     * Business rules:
+     * 1. Filters by exact category, price range and in-stock only, all optional
+     * 2. Sorts by price (default) or newest; pass the returned nextCursor as "after" for the next page
+     * 3. Returns category and price-bucket facet counts with every page
+     * 4. Defaults to size 20, capped at 100
+     *
+     * @param category the exact category (optional)
+     * @param minPrice the inclusive minimum price (optional)
+     * @param maxPrice the inclusive maximum price (optional)
+     * @param inStock whether to return only products in stock
+     * @param sort price or newest (optional)
+     * @param after the opaque cursor of the previous page (optional)
+     * @param size the page size
+     * @return a Mono of ProductBrowseResult
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @GetMapping("/browse")
+    public Mono<ProductBrowseResult> browse(@RequestParam(required = false) String category,
+                                            @RequestParam(required = false) Double minPrice,
+                                            @RequestParam(required = false) Double maxPrice,
+                                            @RequestParam(defaultValue = "false") boolean inStock,
+                                            @RequestParam(required = false) String sort,
+                                            @RequestParam(required = false) String after,
+                                            @RequestParam(defaultValue = "20") int size) {
+        return productBrowseService.browse(category, minPrice, maxPrice, inStock, sort, after, size);
+    }
+
     /**
      * Searches products by keyword.
      * <p>
      * Business rules:
-     * 1. Searches in product names
-     * 2. Case insensitive search
+     * 1. Searches in product names, categories and descriptions
+     * 2. Case insensitive, prefix matching on every word
+     * 3. Results are ranked by relevance, 20 by default and at most 100
      *
      * @param keyword the search keyword
+     * @param limit the maximum number of results (optional)
      * @return a Flux of ProductDto
      * @author JackyChen
      * @since 2025-04-01
      */
     @GetMapping("/search")
-    public Flux<ProductDto> search(@RequestParam String keyword) {
-        return productService.search(keyword);
+    public Flux<ProductDto> search(@RequestParam String keyword,
+                                   @RequestParam(defaultValue = "20") int limit) {
+        return productService.search(keyword, limit);
     }
 
     /**
@@ -131,6 +315,44 @@ public class ProductController {
                 });
     }
 
+    /**
+     * Bulk-imports products from a newline-delimited JSON stream.
+     * <p>
+     * Business rules:
+     * 1. Requires ADMIN role
+     * 2. Rows are validated and inserted in batches while the upload is still streaming
+     * 3. Streams back one BulkImportResult per input row, in order
+     *
+     * @param products the streamed ProductDto rows
+     * @return a Flux of BulkImportResult
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<BulkImportResult> bulkImportNdjson(@RequestBody Flux<ProductDto> products) {
+        return productImportService.importProducts(products);
+    }
+
+    /**
+     * Bulk-imports products from a CSV stream.
+     * <p>
+     * Business rules:
+     * 1. Requires ADMIN role
+     * 2. The first line is the header (name and price are mandatory columns)
+     * 3. Streams back one BulkImportResult per data row, in order
+     *
+     * @param lines the streamed CSV lines
+     * @return a Flux of BulkImportResult
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<BulkImportResult> bulkImportCsv(@RequestBody Flux<String> lines) {
+        return productImportService.importCsv(lines);
+    }
 
     /**
      * Deletes a product by ID.
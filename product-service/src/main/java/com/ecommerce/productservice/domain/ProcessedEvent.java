@@ -0,0 +1,49 @@
+package com.ecommerce.productservice.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * ID of a payment event whose stock reservation has been applied.
+ * <p>
+ * Business rules:
+ * 1. Mapped to the "processed_events" table in the database
+ * 2. Inserted in the same transaction as the reservation, so it exists if and only if the event was applied
+ * 3. Purged after the dedup retention, when redelivery is no longer possible
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Table("processed_events")
+public class ProcessedEvent {
+    /** The length of the event_id column. */
+    public static final int MAX_EVENT_ID_LENGTH = 128;
+
+    /** The producer-assigned event ID. */
+    @Id private String eventId;
+    /** When the event was applied. */
+    private LocalDateTime processedAt;
+
+    /**
+     * Default constructor.
+     */
+    public ProcessedEvent() {}
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+}
@@ -2,6 +2,8 @@ package com.ecommerce.productservice.domain;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.relational.core.mapping.Table;
 
+import java.time.LocalDateTime;
+
 /**
  * Represents a product entity in the e-commerce system.
  * <p>
@@ -9,6 +11,7 @@ import org.springframework.data.relational.core.mapping.Table;
  * 1. Mapped to the "products" table in the database
  * 2. Contains product details like name, description, price, stock
  * 3. Supports CRUD operations via repository
+ * 4. updatedAt moves forward on every write (a database trigger backs it up) and versions the ETag of reads
  *
  * @author JackyChen
  * @since 2025-04-01
@@ -55,6 +58,8 @@ public class Product {
     private Integer stock;
     /** The image URL of the product. */
     private String imageUrl;
+    /** When the product was last written; null until loaded or set. */
+    private LocalDateTime updatedAt;
 
     /**
      * Gets the product ID.
@@ -154,5 +159,19 @@ public class Product {
      */
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
+    /**
+     * Gets the time of the last write.
+     *
+     * @return the last write time
+     */
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    /**
+     * Sets the time of the last write.
+     *
+     * @param updatedAt the last write time to set
+     */
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.ecommerce.productservice.domain;
+
+import com.ecommerce.productservice.event.ProductStockEvent;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A stock event waiting in the transactional outbox.
+ * <p>
+ * Business rules:
+ * 1. Mapped to the "product_outbox" table in the database
+ * 2. Written in the same transaction as the products change it describes
+ * 3. Published to product-stock-updated by the outbox relay, then deleted
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Table("product_outbox")
+public class ProductOutboxEvent {
+    /** The outbox sequence number; defines the publish order. */
+    @Id private Long id;
+    /** The product ID. */
+    private Long productId;
+    /** The stock quantity after the change. */
+    private Integer newStock;
+    /** The action type (e.g. "CREATE", "UPDATE", "DELETE", "SOLD"). */
+    private String action;
+
+    /**
+     * Default constructor.
+     */
+    public ProductOutboxEvent() {}
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param id the outbox sequence number
+     * @param productId the product ID
+     * @param newStock the stock quantity after the change
+     * @param action the action type
+     */
+    public ProductOutboxEvent(Long id, Long productId, Integer newStock, String action) {
+        this.id = id;
+        this.productId = productId;
+        this.newStock = newStock;
+        this.action = action;
+    }
+
+    /**
+     * Converts the outbox row to the event published on Kafka.
+     *
+     * @return the ProductStockEvent
+     */
+    public ProductStockEvent toEvent() {
+        return new ProductStockEvent("product-outbox-" + id, productId, newStock, action);
+    }
+
+    public Long getId() {
+        return id;
+    }
+    public void setId(Long id) {
+        this.id = id;
+    }
+    public Long getProductId() {
+        return productId;
+    }
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+    public Integer getNewStock() {
+        return newStock;
+    }
+    public void setNewStock(Integer newStock) {
+        this.newStock = newStock;
+    }
+    public String getAction() {
+        return action;
+    }
+    public void setAction(String action) {
+        this.action = action;
+    }
+}
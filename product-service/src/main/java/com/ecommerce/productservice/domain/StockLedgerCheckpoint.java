@@ -0,0 +1,44 @@
+package com.ecommerce.productservice.domain;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Write-behind checkpoint of the in-memory stock ledger of one instance.
+ * <p>
+ * Business rules:
+ * 1. Mapped to the "stock_ledger_checkpoint" table in the database
+ * 2. Advanced in the same transaction as the stock deltas it covers
+ * 3. Journal records after journalSeq are replayed on startup
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Table("stock_ledger_checkpoint")
+public class StockLedgerCheckpoint {
+    /** The product-service instance owning the journal. */
+    @Id private String instanceId;
+    /** The last journal sequence number already applied to products. */
+    private Long journalSeq;
+
+    /**
+     * Default constructor.
+     */
+    public StockLedgerCheckpoint() {}
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public Long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public void setJournalSeq(Long journalSeq) {
+        this.journalSeq = journalSeq;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecommerce.productservice.dto;
+
+/**
+ * Per-row outcome of a bulk product import.
+ * <p>
+ * Business rules:
+ * 1. One result is streamed back for every input row, in input order
+ * 2. CREATED rows carry the new product ID; REJECTED and FAILED rows carry the reason
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class BulkImportResult {
+    /** Row status values. */
+    public enum Status { CREATED, REJECTED, FAILED }
+
+    /** The 1-based row number in the uploaded stream (data rows only). */
+    private final long row;
+    /** The row status. */
+    private final Status status;
+    /** The new product ID, when created. */
+    private final Long id;
+    /** The validation or database error, when not created. */
+    private final String error;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param row the 1-based row number
+     * @param status the row status
+     * @param id the new product ID, or null
+     * @param error the error message, or null
+     */
+    public BulkImportResult(long row, Status status, Long id, String error) {
+        this.row = row;
+        this.status = status;
+        this.id = id;
+        this.error = error;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
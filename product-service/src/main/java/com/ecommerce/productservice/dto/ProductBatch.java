@@ -0,0 +1,39 @@
+package com.ecommerce.productservice.dto;
+
+import java.util.List;
+
+/**
+ * Result of a multi-get by product IDs.
+ * <p>
+ * Business rules:
+ * 1. Holds the found products in the order their IDs were requested (duplicates collapsed)
+ * 2. Lists the requested IDs that do not exist, also in request order
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ProductBatch {
+    /** The found products, in request order. */
+    private final List<ProductDto> items;
+    /** The requested IDs that were not found. */
+    private final List<Long> missingIds;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param items the found products
+     * @param missingIds the IDs that were not found
+     */
+    public ProductBatch(List<ProductDto> items, List<Long> missingIds) {
+        this.items = items;
+        this.missingIds = missingIds;
+    }
+
+    public List<ProductDto> getItems() {
+        return items;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+}
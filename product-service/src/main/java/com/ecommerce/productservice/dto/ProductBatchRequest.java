@@ -0,0 +1,30 @@
+package com.ecommerce.productservice.dto;
+
+import java.util.List;
+
+/**
+ * Request body of the multi-get endpoint.
+ * <p>
+ * Business rules:
+ * 1. Carries the product IDs to resolve, e.g. {"ids": [3, 1, 2]}
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ProductBatchRequest {
+    /** The product IDs, in the order the caller wants them back. */
+    private List<Long> ids;
+
+    /**
+     * Default constructor.
+     */
+    public ProductBatchRequest() {}
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
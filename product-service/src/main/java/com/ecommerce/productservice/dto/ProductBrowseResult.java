@@ -0,0 +1,110 @@
+package com.ecommerce.productservice.dto;
+
+import java.util.List;
+
+/**
+ * One page of a faceted category browse.
+ * <p>
+ * Business rules:
+ * 1. Holds the products of the current page in sort order and the cursor of the next page
+ * 2. Category facets count matches per category under the price and stock filters (not the category filter)
+ * 3. Price facets count matches per price bucket under the category and stock filters (not the price filter)
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ProductBrowseResult {
+    /** The products on this page. */
+    private final List<ProductDto> items;
+    /** The cursor to pass as "after" for the next page, null if there is none. */
+    private final String nextCursor;
+    /** Matching products per category. */
+    private final List<CategoryCount> categories;
+    /** Matching products per price bucket, in price order. */
+    private final List<PriceBucket> priceBuckets;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param items the products on this page
+     * @param nextCursor the cursor for the next page, or null
+     * @param categories the category facets
+     * @param priceBuckets the price facets
+     */
+    public ProductBrowseResult(List<ProductDto> items, String nextCursor,
+                               List<CategoryCount> categories, List<PriceBucket> priceBuckets) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.categories = categories;
+        this.priceBuckets = priceBuckets;
+    }
+
+    public List<ProductDto> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public List<CategoryCount> getCategories() {
+        return categories;
+    }
+
+    public List<PriceBucket> getPriceBuckets() {
+        return priceBuckets;
+    }
+
+    /**
+     * Number of matching products in one category.
+     */
+    public static class CategoryCount {
+        /** The category, null for uncategorized products. */
+        private final String category;
+        /** The number of matching products. */
+        private final long count;
+
+        public CategoryCount(String category, long count) {
+            this.category = category;
+            this.count = count;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Number of matching products in one price range [min, max).
+     */
+    public static class PriceBucket {
+        /** The inclusive lower bound, null for the open-ended lowest bucket. */
+        private final Double min;
+        /** The exclusive upper bound, null for the open-ended highest bucket. */
+        private final Double max;
+        /** The number of matching products. */
+        private final long count;
+
+        public PriceBucket(Double min, Double max, long count) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+        }
+
+        public Double getMin() {
+            return min;
+        }
+
+        public Double getMax() {
+            return max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
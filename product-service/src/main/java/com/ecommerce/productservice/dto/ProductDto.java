@@ -1,11 +1,14 @@
 package com.ecommerce.productservice.dto;
 
 import com.ecommerce.productservice.domain.Product;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 /**
  * Data Transfer Object for Product.
  * <p>
@@ -13,6 +16,7 @@ import lombok.*;
  * 1. Used to transfer product data between layers
  * 2. Contains product details for API responses
  * 3. Supports conversion from entity
+ * 4. Carries the entity's updatedAt for ETag/Last-Modified headers; it is not part of the JSON body
  *
  * @author JackyChen
  * @since 2025-04-01
@@ -28,6 +32,8 @@ public class ProductDto {
     private Double price;
     private Integer stock;
     private String imageUrl;
+    @JsonIgnore
+    private LocalDateTime updatedAt;
 
     public Long getId() {
         return id;
@@ -71,6 +77,12 @@ public class ProductDto {
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
     }
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 
     /**
      * Converts a Product entity to ProductDto.
@@ -92,6 +104,7 @@ public class ProductDto {
         dto.price = p.getPrice();
         dto.stock = p.getStock();
         dto.imageUrl = p.getImageUrl();
+        dto.updatedAt = p.getUpdatedAt();
         return dto;
     }
 }
@@ -0,0 +1,39 @@
+package com.ecommerce.productservice.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of products.
+ * <p>
+ * Business rules:
+ * 1. Holds the products of the current page in sort order
+ * 2. Carries the opaque cursor for the next page, or null when this is the last page
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ProductPage {
+    /** The products on this page. */
+    private final List<ProductDto> items;
+    /** The cursor to pass as "after" for the next page, null if there is none. */
+    private final String nextCursor;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param items the products on this page
+     * @param nextCursor the cursor for the next page, or null
+     */
+    public ProductPage(List<ProductDto> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ProductDto> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
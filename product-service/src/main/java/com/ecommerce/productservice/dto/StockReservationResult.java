@@ -0,0 +1,88 @@
+package com.ecommerce.productservice.dto;
+
+/**
+ * Outcome of one stock reservation request from a payment event.
+ * <p>
+ * Business rules:
+ * 1. One result is produced per incoming event, in the same order as the events
+ * 2. A failed result carries the reason so the caller can log or dead-letter it
+ * 3. A duplicate result marks an event that was already applied; it changes nothing and is not an error
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class StockReservationResult {
+    /** The product ID of the event. */
+    private final Long productId;
+    /** The quantity the event asked for. */
+    private final Integer quantity;
+    /** Whether the quantity was reserved. */
+    private final boolean reserved;
+    /** The failure reason, null when reserved. */
+    private final String reason;
+    /** Whether the event had already been applied. */
+    private final boolean duplicate;
+
+    private StockReservationResult(Long productId, Integer quantity, boolean reserved, String reason,
+                                   boolean duplicate) {
+        this.productId = productId;
+        this.quantity = quantity;
+        this.reserved = reserved;
+        this.reason = reason;
+        this.duplicate = duplicate;
+    }
+
+    /**
+     * Creates a successful result.
+     *
+     * @param productId the product ID
+     * @param quantity the reserved quantity
+     * @return the result
+     */
+    public static StockReservationResult reserved(Long productId, Integer quantity) {
+        return new StockReservationResult(productId, quantity, true, null, false);
+    }
+
+    /**
+     * Creates a failed result.
+     *
+     * @param productId the product ID
+     * @param quantity the requested quantity
+     * @param reason why the reservation failed
+     * @return the result
+     */
+    public static StockReservationResult failed(Long productId, Integer quantity, String reason) {
+        return new StockReservationResult(productId, quantity, false, reason, false);
+    }
+
+    /**
+     * Creates the result of an event that was already applied.
+     *
+     * @param productId the product ID
+     * @param quantity the requested quantity
+     * @return the result
+     */
+    public static StockReservationResult duplicate(Long productId, Integer quantity) {
+        return new StockReservationResult(productId, quantity, false, "Duplicate event", true);
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public boolean isReserved() {
+        return reserved;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+}
@@ -6,6 +6,7 @@ package com.ecommerce.productservice.event;
  * Business rules:
  * 1. Used for Kafka messaging
  * 2. Contains product ID, new stock, and action
+ * 3. Carries a producer-assigned event ID, so a redelivered event can be recognised
  *
  * @author JackyChen
  * @since 2025-04-01
@@ -17,6 +18,8 @@ public class ProductStockEvent {
     private Integer newStock;
     /** The action type (e.g. "CREATE", "UPDATE", "DELETE", "SOLD"). */
     private String action;
+    /** The unique event ID, null for events from producers that do not assign one. */
+    private String eventId;
 
     /**
      * Default constructor.
@@ -36,6 +39,19 @@ public class ProductStockEvent {
         this.action = action;
     }
 
+    /**
+     * Constructor with all fields and an event ID.
+     *
+     * @param eventId the unique event ID
+     * @param productId the product ID
+     * @param newStock the new stock quantity
+     * @param action the action type
+     */
+    public ProductStockEvent(String eventId, Long productId, Integer newStock, String action) {
+        this(productId, newStock, action);
+        this.eventId = eventId;
+    }
+
     public Long getProductId() {
         return productId;
     }
@@ -54,4 +70,12 @@ public class ProductStockEvent {
     public void setAction(String action) {
         this.action = action;
     }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
 }
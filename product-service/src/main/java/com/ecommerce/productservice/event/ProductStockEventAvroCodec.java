@@ -0,0 +1,128 @@
+package com.ecommerce.productservice.event;
+
+import com.ecommerce.productservice.util.FileSchemaRegistry;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Avro binary encoding of ProductStockEvent with the schema version in front of every message.
+ * <p>
+ * Business rules:
+ * 1. Wire format: magic byte 0, 4-byte big-endian schema version, Avro binary body (no field names)
+ * 2. Writes with the newest schema of the registry; reads any registered version and resolves it
+ *    into the newest, so fields missing in old data take their defaults and unknown new fields are skipped
+ * 3. A JSON payload never starts with the magic byte, so both encodings can share a topic
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ProductStockEventAvroCodec {
+
+    /** First byte of every Avro-encoded message. */
+    static final byte MAGIC = 0;
+    /** Magic byte plus schema version. */
+    static final int HEADER_BYTES = 5;
+
+    private final FileSchemaRegistry registry;
+    private final int writeVersion;
+    private final Schema schema;
+    private final boolean hasEventId;
+    private final GenericDatumWriter<GenericRecord> writer;
+    private final Map<Integer, GenericDatumReader<GenericRecord>> readers = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for ProductStockEventAvroCodec.
+     *
+     * @param registry the versions of the product-stock-event schema
+     */
+    public ProductStockEventAvroCodec(FileSchemaRegistry registry) {
+        this.registry = registry;
+        this.writeVersion = registry.latestVersion();
+        this.schema = registry.latest();
+        this.hasEventId = schema.getField("eventId") != null;
+        this.writer = new GenericDatumWriter<>(schema);
+    }
+
+    /**
+     * Tells whether a payload is Avro-encoded.
+     *
+     * @param data the payload
+     * @return true if it starts with the magic byte
+     */
+    public static boolean isAvro(byte[] data) {
+        return data != null && data.length >= HEADER_BYTES && data[0] == MAGIC;
+    }
+
+    /**
+     * Encodes an event with the newest schema.
+     *
+     * @param event the event
+     * @return the payload
+     */
+    public byte[] encode(ProductStockEvent event) {
+        GenericRecord record = new GenericData.Record(schema);
+        record.put("productId", event.getProductId());
+        record.put("newStock", event.getNewStock());
+        record.put("action", event.getAction());
+        if (hasEventId) {
+            record.put("eventId", event.getEventId());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        out.write(MAGIC);
+        out.write(writeVersion >>> 24);
+        out.write(writeVersion >>> 16);
+        out.write(writeVersion >>> 8);
+        out.write(writeVersion);
+        try {
+            BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(out, null);
+            writer.write(record, encoder);
+            encoder.flush();
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Cannot encode ProductStockEvent for product " + event.getProductId(), e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes an Avro-encoded event written with any registered schema version.
+     *
+     * @param data the payload, starting with the magic byte
+     * @return the event
+     */
+    public ProductStockEvent decode(byte[] data) {
+        if (!isAvro(data)) {
+            throw new SerializationException("Not an Avro-encoded ProductStockEvent");
+        }
+        int version = ((data[1] & 0xff) << 24) | ((data[2] & 0xff) << 16)
+                | ((data[3] & 0xff) << 8) | (data[4] & 0xff);
+        try {
+            GenericDatumReader<GenericRecord> reader = readers.computeIfAbsent(version,
+                    v -> new GenericDatumReader<>(registry.schema(v), schema));
+            BinaryDecoder decoder = DecoderFactory.get()
+                    .binaryDecoder(data, HEADER_BYTES, data.length - HEADER_BYTES, null);
+            GenericRecord record = reader.read(null, decoder);
+            ProductStockEvent event = new ProductStockEvent((Long) record.get("productId"),
+                    (Integer) record.get("newStock"), String.valueOf(record.get("action")));
+            if (hasEventId) {
+                Object eventId = record.get("eventId");
+                event.setEventId(eventId != null ? eventId.toString() : null);
+            }
+            return event;
+        } catch (IOException | RuntimeException e) {
+            throw new SerializationException("Cannot decode ProductStockEvent written with schema v" + version, e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ecommerce.productservice.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+/**
+ * Kafka deserializer for ProductStockEvent reading Avro and, during the migration, JSON.
+ * <p>
+ * Business rules:
+ * 1. Avro payloads are recognised by their magic byte and decoded with their own schema version
+ * 2. With dual-read on, anything else is read as JSON into ProductStockEvent, trusting type headers from its package
+ * 3. With dual-read off (after every producer writes Avro), a JSON payload is a SerializationException
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ProductStockEventDeserializer implements Deserializer<ProductStockEvent> {
+
+    private final ProductStockEventAvroCodec codec;
+    private final boolean dualRead;
+    private final JsonDeserializer<ProductStockEvent> json = new JsonDeserializer<>(ProductStockEvent.class);
+
+    /**
+     * Constructor for ProductStockEventDeserializer.
+     *
+     * @param codec the Avro codec
+     * @param dualRead whether JSON payloads are still accepted
+     */
+    public ProductStockEventDeserializer(ProductStockEventAvroCodec codec, boolean dualRead) {
+        this.codec = codec;
+        this.dualRead = dualRead;
+    }
+
+    @Override
+    public ProductStockEvent deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public ProductStockEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (ProductStockEventAvroCodec.isAvro(data)) {
+            return codec.decode(data);
+        }
+        if (!dualRead) {
+            throw new SerializationException("Expected an Avro-encoded ProductStockEvent on " + topic);
+        }
+        return headers != null ? json.deserialize(topic, headers, data) : json.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecommerce.productservice.event;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Kafka serializer for ProductStockEvent writing either JSON or Avro.
+ * <p>
+ * Business rules:
+ * 1. JSON is the pre-Avro format, kept until every consumer reads Avro (see ProductStockEventDeserializer)
+ * 2. Avro messages carry no type headers; the schema version travels in the payload
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class ProductStockEventSerializer implements Serializer<ProductStockEvent> {
+
+    /**
+     * Wire formats.
+     */
+    public enum Format {
+        JSON, AVRO;
+
+        /**
+         * Parses a format from configuration.
+         *
+         * @param value the configured value, e.g. "avro"
+         * @return the format
+         */
+        public static Format from(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported ProductStockEvent format: " + value);
+            }
+        }
+    }
+
+    private final ProductStockEventAvroCodec codec;
+    private final Format format;
+    private final JsonSerializer<ProductStockEvent> json = new JsonSerializer<>();
+
+    /**
+     * Constructor for ProductStockEventSerializer.
+     *
+     * @param codec the Avro codec
+     * @param format the format to write
+     */
+    public ProductStockEventSerializer(ProductStockEventAvroCodec codec, Format format) {
+        this.codec = codec;
+        this.format = format;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, ProductStockEvent data) {
+        if (data == null) {
+            return null;
+        }
+        return format == Format.AVRO ? codec.encode(data) : json.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, ProductStockEvent data) {
+        if (data == null) {
+            return null;
+        }
+        return format == Format.AVRO ? codec.encode(data) : json.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
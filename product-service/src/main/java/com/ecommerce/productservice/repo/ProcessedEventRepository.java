@@ -0,0 +1,41 @@
+package com.ecommerce.productservice.repo;
+
+import com.ecommerce.productservice.domain.ProcessedEvent;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository interface for the IDs of applied payment events.
+ * Claiming is a single INSERT ... ON CONFLICT DO NOTHING: only IDs that were not there before come back,
+ * and a concurrent claim of the same ID waits for the other transaction and then loses.
+ */
+@Repository
+public interface ProcessedEventRepository extends ReactiveCrudRepository<ProcessedEvent, String> {
+
+    /**
+     * Records event IDs as processed, skipping the ones already recorded.
+     *
+     * @param eventIds the event IDs (must be distinct)
+     * @return a Flux of the IDs that were newly recorded, i.e. are not duplicates
+     */
+    @Query("INSERT INTO processed_events (event_id) "
+            + "SELECT unnest(CAST(:eventIds AS VARCHAR[])) "
+            + "ON CONFLICT (event_id) DO NOTHING "
+            + "RETURNING event_id")
+    Flux<String> claim(String[] eventIds);
+
+    /**
+     * Deletes the IDs of events processed longer ago than the retention, measured by the database clock.
+     *
+     * @param retentionSeconds how long IDs are kept
+     * @return a Mono of the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM processed_events "
+            + "WHERE processed_at < LOCALTIMESTAMP - make_interval(secs => :retentionSeconds)")
+    Mono<Integer> purgeOlderThan(double retentionSeconds);
+}
@@ -0,0 +1,110 @@
+package com.ecommerce.productservice.repo;
+
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.domain.ProductOutboxEvent;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Repository interface for the product stock event outbox.
+ * Writes join the caller's transaction; reads and deletes are used by the outbox relay.
+ */
+@Repository
+public interface ProductOutboxRepository extends ReactiveCrudRepository<ProductOutboxEvent, Long> {
+
+    /**
+     * Appends one stock event to the outbox.
+     *
+     * @param productId the product ID
+     * @param newStock the stock quantity after the change
+     * @param action the action type
+     * @return a Mono of the number of inserted rows
+     */
+    @Modifying
+    @Query("INSERT INTO product_outbox (product_id, new_stock, action) VALUES (:productId, :newStock, :action)")
+    Mono<Integer> append(Long productId, int newStock, String action);
+
+    /**
+     * Appends many stock events with the same action in one round trip.
+     *
+     * @param productIds the product IDs
+     * @param newStocks the stock quantities, index-aligned with productIds
+     * @param action the action type
+     * @return a Mono of the number of inserted rows
+     */
+    @Modifying
+    @Query("INSERT INTO product_outbox (product_id, new_stock, action) "
+            + "SELECT v.product_id, v.new_stock, :action "
+            + "FROM unnest(CAST(:productIds AS BIGINT[]), CAST(:newStocks AS INTEGER[])) AS v(product_id, new_stock)")
+    Mono<Integer> appendAll(Long[] productIds, Integer[] newStocks, String action);
+
+    /**
+     * Appends one stock event per product, announcing its current stock.
+     *
+     * @param products the changed products
+     * @param action the action type
+     * @return a Mono completing when the rows are inserted
+     */
+    default Mono<Void> appendAll(Collection<Product> products, String action) {
+        if (products.isEmpty()) {
+            return Mono.empty();
+        }
+        Long[] ids = new Long[products.size()];
+        Integer[] stocks = new Integer[products.size()];
+        int i = 0;
+        for (Product product : products) {
+            ids[i] = product.getId();
+            stocks[i++] = product.getStock() != null ? product.getStock() : 0;
+        }
+        return appendAll(ids, stocks, action).then();
+    }
+
+    /**
+     * Tries to become the only active relay until the current transaction ends.
+     *
+     * @param key the advisory lock key
+     * @return a Mono of true when the lock was acquired
+     */
+    @Query("SELECT pg_try_advisory_xact_lock(:key)")
+    Mono<Boolean> tryRelayLock(long key);
+
+    /**
+     * Claims the oldest outbox rows for publishing, unless a claim of another relay is still live.
+     * Call it after tryRelayLock in the same transaction, so two relays never claim side by side.
+     *
+     * @param limit the maximum number of rows
+     * @param leaseMillis how long the claim keeps other relays away
+     * @return a Flux of the claimed rows, in no particular order (empty if another relay holds a claim)
+     */
+    @Query("UPDATE product_outbox SET claimed_until = now() + :leaseMillis * INTERVAL '1 millisecond' "
+            + "WHERE id IN (SELECT id FROM product_outbox ORDER BY id LIMIT :limit) "
+            + "AND NOT EXISTS (SELECT 1 FROM product_outbox WHERE claimed_until > now()) "
+            + "RETURNING *")
+    Flux<ProductOutboxEvent> claimOldest(int limit, long leaseMillis);
+
+    /**
+     * Gives up a claim, so the rows are retried right away instead of when the lease runs out.
+     *
+     * @param ids the outbox IDs
+     * @return a Mono of the number of released rows
+     */
+    @Modifying
+    @Query("UPDATE product_outbox SET claimed_until = NULL WHERE id = ANY(CAST(:ids AS BIGINT[]))")
+    Mono<Integer> releaseClaims(Long[] ids);
+
+    /**
+     * Deletes published outbox rows.
+     *
+     * @param ids the outbox IDs
+     * @return a Mono of the number of deleted rows
+     */
+    @Modifying
+    @Query("DELETE FROM product_outbox WHERE id = ANY(CAST(:ids AS BIGINT[]))")
+    Mono<Integer> deleteAllByIds(Long[] ids);
+}
@@ -8,6 +8,8 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * Repository interface for Product entities.
  * Provides reactive CRUD operations and custom queries for products.
@@ -30,6 +32,99 @@ public interface ProductRepository extends ReactiveCrudRepository<Product, Long>
      */
     Flux<Product> findByNameContainingIgnoreCase(String name);
 
+    /**
+     * Full-text search over name, category and description using the GIN-indexed search_vector.
+     * Name matches rank above category matches, which rank above description matches.
+     *
+     * @param tsQuery a to_tsquery expression, e.g. "galaxy:* &amp; s23:*"
+     * @param limit the maximum number of results
+     * @return a Flux of products ordered by relevance
+     */
+    @Query("SELECT * FROM products WHERE search_vector @@ to_tsquery('simple', :tsQuery) "
+            + "ORDER BY ts_rank(search_vector, to_tsquery('simple', :tsQuery)) DESC, id "
+            + "LIMIT :limit")
+    Flux<Product> searchRanked(String tsQuery, int limit);
+
+    /**
+     * Finds many products by ID in one round trip.
+     * The statement text does not depend on the number of IDs, so it is prepared once and reused.
+     *
+     * @param ids the product IDs
+     * @return a Flux of the products that exist, in no particular order
+     */
+    @Query("SELECT * FROM products WHERE id = ANY(CAST(:ids AS BIGINT[]))")
+    Flux<Product> findAllByIdIn(Long[] ids);
+
+    /**
+     * Finds one page of products using LIMIT/OFFSET in the database.
+     * Kept for clients that still send a page number; prefer the keyset queries below.
+     *
+     * @param limit the page size
+     * @param offset the number of rows to skip
+     * @return a Flux of products ordered by ID
+     */
+    @Query("SELECT * FROM products ORDER BY id LIMIT :limit OFFSET :offset")
+    Flux<Product> findPage(int limit, long offset);
+
+    /**
+     * Finds the first keyset page ordered by ID.
+     *
+     * @param limit the page size
+     * @return a Flux of products ordered by ID
+     */
+    @Query("SELECT * FROM products ORDER BY id LIMIT :limit")
+    Flux<Product> findFirstPageById(int limit);
+
+    /**
+     * Finds the keyset page that follows the given product ID.
+     *
+     * @param afterId the last ID of the previous page
+     * @param limit the page size
+     * @return a Flux of products ordered by ID
+     */
+    @Query("SELECT * FROM products WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Product> findPageAfterId(long afterId, int limit);
+
+    /**
+     * Finds the first keyset page ordered by price, then ID.
+     *
+     * @param limit the page size
+     * @return a Flux of products ordered by price and ID
+     */
+    @Query("SELECT * FROM products ORDER BY price, id LIMIT :limit")
+    Flux<Product> findFirstPageByPrice(int limit);
+
+    /**
+     * Finds the keyset page that follows the given (price, id) position.
+     *
+     * @param price the last price of the previous page
+     * @param afterId the last ID of the previous page
+     * @param limit the page size
+     * @return a Flux of products ordered by price and ID
+     */
+    @Query("SELECT * FROM products WHERE (price, id) > (:price, :afterId) ORDER BY price, id LIMIT :limit")
+    Flux<Product> findPageAfterPrice(double price, long afterId, int limit);
+
+    /**
+     * Finds the first keyset page ordered by name, then ID.
+     *
+     * @param limit the page size
+     * @return a Flux of products ordered by name and ID
+     */
+    @Query("SELECT * FROM products ORDER BY name, id LIMIT :limit")
+    Flux<Product> findFirstPageByName(int limit);
+
+    /**
+     * Finds the keyset page that follows the given (name, id) position.
+     *
+     * @param name the last name of the previous page
+     * @param afterId the last ID of the previous page
+     * @param limit the page size
+     * @return a Flux of products ordered by name and ID
+     */
+    @Query("SELECT * FROM products WHERE (name, id) > (:name, :afterId) ORDER BY name, id LIMIT :limit")
+    Flux<Product> findPageAfterName(String name, long afterId, int limit);
+
     /**
      * Reserves stock for a product by reducing the stock quantity.
      * Only updates if sufficient stock is available.
@@ -41,4 +136,106 @@ public interface ProductRepository extends ReactiveCrudRepository<Product, Long>
     @Modifying
     @Query("UPDATE products SET stock = stock - :quantity WHERE id = :id AND stock >= :quantity")
     Mono<Integer> reserveStock(Long id, int quantity);
+
+    /**
+     * Reserves stock for many products in one round trip.
+     * Each (id, quantity) pair is applied only if the product has enough stock;
+     * pairs that cannot be satisfied are left untouched and simply not returned.
+     *
+     * @param ids the product IDs (must be distinct)
+     * @param quantities the quantities to reserve, index-aligned with ids
+     * @return a Flux of the updated products with their new stock
+     */
+    @Query("UPDATE products p SET stock = p.stock - v.quantity "
+            + "FROM unnest(CAST(:ids AS BIGINT[]), CAST(:quantities AS INTEGER[])) AS v(id, quantity) "
+            + "WHERE p.id = v.id AND p.stock >= v.quantity "
+            + "RETURNING p.*")
+    Flux<Product> reserveStockBatch(Long[] ids, Integer[] quantities);
+
+    /**
+     * Locks the products whose stock no longer covers the net deltas the in-memory stock ledger is about
+     * to apply, e.g. because an admin set a lower stock while the deltas were pending.
+     * Call it in the transaction of applyStockDeltas.
+     *
+     * @param ids the product IDs (must be distinct)
+     * @param deltas the quantities sold, index-aligned with ids
+     * @return a Flux of the IDs of the products that are short of stock
+     */
+    @Query("SELECT p.id FROM products p "
+            + "JOIN unnest(CAST(:ids AS BIGINT[]), CAST(:deltas AS INTEGER[])) AS v(id, delta) ON v.id = p.id "
+            + "WHERE p.stock < v.delta "
+            + "FOR UPDATE OF p")
+    Flux<Long> findShortOfStock(Long[] ids, Integer[] deltas);
+
+    /**
+     * Applies net stock deltas that were already reserved by the in-memory stock ledger.
+     * The ledger's counters can be behind a stock written outside it, so stock is clamped at zero
+     * instead of going negative; findShortOfStock reports the products this clamps.
+     *
+     * @param ids the product IDs (must be distinct)
+     * @param deltas the quantities sold, index-aligned with ids
+     * @return a Flux of the updated products with their new stock
+     */
+    @Query("UPDATE products p SET stock = GREATEST(p.stock - v.delta, 0) "
+            + "FROM unnest(CAST(:ids AS BIGINT[]), CAST(:deltas AS INTEGER[])) AS v(id, delta) "
+            + "WHERE p.id = v.id "
+            + "RETURNING p.*")
+    Flux<Product> applyStockDeltas(Long[] ids, Integer[] deltas);
+
+    /**
+     * Inserts many products with one multi-row INSERT.
+     * The statement text does not depend on the batch size, so it is prepared once and reused.
+     * Postgres does not promise RETURNING rows in input order, so each input row draws its ID from the
+     * sequence up front and the inserted rows are joined back to their array position and sorted by it.
+     *
+     * @param names the product names
+     * @param descriptions the descriptions, index-aligned with names
+     * @param categories the categories, index-aligned with names
+     * @param prices the prices, index-aligned with names
+     * @param stocks the stock quantities, index-aligned with names
+     * @param imageUrls the image URLs, index-aligned with names
+     * @return a Flux of the inserted products, in input order
+     */
+    @Query("WITH input AS ("
+            + "SELECT nextval(pg_get_serial_sequence('products', 'id')) AS id, v.* "
+            + "FROM unnest(CAST(:names AS VARCHAR[]), CAST(:descriptions AS TEXT[]), "
+            + "CAST(:categories AS VARCHAR[]), CAST(:prices AS DOUBLE PRECISION[]), "
+            + "CAST(:stocks AS INTEGER[]), CAST(:imageUrls AS VARCHAR[])) "
+            + "WITH ORDINALITY AS v(name, description, category, price, stock, image_url, ordinal)), "
+            + "inserted AS ("
+            + "INSERT INTO products (id, name, description, category, price, stock, image_url) "
+            + "SELECT id, name, description, category, price, stock, image_url FROM input "
+            + "RETURNING *) "
+            + "SELECT inserted.* FROM inserted JOIN input ON input.id = inserted.id ORDER BY input.ordinal")
+    Flux<Product> insertAll(String[] names, String[] descriptions, String[] categories,
+                            Double[] prices, Integer[] stocks, String[] imageUrls);
+
+    /**
+     * Inserts a batch of new products in one round trip.
+     *
+     * @param products the products to insert (IDs are ignored)
+     * @return a Flux of the inserted products, in input order
+     */
+    default Flux<Product> insertAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return Flux.empty();
+        }
+        int n = products.size();
+        String[] names = new String[n];
+        String[] descriptions = new String[n];
+        String[] categories = new String[n];
+        Double[] prices = new Double[n];
+        Integer[] stocks = new Integer[n];
+        String[] imageUrls = new String[n];
+        for (int i = 0; i < n; i++) {
+            Product p = products.get(i);
+            names[i] = p.getName();
+            descriptions[i] = p.getDescription();
+            categories[i] = p.getCategory();
+            prices[i] = p.getPrice();
+            stocks[i] = p.getStock() != null ? p.getStock() : 0;
+            imageUrls[i] = p.getImageUrl();
+        }
+        return insertAll(names, descriptions, categories, prices, stocks, imageUrls);
+    }
 }
@@ -0,0 +1,49 @@
+package com.ecommerce.productservice.repo;
+
+import com.ecommerce.productservice.domain.StockLedgerCheckpoint;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository interface for the stock ledger checkpoints.
+ * The checkpoint only moves forward by compare-and-set, which makes a retried flush idempotent.
+ */
+@Repository
+public interface StockLedgerCheckpointRepository extends ReactiveCrudRepository<StockLedgerCheckpoint, String> {
+
+    /**
+     * Creates the checkpoint of an instance at sequence 0 unless it already exists.
+     *
+     * @param instanceId the instance ID
+     * @return a Mono of the number of inserted rows
+     */
+    @Modifying
+    @Query("INSERT INTO stock_ledger_checkpoint (instance_id, journal_seq) VALUES (:instanceId, 0) "
+            + "ON CONFLICT (instance_id) DO NOTHING")
+    Mono<Integer> createIfAbsent(String instanceId);
+
+    /**
+     * Finds the checkpoint of an instance.
+     *
+     * @param instanceId the instance ID
+     * @return a Mono of the last applied journal sequence number
+     */
+    @Query("SELECT journal_seq FROM stock_ledger_checkpoint WHERE instance_id = :instanceId")
+    Mono<Long> findJournalSeq(String instanceId);
+
+    /**
+     * Moves the checkpoint from one sequence number to another.
+     *
+     * @param instanceId the instance ID
+     * @param fromSeq the expected current sequence number
+     * @param toSeq the new sequence number
+     * @return a Mono of 1 if moved, 0 if the checkpoint was not at fromSeq
+     */
+    @Modifying
+    @Query("UPDATE stock_ledger_checkpoint SET journal_seq = :toSeq, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE instance_id = :instanceId AND journal_seq = :fromSeq")
+    Mono<Integer> advance(String instanceId, long fromSeq, long toSeq);
+}
@@ -1,19 +1,41 @@
 package com.ecommerce.productservice.service;
 
+import com.ecommerce.productservice.domain.ProcessedEvent;
+import com.ecommerce.productservice.dto.StockReservationResult;
 import com.ecommerce.productservice.event.ProductStockEvent;
-import com.ecommerce.productservice.repo.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Service for consuming Kafka messages related to product stock updates.
  * <p>
  * Business rules:
  * 1. Listens to payment-success-events topic
- * 2. Updates product stock on successful payments
+ * 2. Updates product stock on successful payments, a poll-sized batch at a time
  * 3. Handles stock reservation
+ * 4. Keeps the product cache coherent from product-stock-updated
+ * 5. Reserves through the in-memory StockLedger instead of the database when it is enabled
+ * 6. Publishes the processing time and size of every payment poll as "product.stock.batch.*"
+ * 7. Applies every payment event at most once, by event ID; events without one are identified by their
+ *    topic, partition and offset
  *
  * @author JackyChen
  * @since 2025-04-01
@@ -24,63 +46,227 @@ public class KafkaConsumerService {
             = org.slf4j.LoggerFactory.getLogger(KafkaConsumerService.class);
 
 
-    private final ProductRepository productRepository;
-    private final KafkaProducerService kafkaProducerService;
+    private final ProductService productService;
+    private final ProductCache productCache;
+    private final StockLedger stockLedger;
+    private final ProcessedEventIds processedEventIds;
+    private final Duration batchTimeout;
+    private final int keyParallelism;
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+
+    /** Attempts per shard beyond the first before the whole poll fails. */
+    static final int SHARD_RETRIES = 2;
 
     /**
      * Constructor for KafkaConsumerService.
      * <p>
      * Business rules:
-     * 1. Injects ProductRepository and KafkaProducerService
+     * 1. Injects ProductService, ProductCache and the optional StockLedger
      *
-     * @param productRepository the product repository
-     * @param kafkaProducerService the Kafka producer service
+     * @param productService the product service applying stock reservations
+     * @param productCache the in-process product cache
+     * @param stockLedger the in-memory stock ledger, available only when product.stock.ledger.enabled
+     * @param processedEventIds the recently applied payment event IDs
+     * @param batchTimeout the maximum time a payment batch may take before it is redelivered
+     * @param keyParallelism the number of product-ID shards of one poll reserved concurrently
+     * @param meterRegistry the registry the batch meters are bound to
      * @author JackyChen
      * @since 2025-04-01
      */
-    public KafkaConsumerService(ProductRepository productRepository, KafkaProducerService kafkaProducerService) {
-        this.productRepository = productRepository;
-        this.kafkaProducerService = kafkaProducerService;
+    public KafkaConsumerService(ProductService productService, ProductCache productCache,
+                                ObjectProvider<StockLedger> stockLedger, ProcessedEventIds processedEventIds,
+                                @Value("${product.stock.batch.timeout:30s}") Duration batchTimeout,
+                                @Value("${product.stock.consumer.key-parallelism:4}") int keyParallelism,
+                                MeterRegistry meterRegistry) {
+        this.productService = productService;
+        this.productCache = productCache;
+        this.stockLedger = stockLedger.getIfAvailable();
+        this.processedEventIds = processedEventIds;
+        this.batchTimeout = batchTimeout;
+        this.keyParallelism = Math.max(keyParallelism, 1);
+        this.batchTimer = Timer.builder("product.stock.batch.processing")
+                .description("Time to apply one poll of payment events")
+                .tag("mode", this.stockLedger != null ? "ledger" : "database")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("product.stock.batch.size")
+                .description("Payment events per poll")
+                .register(meterRegistry);
     }
 
     /**
-     * Handles payment success events from Kafka.
+     * Handles payment success events from Kafka, one poll at a time.
      * <p>
      * Business rules:
-     * 1. Reserves stock for the product
-     * 2. Logs errors if stock is insufficient
+     * 1. Reserves stock for the whole batch via ProductService.reserveStockBatch (one UPDATE round trip),
+     *    or in memory via StockLedger.reserveBatch when the ledger is enabled
+     * 2. Without the ledger the poll is split by product ID into key-parallelism shards reserved concurrently,
+     *    each in its own transaction; all events of a product share a shard and keep their order
+     * 3. Blocks the consumer thread until the batch is applied (or journaled and synced),
+     *    so offsets are committed only afterwards
+     * 4. Logs every event whose reservation failed
+     * 5. A failing shard is retried on its own; if it keeps failing the listener fails and the whole poll
+     *    is redelivered. Shards that had already committed claimed their event IDs in processed_events,
+     *    so on redelivery they are skipped as duplicates. Failed results are business outcomes only
+     *    (not enough stock, unknown product), never infrastructure errors
+     * 6. Events applied recently by this instance, or repeated within the poll, are dropped up front;
+     *    processed_events catches the remaining duplicates, in the reservation's transaction on the database
+     *    path and in the journal flush's transaction on the ledger path
+     * 7. An event without an ID gets "topic-partition-offset", so a redelivery of the same record is still
+     *    recognised; an ID longer than processed_events.event_id allows fails the event
      *
-     * @param event the ProductStockEvent
+     * @param events the ProductStockEvents of one poll (newStock is the quantity sold)
+     * @param topics the topic of each event
+     * @param partitions the partition of each event
+     * @param offsets the offset of each event
      * @author JackyChen
      * @since 2025-04-01
      */
     @KafkaListener(topics = "payment-success-events",
                     groupId = "product-service-group",
-                    containerFactory = "productStockEventKafkaListenerContainerFactory")
-    public void handlePaymentSuccess(ProductStockEvent event) {
-        // Assume "action" = "SOLD"
-        Long productId = event.getProductId();
-//        productRepository.findById(productId)
-//                .flatMap(product -> {
-//                    product.setStock(Math.max(0, product.getStock() - 1));
-//                    return productRepository.save(product)
-//                            .doOnSuccess(saved ->
-//                                    kafkaProducerService.sendStockUpdateEvent(saved.getId(), saved.getStock(), "UPDATE"));
-//                })
-//                .onErrorResume(e -> Mono.empty()) // prevent crash
-//                .subscribe();
-        productRepository.reserveStock(productId,event.getNewStock())
-                .flatMap(updatedRows -> {
-                    if (updatedRows <= 0) {
-                        log.error("Not enough stock for product ID {}", productId);
-                        return Mono.error(new IllegalStateException("Not enough stock"));
+                    containerFactory = "productStockEventBatchListenerContainerFactory",
+                    properties = "max.poll.records=${product.stock.batch.max-poll-records:500}")
+    public void handlePaymentSuccess(List<ProductStockEvent> events,
+                                     @Header(KafkaHeaders.RECEIVED_TOPIC) List<String> topics,
+                                     @Header(KafkaHeaders.RECEIVED_PARTITION) List<Integer> partitions,
+                                     @Header(KafkaHeaders.OFFSET) List<Long> offsets) {
+        Timer.Sample sample = Timer.start();
+        batchSize.record(events.size());
+        StockReservationResult[] results = new StockReservationResult[events.size()];
+        List<Integer> freshIndexes = new ArrayList<>(events.size());
+        List<ProductStockEvent> fresh = new ArrayList<>(events.size());
+        Set<String> freshIds = new LinkedHashSet<>();
+        for (int i = 0; i < events.size(); i++) {
+            ProductStockEvent event = events.get(i);
+            if (event != null && event.getEventId() == null) {
+                event.setEventId(recordEventId(topics.get(i), partitions.get(i), offsets.get(i)));
+            }
+            String eventId = event != null ? event.getEventId() : null;
+            if (eventId != null && eventId.length() > ProcessedEvent.MAX_EVENT_ID_LENGTH) {
+                results[i] = StockReservationResult.failed(event.getProductId(), event.getNewStock(),
+                        "Event ID is longer than " + ProcessedEvent.MAX_EVENT_ID_LENGTH + " characters");
+                continue;
+            }
+            if (eventId != null && (processedEventIds.contains(eventId) || !freshIds.add(eventId))) {
+                results[i] = StockReservationResult.duplicate(event.getProductId(), event.getNewStock());
+                continue;
+            }
+            freshIndexes.add(i);
+            fresh.add(event);
+        }
+        if (!fresh.isEmpty()) {
+            Mono<List<StockReservationResult>> reservation = stockLedger != null
+                    ? stockLedger.reserveBatch(fresh)
+                    : reserveInShards(fresh);
+            List<StockReservationResult> freshResults = reservation.block(batchTimeout);
+            if (stockLedger != null) {
+                // group commit: one fsync for the whole poll
+                stockLedger.sync();
+            }
+            List<String> appliedIds = new ArrayList<>(fresh.size());
+            if (freshResults != null) {
+                for (int j = 0; j < freshIndexes.size(); j++) {
+                    StockReservationResult result = freshResults.get(j);
+                    results[freshIndexes.get(j)] = result;
+                    // only committed (or journaled) reservations; a rejected event may be retried with its ID
+                    if (result != null && result.isReserved() && fresh.get(j).getEventId() != null) {
+                        appliedIds.add(fresh.get(j).getEventId());
                     }
-                    return Mono.empty();
-                }).onErrorResume(e -> {
-                    log.error("Error updating stock for product ID {}: {}", productId, e.getMessage());
-                    return Mono.empty();
-                }); // prevent crash;
+                }
+            }
+            processedEventIds.addAll(appliedIds);
+        }
+        sample.stop(batchTimer);
+        int reserved = 0;
+        int duplicates = 0;
+        for (StockReservationResult result : results) {
+            if (result == null) {
+                continue;
+            }
+            if (result.isReserved()) {
+                reserved++;
+            } else if (result.isDuplicate()) {
+                duplicates++;
+            } else {
+                log.error("Error updating stock for product ID {}: {}", result.getProductId(), result.getReason());
+            }
+        }
+        if (duplicates > 0) {
+            processedEventIds.recordDuplicates(duplicates);
+            log.info("Skipped {} payment events that were already applied", duplicates);
+        }
+        log.debug("Applied payment batch: {} of {} reservations succeeded", reserved, results.length);
+    }
+
+    /**
+     * Identifies a payment event by the record that carried it, for producers that do not assign IDs.
+     */
+    static String recordEventId(String topic, int partition, long offset) {
+        return topic + "-" + partition + "-" + offset;
+    }
+
+    /**
+     * Splits a poll by product ID and reserves the shards concurrently, one transaction each.
+     * Shards hold disjoint products, so they never wait on each other's row locks. A shard that still fails
+     * after its retries fails the poll; the shards that committed are duplicates when it is redelivered.
+     */
+    Mono<List<StockReservationResult>> reserveInShards(List<ProductStockEvent> events) {
+        List<List<Integer>> shards = shardByProduct(events, keyParallelism);
+        if (shards.size() <= 1) {
+            return productService.reserveStockBatch(events);
+        }
+        StockReservationResult[] results = new StockReservationResult[events.size()];
+        return Flux.fromIterable(shards)
+                .flatMap(indexes -> productService.reserveStockBatch(indexes.stream().map(events::get).toList())
+                        .retryWhen(Retry.backoff(SHARD_RETRIES, Duration.ofMillis(50)))
+                        .doOnNext(shardResults -> {
+                            for (int j = 0; j < indexes.size(); j++) {
+                                results[indexes.get(j)] = shardResults.get(j);
+                            }
+                        }), shards.size())
+                .then(Mono.fromSupplier(() -> Arrays.asList(results)));
+    }
 
+    /**
+     * Groups event indexes into at most {@code shards} non-empty shards by product ID, keeping arrival order
+     * inside each shard. Events without a product go to the first shard, where they are rejected.
+     */
+    static List<List<Integer>> shardByProduct(List<ProductStockEvent> events, int shards) {
+        List<List<Integer>> buckets = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < events.size(); i++) {
+            ProductStockEvent event = events.get(i);
+            Long productId = event != null ? event.getProductId() : null;
+            buckets.get(productId != null ? Math.floorMod(Long.hashCode(productId), shards) : 0).add(i);
+        }
+        buckets.removeIf(List::isEmpty);
+        return buckets;
+    }
+
+    /**
+     * Keeps the local product cache coherent with writes made by any replica.
+     * <p>
+     * Business rules:
+     * 1. Every instance uses its own consumer group so each replica sees every event
+     * 2. Only new events matter, so a fresh group starts at the latest offset
+     * 3. Stock written outside the ledger (UPDATE, DELETE) drops the product from the StockLedger
+     *
+     * @param event the ProductStockEvent published to product-stock-updated
+     * @author JackyChen
+     * @since 2025-04-01
+     */
+    @KafkaListener(topics = "product-stock-updated",
+                    groupId = "product-cache-#{T(java.util.UUID).randomUUID()}",
+                    properties = "auto.offset.reset=latest",
+                    containerFactory = "productStockEventKafkaListenerContainerFactory")
+    public void handleStockUpdated(ProductStockEvent event) {
+        productCache.onStockEvent(event);
+        if (stockLedger != null && event != null && !"SOLD".equals(event.getAction())) {
+            stockLedger.evict(event.getProductId());
+        }
     }
 
 //    @KafkaListener(topics = "test-topic",
@@ -1,16 +1,21 @@
 package com.ecommerce.productservice.service;
 
 
+import com.ecommerce.productservice.domain.ProductOutboxEvent;
 import com.ecommerce.productservice.event.ProductStockEvent;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service for producing Kafka messages related to product stock updates.
  * <p>
  * Business rules:
  * 1. Sends events to product-stock-updated topic
- * 2. Logs sent events
+ * 2. Application code does not call it directly: changes are written to the outbox
+ *    and published by StockEventOutboxRelay
  *
  * @author JackyChen
  * @since 2025-04-01
@@ -38,21 +43,25 @@ public class KafkaProducerService {
     }
 
     /**
-     * Sends a stock update event to Kafka.
+     * Publishes a batch of outbox rows to Kafka.
      * <p>
      * Business rules:
-     * 1. Creates ProductStockEvent and sends to topic
-     * 2. Logs the sent event
+     * 1. Each event is keyed by product ID, so events of one product stay on one partition in order
+     * 2. Sends are not awaited one by one; the producer packs them into compressed record batches
+     * 3. The returned future completes once every event of the batch is acknowledged
      *
-     * @param productId the product ID
-     * @param newStock the new stock quantity
-     * @param action the action type (CREATE, UPDATE, DELETE)
+     * @param rows the outbox rows in publish order
+     * @return a future completing when all events are acknowledged, or failing with the first error
      * @author JackyChen
      * @since 2025-04-01
      */
-    public void sendStockUpdateEvent(Long productId, int newStock, String action) {
-        ProductStockEvent event = new ProductStockEvent(productId, newStock, action);
-        kafkaTemplate.send(STOCK_TOPIC, String.valueOf(productId), event);
-        log.info("Sent stock update event to Kafka: {}", event);
+    public CompletableFuture<Void> publish(List<ProductOutboxEvent> rows) {
+        CompletableFuture<?>[] acks = new CompletableFuture<?>[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            ProductOutboxEvent row = rows.get(i);
+            acks[i] = kafkaTemplate.send(STOCK_TOPIC, String.valueOf(row.getProductId()), row.toEvent());
+        }
+        return CompletableFuture.allOf(acks)
+                .thenRun(() -> log.debug("Published {} outbox events to Kafka", rows.size()));
     }
 }
@@ -0,0 +1,109 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.repo.ProcessedEventRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Recently applied payment event IDs, the fast path of payment-event deduplication.
+ * <p>
+ * Business rules:
+ * 1. Holds the IDs applied by this instance for a short TTL and up to a maximum count, so a redelivery
+ *    after a rebalance or retry is dropped before it reaches the database
+ * 2. IDs are added only after their reservation committed (or was journaled), never before
+ * 3. The processed_events table is the durable record; rows older than the retention are purged periodically
+ * 4. Publishes "product.stock.events.duplicate" and the cache statistics as "processedEventIds"
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Component
+public class ProcessedEventIds {
+    private static final org.slf4j.Logger log
+            = org.slf4j.LoggerFactory.getLogger(ProcessedEventIds.class);
+
+    private final Cache<String, Boolean> recent;
+    private final ProcessedEventRepository processedEventRepository;
+    private final Duration retention;
+    private final Counter duplicates;
+
+    /**
+     * Constructor for ProcessedEventIds.
+     *
+     * @param processedEventRepository the durable IDs of applied events
+     * @param maxSize the maximum number of IDs kept in memory
+     * @param ttl how long an ID is kept in memory
+     * @param retention how long an ID is kept in processed_events
+     * @param meterRegistry the registry the meters are bound to
+     */
+    public ProcessedEventIds(ProcessedEventRepository processedEventRepository,
+                             @Value("${product.stock.dedup.max-size:100000}") long maxSize,
+                             @Value("${product.stock.dedup.ttl:10m}") Duration ttl,
+                             @Value("${product.stock.dedup.retention:7d}") Duration retention,
+                             MeterRegistry meterRegistry) {
+        this.processedEventRepository = processedEventRepository;
+        this.retention = retention;
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recent, "processedEventIds");
+        this.duplicates = Counter.builder("product.stock.events.duplicate")
+                .description("Payment events dropped because they were already applied")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tells whether this instance applied the event recently.
+     *
+     * @param eventId the event ID
+     * @return true if the ID is known
+     */
+    public boolean contains(String eventId) {
+        return recent.getIfPresent(eventId) != null;
+    }
+
+    /**
+     * Remembers applied event IDs.
+     *
+     * @param eventIds the IDs whose reservation committed
+     */
+    public void addAll(Collection<String> eventIds) {
+        eventIds.forEach(id -> recent.put(id, Boolean.TRUE));
+    }
+
+    /**
+     * Counts dropped duplicates.
+     *
+     * @param count the number of duplicates
+     */
+    public void recordDuplicates(int count) {
+        duplicates.increment(count);
+    }
+
+    /**
+     * Deletes processed_events rows older than the retention.
+     */
+    @Scheduled(fixedDelayString = "${product.stock.dedup.purge-interval-ms:3600000}")
+    public void purge() {
+        try {
+            Integer deleted = processedEventRepository.purgeOlderThan(retention.toSeconds())
+                    .block(Duration.ofMinutes(1));
+            if (deleted != null && deleted > 0) {
+                log.info("Purged {} processed event IDs older than {}", deleted, retention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Purging processed event IDs failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.dto.ProductBrowseResult;
+import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.util.PageCursor;
+import com.ecommerce.productservice.util.ReadRouting;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Service backing the storefront category pages: filtered, sorted product pages with facet counts.
+ * <p>
+ * Business rules:
+ * 1. Filters by exact category, price range and (optionally) in-stock only
+ * 2. Sorts by price (ascending) or newest (highest ID first) with keyset cursors
+ * 3. Computes category and price-bucket facets in the same statement as the page, one round trip
+ * 4. Each facet ignores its own filter, so the client can offer the other categories / price ranges
+ * 5. Filtering, ordering and counting are served by the covering indexes of V6
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Service
+public class ProductBrowseService {
+
+    /** Upper bound for a single browse page. */
+    static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Supported browse orders.
+     */
+    public enum Sort {
+        PRICE, NEWEST;
+
+        /**
+         * Parses a sort order from a request parameter, defaulting to PRICE.
+         *
+         * @param value the raw request value (may be null)
+         * @return the sort order
+         */
+        public static Sort from(String value) {
+            if (value == null || value.isBlank()) {
+                return PRICE;
+            }
+            try {
+                return Sort.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported sort: " + value);
+            }
+        }
+    }
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final Double[] priceBucketBounds;
+
+    /**
+     * Constructor for ProductBrowseService.
+     *
+     * @param databaseClient the R2DBC database client
+     * @param converter the converter mapping rows to Product
+     * @param priceBucketBounds the ascending lower bounds of the price facet buckets
+     */
+    ProductBrowseService(DatabaseClient databaseClient, R2dbcConverter converter,
+                         @Value("${product.browse.price-buckets:0,25,50,100,250,500,1000}") double[] priceBucketBounds) {
+        this.databaseClient = databaseClient;
+        this.converter = converter;
+        double[] sorted = priceBucketBounds.clone();
+        Arrays.sort(sorted);
+        this.priceBucketBounds = Arrays.stream(sorted).boxed().toArray(Double[]::new);
+    }
+
+    /**
+     * Browses one page of products with facets.
+     *
+     * @param category the exact category (optional)
+     * @param minPrice the inclusive minimum price (optional)
+     * @param maxPrice the inclusive maximum price (optional)
+     * @param inStockOnly whether to skip products without stock
+     * @param sort the sort order: price or newest (optional)
+     * @param after the opaque cursor of the previous page (optional)
+     * @param size the page size
+     * @return a Mono of ProductBrowseResult
+     */
+    public Mono<ProductBrowseResult> browse(String category, Double minPrice, Double maxPrice, boolean inStockOnly,
+                                            String sort, String after, int size) {
+        Sort order;
+        PageCursor cursor;
+        try {
+            order = Sort.from(sort);
+            PageCursor.SortKey cursorKey = order == Sort.PRICE ? PageCursor.SortKey.PRICE : PageCursor.SortKey.ID;
+            cursor = after != null && !after.isBlank() ? PageCursor.decode(after, cursorKey) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        String categoryFilter = category != null && !category.isBlank() ? category.trim() : null;
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql(order, categoryFilter != null))
+                .bind("minPrice", minPrice != null ? minPrice : Double.NEGATIVE_INFINITY)
+                .bind("maxPrice", maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY)
+                .bind("minStock", inStockOnly ? 1 : 0)
+                .bind("bounds", priceBucketBounds)
+                .bind("limit", limit);
+        if (categoryFilter != null) {
+            spec = spec.bind("category", categoryFilter);
+        }
+        if (order == Sort.PRICE) {
+            spec = spec.bind("afterPrice", cursor != null ? parsePrice(cursor.getSortValue()) : Double.NEGATIVE_INFINITY)
+                    .bind("afterId", cursor != null ? cursor.getLastId() : 0L);
+        } else {
+            spec = spec.bind("afterId", cursor != null ? cursor.getLastId() : Long.MAX_VALUE);
+        }
+
+        Collector collector = new Collector();
+        return spec.map((row, metadata) -> collector.add(row, metadata))
+                .all()
+                .then(Mono.fromSupplier(() -> collector.toResult(order, limit)))
+                .contextWrite(ReadRouting::preferReplica);
+    }
+
+    /**
+     * Builds the browse statement. Only the presence of the category filter and the sort change the text,
+     * so there are four prepared statements in total.
+     */
+    static String sql(Sort order, boolean byCategory) {
+        String categoryCondition = byCategory ? "category = :category AND " : "";
+        String orderBy = order == Sort.PRICE ? "ORDER BY price, id" : "ORDER BY id DESC";
+        String pageCondition = order == Sort.PRICE ? "(price, id) > (:afterPrice, :afterId)" : "id < :afterId";
+        return "WITH page AS ("
+                + "SELECT id, row_number() OVER (" + orderBy + ") AS ord FROM ("
+                + "SELECT id, price FROM products WHERE " + categoryCondition
+                + "price BETWEEN :minPrice AND :maxPrice AND stock >= :minStock AND " + pageCondition
+                + " " + orderBy + " LIMIT :limit) ids), "
+                + "category_facets AS ("
+                + "SELECT category, count(*) AS n FROM products "
+                + "WHERE price BETWEEN :minPrice AND :maxPrice AND stock >= :minStock GROUP BY category), "
+                + "price_facets AS ("
+                + "SELECT width_bucket(price, CAST(:bounds AS DOUBLE PRECISION[])) AS bucket, count(*) AS n "
+                + "FROM products WHERE " + categoryCondition + "stock >= :minStock GROUP BY 1) "
+                + "SELECT 'item' AS kind, page.ord, p.id, p.name, p.description, p.category, p.price, p.stock, "
+                + "p.image_url, NULL::INTEGER AS bucket, NULL::BIGINT AS n "
+                + "FROM page JOIN products p ON p.id = page.id "
+                + "UNION ALL "
+                + "SELECT 'category', NULL, NULL, NULL, NULL, category, NULL, NULL, NULL, NULL, n FROM category_facets "
+                + "UNION ALL "
+                + "SELECT 'price', NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, bucket, n FROM price_facets";
+    }
+
+    private static double parsePrice(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+
+    /**
+     * Sorts the mixed rows of one browse statement into page items and facets.
+     */
+    private final class Collector {
+        private final TreeMap<Long, Product> items = new TreeMap<>();
+        private final List<ProductBrowseResult.CategoryCount> categories = new ArrayList<>();
+        private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+
+        private String add(Row row, RowMetadata metadata) {
+            String kind = row.get("kind", String.class);
+            switch (kind) {
+                case "item" -> items.put(row.get("ord", Long.class), converter.read(Product.class, row, metadata));
+                case "category" -> categories.add(new ProductBrowseResult.CategoryCount(
+                        row.get("category", String.class), row.get("n", Long.class)));
+                default -> buckets.put(row.get("bucket", Integer.class), row.get("n", Long.class));
+            }
+            return kind;
+        }
+
+        private ProductBrowseResult toResult(Sort order, int limit) {
+            List<ProductDto> page = items.values().stream().map(ProductDto::fromEntity).toList();
+            String next = null;
+            if (page.size() == limit) {
+                ProductDto last = page.get(page.size() - 1);
+                next = order == Sort.PRICE
+                        ? new PageCursor(PageCursor.SortKey.PRICE, String.valueOf(last.getPrice()), last.getId()).encode()
+                        : new PageCursor(PageCursor.SortKey.ID, null, last.getId()).encode();
+            }
+            categories.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+            return new ProductBrowseResult(page, next, categories, priceBuckets(buckets));
+        }
+    }
+
+    /**
+     * Turns width_bucket numbers into labelled ranges: bucket 0 is below the first bound,
+     * bucket i is [bounds[i-1], bounds[i]), the last one is open-ended.
+     */
+    List<ProductBrowseResult.PriceBucket> priceBuckets(TreeMap<Integer, Long> counts) {
+        List<ProductBrowseResult.PriceBucket> result = new ArrayList<>(counts.size());
+        counts.forEach((bucket, count) -> result.add(new ProductBrowseResult.PriceBucket(
+                bucket > 0 ? priceBucketBounds[bucket - 1] : null,
+                bucket < priceBucketBounds.length ? priceBucketBounds[bucket] : null,
+                count)));
+        return result;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.event.ProductStockEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-process read-through cache of ProductDto keyed by product ID.
+ * <p>
+ * Business rules:
+ * 1. Bounded by entry count and evicted after a TTL, so stale entries cannot live forever
+ * 2. Kept coherent across replicas by the product-stock-updated events every replica consumes
+ * 3. Publishes hit, miss and eviction counters to the Micrometer registry as "productCache"
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Component
+public class ProductCache {
+
+    static final String CACHE_NAME = "productCache";
+
+    private final Cache<Long, ProductDto> cache;
+
+    /**
+     * Constructor for ProductCache.
+     *
+     * @param maxSize the maximum number of cached products
+     * @param ttl how long an entry may be served after it was loaded
+     * @param meterRegistry the registry the cache statistics are bound to
+     */
+    public ProductCache(@Value("${product.cache.max-size:10000}") long maxSize,
+                        @Value("${product.cache.ttl:5m}") Duration ttl,
+                        MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the cached product, or null on a miss.
+     *
+     * @param id the product ID
+     * @return the cached ProductDto or null
+     */
+    public ProductDto get(Long id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * Caches a product loaded from the database.
+     *
+     * @param dto the product to cache
+     */
+    public void put(ProductDto dto) {
+        if (dto != null && dto.getId() != null) {
+            cache.put(dto.getId(), dto);
+        }
+    }
+
+    /**
+     * Removes a product from the cache.
+     *
+     * @param id the product ID
+     */
+    public void invalidate(Long id) {
+        if (id != null) {
+            cache.invalidate(id);
+        }
+    }
+
+    /**
+     * Applies a product-stock-updated event.
+     * <p>
+     * Business rules:
+     * 1. Every action evicts the entry; the next read loads the row, so stock, updatedAt and with them
+     *    the ETag and Last-Modified all come from the database
+     * 2. The event does not carry the row's updated_at, so the entry is not patched in place
+     *
+     * @param event the stock event
+     */
+    public void onStockEvent(ProductStockEvent event) {
+        if (event != null) {
+            invalidate(event.getProductId());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.customexception.ValidationException;
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.dto.BulkImportResult;
+import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.repo.ProductOutboxRepository;
+import com.ecommerce.productservice.repo.ProductRepository;
+import com.ecommerce.productservice.util.ProductCsvParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service for bulk product ingestion from supplier feeds.
+ * <p>
+ * Business rules:
+ * 1. Rows are validated one by one as they stream in; invalid rows are rejected individually
+ * 2. Valid rows are written in multi-row INSERT batches of configurable size, one batch in flight at a time
+ * 3. Each batch and its CREATE stock events are written to products and the outbox in one transaction
+ * 4. A per-row result is streamed back in input order
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Service
+public class ProductImportService {
+
+    private final ProductRepository productRepository;
+    private final ProductOutboxRepository outboxRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final int batchSize;
+
+    /**
+     * Constructor for ProductImportService.
+     *
+     * @param productRepository the product repository
+     * @param outboxRepository the stock event outbox
+     * @param transactionalOperator the reactive transaction operator, one transaction per batch
+     * @param batchSize the number of rows per INSERT statement
+     */
+    ProductImportService(ProductRepository productRepository, ProductOutboxRepository outboxRepository,
+                         TransactionalOperator transactionalOperator,
+                         @Value("${product.import.batch-size:1000}") int batchSize) {
+        this.productRepository = productRepository;
+        this.outboxRepository = outboxRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * Imports a stream of products (e.g. decoded from NDJSON).
+     *
+     * @param products the products to import
+     * @return a Flux of per-row results
+     */
+    public Flux<BulkImportResult> importProducts(Flux<ProductDto> products) {
+        return importRows(products.map(ImportRow::parsed));
+    }
+
+    /**
+     * Imports a stream of CSV lines whose first non-blank line is the header.
+     *
+     * @param lines the CSV lines
+     * @return a Flux of per-row results
+     */
+    public Flux<BulkImportResult> importCsv(Flux<String> lines) {
+        return lines.filter(line -> !line.isBlank())
+                .switchOnFirst((header, all) -> {
+                    if (!header.hasValue()) {
+                        return Flux.empty();
+                    }
+                    ProductCsvParser parser;
+                    try {
+                        parser = ProductCsvParser.fromHeader(header.get());
+                    } catch (IllegalArgumentException e) {
+                        return Flux.error(new ValidationException(e.getMessage()));
+                    }
+                    return importRows(all.skip(1).map(line -> {
+                        try {
+                            return ImportRow.parsed(parser.parse(line));
+                        } catch (IllegalArgumentException e) {
+                            return ImportRow.unparseable(e.getMessage());
+                        }
+                    }));
+                });
+    }
+
+    private Flux<BulkImportResult> importRows(Flux<ImportRow> rows) {
+        return rows.index()
+                .map(indexed -> validate(indexed.getT1() + 1, indexed.getT2()))
+                .buffer(batchSize)
+                .concatMap(this::writeBatch);
+    }
+
+    private Flux<BulkImportResult> writeBatch(List<PendingRow> batch) {
+        List<Product> valid = batch.stream()
+                .filter(row -> row.error == null)
+                .map(row -> row.product)
+                .toList();
+        Mono<List<Product>> inserted = valid.isEmpty()
+                ? Mono.just(List.of())
+                : transactionalOperator.transactional(productRepository.insertAll(valid).collectList()
+                        .flatMap(saved -> outboxRepository.appendAll(saved, "CREATE").thenReturn(saved)));
+
+        return inserted
+                .map(saved -> {
+                    List<BulkImportResult> results = new ArrayList<>(batch.size());
+                    int next = 0;
+                    for (PendingRow row : batch) {
+                        if (row.error != null) {
+                            results.add(new BulkImportResult(row.row, BulkImportResult.Status.REJECTED, null, row.error));
+                        } else if (next < saved.size()) {
+                            results.add(new BulkImportResult(row.row, BulkImportResult.Status.CREATED,
+                                    saved.get(next++).getId(), null));
+                        } else {
+                            results.add(new BulkImportResult(row.row, BulkImportResult.Status.FAILED, null,
+                                    "Row was not returned by the database"));
+                        }
+                    }
+                    return results;
+                })
+                .onErrorResume(e -> Mono.just(batch.stream()
+                        .map(row -> row.error != null
+                                ? new BulkImportResult(row.row, BulkImportResult.Status.REJECTED, null, row.error)
+                                : new BulkImportResult(row.row, BulkImportResult.Status.FAILED, null,
+                                        "Batch insert failed: " + e.getMessage()))
+                        .toList()))
+                .flatMapIterable(results -> results);
+    }
+
+    private static PendingRow validate(long rowNumber, ImportRow row) {
+        if (row.error != null) {
+            return new PendingRow(rowNumber, null, row.error);
+        }
+        ProductDto dto = row.dto;
+        String error = null;
+        if (dto == null) {
+            error = "Empty row";
+        } else if (dto.getName() == null || dto.getName().isBlank()) {
+            error = "Product name is required";
+        } else if (dto.getName().length() > 255) {
+            error = "Product name is longer than 255 characters";
+        } else if (dto.getPrice() == null || dto.getPrice() < 0 || dto.getPrice().isNaN()) {
+            error = "Product price is required and must not be negative";
+        } else if (dto.getStock() != null && dto.getStock() < 0) {
+            error = "Product stock must not be negative";
+        } else if (dto.getCategory() != null && dto.getCategory().length() > 100) {
+            error = "Product category is longer than 100 characters";
+        } else if (dto.getImageUrl() != null && dto.getImageUrl().length() > 255) {
+            error = "Product image URL is longer than 255 characters";
+        }
+        if (error != null) {
+            return new PendingRow(rowNumber, null, error);
+        }
+        Product product = new Product(null, dto.getName(), dto.getDescription(), dto.getCategory(),
+                dto.getPrice(), dto.getStock() != null ? dto.getStock() : 0, dto.getImageUrl());
+        return new PendingRow(rowNumber, product, null);
+    }
+
+    /** A decoded input row, or the reason it could not be decoded. */
+    private static final class ImportRow {
+        private final ProductDto dto;
+        private final String error;
+
+        private ImportRow(ProductDto dto, String error) {
+            this.dto = dto;
+            this.error = error;
+        }
+
+        static ImportRow parsed(ProductDto dto) {
+            return new ImportRow(dto, null);
+        }
+
+        static ImportRow unparseable(String error) {
+            return new ImportRow(null, error);
+        }
+    }
+
+    /** A validated row waiting for its batch to be written. */
+    private static final class PendingRow {
+        private final long row;
+        private final Product product;
+        private final String error;
+
+        private PendingRow(long row, Product product, String error) {
+            this.row = row;
+            this.product = product;
+            this.error = error;
+        }
+    }
+}
@@ -2,70 +2,288 @@ package com.ecommerce.productservice.service;
 
 import com.ecommerce.productservice.customexception.*;
 import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.dto.ProductBatch;
 import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.dto.ProductPage;
+import com.ecommerce.productservice.dto.StockReservationResult;
+import com.ecommerce.productservice.event.ProductStockEvent;
+import com.ecommerce.productservice.repo.ProcessedEventRepository;
+import com.ecommerce.productservice.repo.ProductOutboxRepository;
 import com.ecommerce.productservice.repo.ProductRepository;
-import com.ecommerce.productservice.service.KafkaProducerService;
-import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import com.ecommerce.productservice.util.AdaptiveConcurrencyLimiter;
+import com.ecommerce.productservice.util.InFlightRequests;
+import com.ecommerce.productservice.util.PageCursor;
+import com.ecommerce.productservice.util.ReadRouting;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
 /**
  * Service class for managing products.
  * Provides business logic for product operations including CRUD, search, and stock management.
+ * Every stock change is recorded in the outbox within the same transaction; StockEventOutboxRelay publishes it.
  */
 @Service
 public class ProductService {
 
+    /** Upper bound for a single listing page. */
+    static final int MAX_PAGE_SIZE = 100;
+    /** Upper bound for search results. */
+    static final int MAX_SEARCH_RESULTS = 100;
+    /** Words beyond this are ignored to keep tsqueries cheap. */
+    static final int MAX_SEARCH_TERMS = 8;
+    /** Upper bound for the IDs of one multi-get. */
+    static final int MAX_BATCH_IDS = 100;
+
     private final ProductRepository productRepository;
-    private final KafkaProducerService kafkaProducerService;
+    private final ProductOutboxRepository outboxRepository;
+    private final ProductCache productCache;
+    private final InFlightRequests<Long, ProductDto> productByIdRequests;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ProcessedEventRepository processedEventRepository;
 
     /**
      * Constructor for ProductService.
      *
      * @param productRepository the product repository
-     * @param kafkaProducerService the Kafka producer service
+     * @param outboxRepository the stock event outbox
+     * @param productCache the in-process product cache
+     * @param productByIdRequests the single-flight registry coalescing concurrent getById misses
+     * @param concurrencyLimiter the adaptive limiter guarding database reads and writes of getById and create
+     * @param processedEventRepository the IDs of payment events already applied
      */
-    ProductService (ProductRepository productRepository, KafkaProducerService kafkaProducerService) {
+    ProductService (ProductRepository productRepository, ProductOutboxRepository outboxRepository,
+                    ProductCache productCache, InFlightRequests<Long, ProductDto> productByIdRequests,
+                    AdaptiveConcurrencyLimiter concurrencyLimiter, ProcessedEventRepository processedEventRepository) {
         this.productRepository = productRepository;
-        this.kafkaProducerService = kafkaProducerService;
+        this.outboxRepository = outboxRepository;
+        this.productCache = productCache;
+        this.productByIdRequests = productByIdRequests;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.processedEventRepository = processedEventRepository;
     }
 
     /**
-     * Retrieves all products with pagination.
+     * Retrieves all products with offset pagination.
+     * The offset is applied by the database; deep pages still cost O(offset), use {@link #getPage} instead.
      *
      * @param page the page number (0-based)
      * @param size the page size
      * @return a Flux of ProductDto
      */
     public Flux<ProductDto> getAll(int page, int size) {
-        int skip =  page * size;
-        return productRepository.findAll()
-                .skip(skip)
-                .take(size)
-                .map(ProductDto::fromEntity);
+        int limit = clampPageSize(size);
+        return productRepository.findPage(limit, (long) Math.max(page, 0) * limit)
+                .map(ProductDto::fromEntity)
+                .contextWrite(ReadRouting::preferReplica);
+    }
+
+    /**
+     * Retrieves one keyset page of products.
+     * <p>
+     * Business rules:
+     * 1. The first page is requested without a cursor
+     * 2. Each page is a single "WHERE (key, id) > (?, ?) ORDER BY key, id LIMIT ?" query,
+     *    so page 10,000 costs the same as page 0
+     * 3. The next cursor is only issued when the page is full
+     *
+     * @param after the opaque cursor of the previous page (optional)
+     * @param sort the sort key: id, price or name (optional, defaults to id)
+     * @param size the page size
+     * @return a Mono of ProductPage
+     */
+    public Mono<ProductPage> getPage(String after, String sort, int size) {
+        PageCursor.SortKey sortKey;
+        PageCursor cursor;
+        try {
+            sortKey = PageCursor.SortKey.from(sort);
+            cursor = after != null && !after.isBlank() ? PageCursor.decode(after, sortKey) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        int limit = clampPageSize(size);
+
+        Flux<Product> rows = switch (sortKey) {
+            case ID -> cursor == null
+                    ? productRepository.findFirstPageById(limit)
+                    : productRepository.findPageAfterId(cursor.getLastId(), limit);
+            case PRICE -> cursor == null
+                    ? productRepository.findFirstPageByPrice(limit)
+                    : productRepository.findPageAfterPrice(parsePrice(cursor.getSortValue()), cursor.getLastId(), limit);
+            case NAME -> cursor == null
+                    ? productRepository.findFirstPageByName(limit)
+                    : productRepository.findPageAfterName(cursor.getSortValue(), cursor.getLastId(), limit);
+        };
+
+        return rows.collectList().map(products -> {
+            String next = null;
+            if (products.size() == limit) {
+                Product last = products.get(products.size() - 1);
+                String value = switch (sortKey) {
+                    case ID -> null;
+                    case PRICE -> String.valueOf(last.getPrice());
+                    case NAME -> last.getName();
+                };
+                next = new PageCursor(sortKey, value, last.getId()).encode();
+            }
+            return new ProductPage(products.stream().map(ProductDto::fromEntity).toList(), next);
+        }).contextWrite(ReadRouting::preferReplica);
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    private static double parsePrice(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
     }
 
     @CircuitBreaker(name = "productServiceCB", fallbackMethod = "fallbackGetProductById")
     @Retry(name = "productServiceCB")
     @RateLimiter(name = "productServiceCB")
-    @Bulkhead(name = "productServiceCB",type = Bulkhead.Type.THREADPOOL)
     public Mono<ProductDto> getById(Long id) {
-        return productRepository.findById(id).map(ProductDto::fromEntity);
+        return Mono.deferContextual(context -> {
+            ProductDto cached = productCache.get(id);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            Supplier<Mono<ProductDto>> load = () -> concurrencyLimiter.limit(productRepository.findById(id))
+                    .map(ProductDto::fromEntity)
+                    .doOnNext(productCache::put)
+                    .contextWrite(ReadRouting::preferReplica);
+            // a flight runs with its first caller's context, so it may read from a replica; a caller pinned
+            // to the primary after its own write must not join one, and loads on its own
+            if (ReadRouting.isPinnedToPrimary(context)) {
+                return load.get();
+            }
+            // concurrent misses for the same product share one query, which takes one permit
+            return productByIdRequests.execute(id, load);
+        });
     }
 
-    public Flux<ProductDto> search(String keyword) {
-        return productRepository.findByNameContainingIgnoreCase(keyword).map(ProductDto::fromEntity);
+    /**
+     * Retrieves many products by ID, e.g. all line items of a cart.
+     * <p>
+     * Business rules:
+     * 1. At most MAX_BATCH_IDS distinct IDs per call; duplicates are collapsed
+     * 2. Cached products are served from the cache, all others with one "WHERE id = ANY(?)" query
+     * 3. Products come back in request order; unknown IDs are reported, not treated as errors
+     *
+     * @param ids the product IDs
+     * @return a Mono of ProductBatch
+     */
+    public Mono<ProductBatch> getByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Mono.just(new ProductBatch(List.of(), List.of()));
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            return Mono.error(new IllegalArgumentException("Product IDs must not be null"));
+        }
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > MAX_BATCH_IDS) {
+            return Mono.error(new IllegalArgumentException(
+                    "At most " + MAX_BATCH_IDS + " product IDs can be requested at once"));
+        }
+
+        Map<Long, ProductDto> found = new HashMap<>();
+        List<Long> uncached = new ArrayList<>();
+        for (Long id : requested) {
+            ProductDto cached = productCache.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                uncached.add(id);
+            }
+        }
+        Mono<Map<Long, ProductDto>> loaded = uncached.isEmpty()
+                ? Mono.just(found)
+                : productRepository.findAllByIdIn(uncached.toArray(Long[]::new))
+                        .map(ProductDto::fromEntity)
+                        .doOnNext(productCache::put)
+                        .collect(() -> found, (map, dto) -> map.put(dto.getId(), dto))
+                        .contextWrite(ReadRouting::preferReplica);
+
+        return loaded.map(products -> {
+            List<ProductDto> items = new ArrayList<>(products.size());
+            List<Long> missing = new ArrayList<>();
+            for (Long id : requested) {
+                ProductDto dto = products.get(id);
+                if (dto != null) {
+                    items.add(dto);
+                } else {
+                    missing.add(id);
+                }
+            }
+            return new ProductBatch(items, missing);
+        });
+    }
+
+    /**
+     * Searches products by keyword over name, category and description.
+     * <p>
+     * Business rules:
+     * 1. Every word of the keyword must match (AND), each as a prefix ("gal" matches "Galaxy")
+     * 2. Results are ranked by relevance and capped at the given limit
+     * 3. A keyword without any searchable word returns no results
+     *
+     * @param keyword the search keyword
+     * @param limit the maximum number of results
+     * @return a Flux of ProductDto ordered by relevance
+     */
+    public Flux<ProductDto> search(String keyword, int limit) {
+        String tsQuery = toPrefixTsQuery(keyword);
+        if (tsQuery.isEmpty()) {
+            return Flux.empty();
+        }
+        return productRepository.searchRanked(tsQuery, Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS))
+                .map(ProductDto::fromEntity)
+                .contextWrite(ReadRouting::preferReplica);
+    }
+
+    /**
+     * Turns free text into a safe prefix tsquery: words are reduced to letters and digits,
+     * lower-cased and joined as "word1:* &amp; word2:*". Operators typed by the user are dropped.
+     */
+    static String toPrefixTsQuery(String keyword) {
+        if (keyword == null) {
+            return "";
+        }
+        return Arrays.stream(keyword.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .limit(MAX_SEARCH_TERMS)
+                .map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
     }
 
     @CircuitBreaker(name = "productServiceCB", fallbackMethod = "fallbackCreate")
     @Retry(name = "productServiceCB")
     @RateLimiter(name = "productServiceCB")
-    @Bulkhead(name = "productServiceCB",type = Bulkhead.Type.THREADPOOL)
+    @Transactional
     public Mono<ProductDto> create(ProductDto dto) {
         Product entity = new Product(dto.getId()
                 ,dto.getName()
@@ -74,43 +292,57 @@ public class ProductService {
                 ,dto.getPrice()
                 ,dto.getStock()
                 ,dto.getImageUrl());
+        entity.setUpdatedAt(writeTime());
 
         // Basic input validation
         if (entity.getName() == null || entity.getPrice() == null) {
             return Mono.error(new IllegalArgumentException("Product name and price are required"));
         }
 
-        return productRepository.save(entity)
-                .doOnSuccess(saved ->
-                        kafkaProducerService.sendStockUpdateEvent(saved.getId(), saved.getStock(), "CREATE"))
+        return concurrencyLimiter.limit(productRepository.save(entity)
+                        .flatMap(saved -> recordStockEvent(saved, "CREATE")))
                 .map(ProductDto::fromEntity)
                 .onErrorMap(DataIntegrityViolationException.class,
                         e -> new DuplicateProductException("A product with the same name or unique constraint already exists"))
                 .onErrorResume(IllegalArgumentException.class,
                         e -> Mono.error(new ValidationException(e.getMessage())))
-                .onErrorMap(e -> new ProductCreationException("Failed to save product", e));
+                .onErrorMap(e -> !(e instanceof ServiceUnavailableException),
+                        e -> new ProductCreationException("Failed to save product", e));
     }
 
 
+    @Transactional
     public Mono<Void> delete(Long id) {
         return productRepository.findById(id)
 
                 .flatMap(product -> productRepository.deleteById(id)
-                                            .doOnSuccess(v ->
-                                                    kafkaProducerService.sendStockUpdateEvent(product.getId(), 0, "DELETE")))
+                                            .then(outboxRepository.append(product.getId(), 0, "DELETE"))
+                                            .then()
+                                            .doOnSuccess(v -> productCache.invalidate(id)))
                 .switchIfEmpty(Mono.error(new ProductNotFoundException(id)));
     }
 
+    @Transactional
     public Mono<ProductDto> updateStock(Long id, int newStock) {
         return productRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ProductNotFoundException(id)))
                 .flatMap(existing -> {
                     existing.setStock(newStock);
+                    existing.setUpdatedAt(writeTime());
                     return productRepository.save(existing)
-                            .doOnSuccess(saved ->
-                                    kafkaProducerService.sendStockUpdateEvent(saved.getId(), saved.getStock(), "UPDATE"));
+                            .flatMap(saved -> recordStockEvent(saved, "UPDATE"));
                 })
-                .map(ProductDto::fromEntity);
+                .map(ProductDto::fromEntity)
+                .doOnSuccess(dto -> productCache.invalidate(id));
+    }
+
+    /**
+     * The updated_at written by this service, at the column's microsecond precision so the saved entity
+     * (and the ETag derived from it) matches what a later read returns. The database trigger moves the
+     * value forward if this clock is behind the row's current version.
+     */
+    private static LocalDateTime writeTime() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 
     public Mono<Void> reserveStock(Long productId, int quantity) {
@@ -122,6 +354,123 @@ public class ProductService {
                     return Mono.empty();
                 });
     }
+
+    /**
+     * Reserves stock for a batch of payment events with as few round trips as possible.
+     * <p>
+     * Business rules:
+     * 1. Quantities are merged per product and applied in one multi-row UPDATE
+     * 2. When a merged quantity cannot be satisfied, that product's events are retried one by one
+     *    in arrival order, so the earlier events can still succeed
+     * 3. Every applied reservation records a SOLD stock event with the resulting stock
+     * 4. Runs in one transaction, so the reservations and their outbox rows commit together
+     * 5. Returns exactly one result per input event, in input order
+     * 6. Event IDs are recorded in processed_events in the same transaction; an event whose ID is already
+     *    there (or repeated within the batch) is a duplicate and changes nothing. Events without an ID
+     *    are always applied
+     *
+     * @param events the payment events; newStock carries the quantity to reserve
+     * @return a Mono of the per-event results
+     */
+    @Transactional
+    public Mono<List<StockReservationResult>> reserveStockBatch(List<ProductStockEvent> events) {
+        StockReservationResult[] results = new StockReservationResult[events.size()];
+        Set<String> eventIds = new LinkedHashSet<>();
+        for (ProductStockEvent event : events) {
+            if (event != null && event.getEventId() != null) {
+                eventIds.add(event.getEventId());
+            }
+        }
+        if (eventIds.isEmpty()) {
+            return reserveClaimed(events, results);
+        }
+        return processedEventRepository.claim(eventIds.toArray(String[]::new))
+                .collect(HashSet<String>::new, Set::add)
+                .flatMap(claimed -> {
+                    for (int i = 0; i < events.size(); i++) {
+                        ProductStockEvent event = events.get(i);
+                        // remove() also turns a second occurrence within the batch into a duplicate
+                        if (event != null && event.getEventId() != null && !claimed.remove(event.getEventId())) {
+                            results[i] = StockReservationResult.duplicate(event.getProductId(), event.getNewStock());
+                        }
+                    }
+                    return reserveClaimed(events, results);
+                });
+    }
+
+    /**
+     * Reserves the events that have no result yet.
+     */
+    private Mono<List<StockReservationResult>> reserveClaimed(List<ProductStockEvent> events,
+                                                              StockReservationResult[] results) {
+        Map<Long, List<Integer>> eventIndexesByProduct = new LinkedHashMap<>();
+        Map<Long, Integer> mergedQuantities = new LinkedHashMap<>();
+        for (int i = 0; i < events.size(); i++) {
+            ProductStockEvent event = events.get(i);
+            if (results[i] != null) {
+                continue;
+            }
+            if (event == null || event.getProductId() == null
+                    || event.getNewStock() == null || event.getNewStock() <= 0) {
+                results[i] = StockReservationResult.failed(event != null ? event.getProductId() : null,
+                        event != null ? event.getNewStock() : null, "Invalid reservation event");
+                continue;
+            }
+            eventIndexesByProduct.computeIfAbsent(event.getProductId(), k -> new ArrayList<>()).add(i);
+            mergedQuantities.merge(event.getProductId(), event.getNewStock(), Integer::sum);
+        }
+        if (mergedQuantities.isEmpty()) {
+            return Mono.just(Arrays.asList(results));
+        }
+
+        return productRepository.reserveStockBatch(
+                        mergedQuantities.keySet().toArray(Long[]::new),
+                        mergedQuantities.values().toArray(Integer[]::new))
+                .collectMap(Product::getId)
+                .flatMapMany(updated -> {
+                    List<Long> unsatisfied = new ArrayList<>();
+                    eventIndexesByProduct.forEach((productId, indexes) -> {
+                        if (updated.containsKey(productId)) {
+                            indexes.forEach(i -> results[i] = StockReservationResult.reserved(
+                                    productId, events.get(i).getNewStock()));
+                        } else {
+                            unsatisfied.add(productId);
+                        }
+                    });
+                    return outboxRepository.appendAll(updated.values(), "SOLD")
+                            .thenMany(Flux.fromIterable(unsatisfied));
+                })
+                .concatMap(productId -> reserveIndividually(productId,
+                        eventIndexesByProduct.get(productId), events, results))
+                .then(Mono.fromSupplier(() -> Arrays.asList(results)));
+    }
+
+    private Mono<Void> reserveIndividually(Long productId, List<Integer> indexes,
+                                           List<ProductStockEvent> events, StockReservationResult[] results) {
+        if (indexes.size() == 1) {
+            // the merged attempt already was the individual attempt
+            int i = indexes.get(0);
+            results[i] = StockReservationResult.failed(productId, events.get(i).getNewStock(), "Not enough stock");
+            return Mono.empty();
+        }
+        return Flux.fromIterable(indexes)
+                .concatMap(i -> {
+                    Integer quantity = events.get(i).getNewStock();
+                    return productRepository.reserveStockBatch(new Long[]{productId}, new Integer[]{quantity})
+                            .next()
+                            .flatMap(product -> recordStockEvent(product, "SOLD"))
+                            .doOnNext(product -> results[i] = StockReservationResult.reserved(productId, quantity))
+                            .switchIfEmpty(Mono.fromRunnable(() -> results[i] =
+                                    StockReservationResult.failed(productId, quantity, "Not enough stock")));
+                })
+                .then();
+    }
+
+    private Mono<Product> recordStockEvent(Product product, String action) {
+        int stock = product.getStock() != null ? product.getStock() : 0;
+        return outboxRepository.append(product.getId(), stock, action).thenReturn(product);
+    }
+
     // Fallbacks (must have same return type)
     private Mono<ProductDto> fallbackGetProductById(Long id, Throwable t) {
         Product p = new Product(null,
@@ -134,6 +483,12 @@ public class ProductService {
         return Mono.just(ProductDto.fromEntity(p));
     }
 
+    // Limiter rejections must reach the caller as 503, not as a degraded product; resilience4j picks
+    // the fallback with the most specific exception type
+    private Mono<ProductDto> fallbackGetProductById(Long id, ServiceUnavailableException e) {
+        return Mono.error(e);
+    }
+
     private Mono<ProductDto> fallbackCreate(Product product, Throwable ex) {
         return Mono.error(new ServiceUnavailableException(
                 "ProductService temporarily unavailable: " + ex.getMessage()));
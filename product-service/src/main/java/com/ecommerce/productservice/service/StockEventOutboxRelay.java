@@ -0,0 +1,127 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.domain.ProductOutboxEvent;
+import com.ecommerce.productservice.repo.ProductOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Background relay publishing the product stock event outbox to Kafka.
+ * <p>
+ * Business rules:
+ * 1. Only one instance relays at a time, so events keep their order: a batch is claimed under a
+ *    transaction-scoped advisory lock, and nobody claims while the lease of a claimed batch is live
+ * 2. Claims the oldest rows in a short transaction, publishes them in one producer batch with no
+ *    transaction or connection held, and waits for all acks
+ * 3. Rows are deleted only after Kafka acknowledged them; a failed send releases the claim, and a crash
+ *    in between republishes them once the lease runs out (at-least-once, duplicates are rare)
+ * 4. Drains full batches back to back, then sleeps for the configured interval
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Service
+@ConditionalOnProperty(name = "product.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class StockEventOutboxRelay {
+    private static final org.slf4j.Logger log
+            = org.slf4j.LoggerFactory.getLogger(StockEventOutboxRelay.class);
+
+    /** Advisory lock key shared by all product-service instances. */
+    static final long RELAY_LOCK_KEY = 0x70726f645f6f7574L;
+
+    private final ProductOutboxRepository outboxRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final TransactionalOperator transactionalOperator;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration leaseTime;
+
+    /**
+     * Constructor for StockEventOutboxRelay.
+     *
+     * @param outboxRepository the outbox repository
+     * @param kafkaProducerService the Kafka producer service
+     * @param transactionalOperator the reactive transaction operator
+     * @param batchSize the maximum number of rows per relay batch
+     * @param sendTimeout how long to wait for Kafka to acknowledge a batch
+     */
+    StockEventOutboxRelay(ProductOutboxRepository outboxRepository, KafkaProducerService kafkaProducerService,
+                          TransactionalOperator transactionalOperator,
+                          @Value("${product.outbox.relay.batch-size:1000}") int batchSize,
+                          @Value("${product.outbox.relay.send-timeout:30s}") Duration sendTimeout) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaProducerService = kafkaProducerService;
+        this.transactionalOperator = transactionalOperator;
+        this.batchSize = Math.max(batchSize, 1);
+        this.sendTimeout = sendTimeout;
+        // outlives the send and the delete after it, so a slow but healthy relay keeps its claim
+        this.leaseTime = sendTimeout.multipliedBy(2);
+    }
+
+    /**
+     * Publishes pending outbox rows until the outbox is drained.
+     * Failures are logged and retried on the next run; the rows stay in the outbox.
+     */
+    @Scheduled(fixedDelayString = "${product.outbox.relay.interval-ms:200}")
+    public void relay() {
+        try {
+            Integer published;
+            do {
+                published = relayBatch().block(sendTimeout.multipliedBy(2));
+            } while (published != null && published == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, retrying on next run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claims, publishes and deletes one batch of outbox rows.
+     *
+     * @return a Mono of the number of rows published (0 when idle or another instance is relaying)
+     */
+    Mono<Integer> relayBatch() {
+        return claimBatch()
+                .flatMap(rows -> {
+                    Long[] ids = rows.stream().map(ProductOutboxEvent::getId).toArray(Long[]::new);
+                    return Mono.fromCallable(() -> kafkaProducerService.publish(rows))
+                            // send() may block on metadata, keep it off the database event loop
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .flatMap(Mono::fromFuture)
+                            .timeout(sendTimeout)
+                            // a single statement, so its own short transaction
+                            .then(Mono.defer(() -> outboxRepository.deleteAllByIds(ids)))
+                            .thenReturn(rows.size())
+                            .onErrorResume(e -> outboxRepository.releaseClaims(ids)
+                                    .onErrorResume(releaseError -> {
+                                        e.addSuppressed(releaseError);
+                                        return Mono.empty();
+                                    })
+                                    .then(Mono.error(e)));
+                })
+                .defaultIfEmpty(0);
+    }
+
+    /**
+     * Claims the oldest rows in a transaction that ends before anything is sent.
+     *
+     * @return a Mono of the claimed rows in publish order, empty if there is nothing to claim
+     */
+    private Mono<List<ProductOutboxEvent>> claimBatch() {
+        Mono<List<ProductOutboxEvent>> claim = outboxRepository.tryRelayLock(RELAY_LOCK_KEY)
+                .filter(Boolean::booleanValue)
+                .flatMap(locked -> outboxRepository.claimOldest(batchSize, leaseTime.toMillis())
+                        .sort(Comparator.comparing(ProductOutboxEvent::getId))
+                        .collectList())
+                .filter(rows -> !rows.isEmpty());
+        return transactionalOperator.transactional(claim);
+    }
+}
@@ -0,0 +1,413 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.domain.ProcessedEvent;
+import com.ecommerce.productservice.dto.StockReservationResult;
+import com.ecommerce.productservice.event.ProductStockEvent;
+import com.ecommerce.productservice.repo.ProcessedEventRepository;
+import com.ecommerce.productservice.repo.ProductOutboxRepository;
+import com.ecommerce.productservice.repo.ProductRepository;
+import com.ecommerce.productservice.repo.StockLedgerCheckpointRepository;
+import com.ecommerce.productservice.util.StockJournal;
+import com.ecommerce.productservice.util.StripedStockCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Optional in-memory stock engine for hot products, with write-behind to Postgres.
+ * <p>
+ * Business rules:
+ * 1. A product's available stock is loaded once from the database (minus deltas not yet flushed)
+ *    and then reserved with CAS on striped counters, without touching the products row
+ * 2. Every reservation is journaled; the payment consumer syncs the journal once per batch,
+ *    before its offsets are committed
+ * 3. Net deltas are flushed periodically with one UPDATE, their SOLD outbox events, the claim of their
+ *    payment event IDs in processed_events and the checkpoint advance, all in one transaction;
+ *    a retried flush is made idempotent by the checkpoint
+ * 4. Reservations whose event ID was already claimed (e.g. applied by another instance before a rebalance)
+ *    are left out of the flush, and their products' counters are reloaded from the database
+ * 5. On startup, journal records after the checkpoint are replayed into the database
+ * 6. Each product must be reserved by one instance only: payment-success-events must be keyed by
+ *    product ID, and all counters are flushed and dropped when partitions are revoked
+ * 7. Stock changes made outside the ledger (UPDATE/DELETE events) drop the product's counter,
+ *    so it is reloaded from the database on its next reservation
+ * 8. Until that event arrives the counter may still reserve against the old stock; the flush clamps
+ *    stock at zero instead of letting it go negative, counts the affected products as
+ *    "product.stock.ledger.shortfall" and reloads their counters
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+@Service
+@ConditionalOnProperty(name = "product.stock.ledger.enabled", havingValue = "true")
+public class StockLedger implements InitializingBean, DisposableBean {
+    private static final org.slf4j.Logger log
+            = org.slf4j.LoggerFactory.getLogger(StockLedger.class);
+
+    /** How often a load is retried when a flush commits while the products are read. */
+    private static final int MAX_LOAD_ATTEMPTS = 8;
+
+    private final ProductRepository productRepository;
+    private final ProductOutboxRepository outboxRepository;
+    private final ProcessedEventRepository processedEventRepository;
+    private final StockLedgerCheckpointRepository checkpointRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final MeterRegistry meterRegistry;
+    private final Counter shortfalls;
+    private final Path journalDirectory;
+    private final long segmentBytes;
+    private final int stripes;
+    private final String instanceId;
+    private final Duration flushTimeout;
+
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    /** Reservations share it; loading and dropping counters take it exclusively. */
+    private final ReentrantReadWriteLock countersLock = new ReentrantReadWriteLock();
+    private final Object flushLock = new Object();
+    private StockJournal journal;
+
+    /**
+     * Constructor for StockLedger.
+     *
+     * @param productRepository the product repository
+     * @param outboxRepository the outbox repository receiving SOLD events
+     * @param processedEventRepository the IDs of applied payment events
+     * @param checkpointRepository the checkpoint repository
+     * @param transactionalOperator the reactive transaction operator
+     * @param meterRegistry the registry the ledger gauges are bound to
+     * @param journalDirectory the directory of this instance's journal segments
+     * @param segmentBytes the size after which a new journal segment is started
+     * @param stripes the number of counter stripes per product (0 = number of cores)
+     * @param instanceId the ID under which this instance's checkpoint is stored
+     * @param flushTimeout the maximum time one flush may take
+     */
+    StockLedger(ProductRepository productRepository, ProductOutboxRepository outboxRepository,
+                ProcessedEventRepository processedEventRepository, StockLedgerCheckpointRepository checkpointRepository,
+                TransactionalOperator transactionalOperator, MeterRegistry meterRegistry,
+                @Value("${product.stock.ledger.journal-dir:data/stock-journal}") Path journalDirectory,
+                @Value("${product.stock.ledger.segment-bytes:67108864}") long segmentBytes,
+                @Value("${product.stock.ledger.stripes:0}") int stripes,
+                @Value("${product.stock.ledger.instance-id:product-service}") String instanceId,
+                @Value("${product.stock.ledger.flush-timeout:30s}") Duration flushTimeout) {
+        this.productRepository = productRepository;
+        this.outboxRepository = outboxRepository;
+        this.processedEventRepository = processedEventRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.meterRegistry = meterRegistry;
+        this.shortfalls = Counter.builder("product.stock.ledger.shortfall")
+                .description("Products whose flushed ledger deltas exceeded the stock in the database")
+                .register(meterRegistry);
+        this.journalDirectory = journalDirectory;
+        this.segmentBytes = segmentBytes;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.instanceId = instanceId;
+        this.flushTimeout = flushTimeout;
+    }
+
+    /**
+     * Replays journal records the database has not seen yet, then opens a new journal segment.
+     * Runs before the Kafka listeners start, so no reservation can race the replay.
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        long checkpoint = checkpointRepository.createIfAbsent(instanceId)
+                .then(checkpointRepository.findJournalSeq(instanceId))
+                .defaultIfEmpty(0L)
+                .block(flushTimeout);
+        StockJournal.Batch replay = StockJournal.replay(journalDirectory, checkpoint);
+        if (!replay.deltas().isEmpty()) {
+            log.info("Replaying {} unflushed stock journal entries ({} products)",
+                    replay.upToSeq() - replay.fromSeq(), replay.deltas().size());
+            writeBatch(replay).block(flushTimeout);
+        }
+        journal = new StockJournal(journalDirectory, segmentBytes, Math.max(checkpoint, replay.upToSeq()));
+        Gauge.builder("product.stock.ledger.products", counters, Map::size)
+                .description("Products whose stock is held by the in-memory ledger")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserves stock for a batch of payment events in memory.
+     * The caller must call sync() before it acknowledges the events.
+     *
+     * @param events the ProductStockEvents of one poll (newStock is the quantity sold)
+     * @return a Mono of one result per event, in event order
+     */
+    public Mono<List<StockReservationResult>> reserveBatch(List<ProductStockEvent> events) {
+        return reserve(events, new HashSet<>(), 2);
+    }
+
+    /**
+     * Makes all reservations journaled so far durable.
+     */
+    public void sync() {
+        journal.sync();
+    }
+
+    /**
+     * Drops a product's counter after its stock was changed outside the ledger.
+     *
+     * @param productId the product ID
+     */
+    public void evict(Long productId) {
+        countersLock.writeLock().lock();
+        try {
+            counters.remove(productId);
+        } finally {
+            countersLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every counter and writes all pending deltas, e.g. before partitions move to another instance.
+     */
+    public void evictAll() {
+        countersLock.writeLock().lock();
+        try {
+            counters.clear();
+        } finally {
+            countersLock.writeLock().unlock();
+        }
+        journal.sync();
+        flushNow();
+    }
+
+    /**
+     * Periodically writes pending deltas to the database.
+     * A failed flush is logged and retried with the same batch on the next run.
+     */
+    @Scheduled(fixedDelayString = "${product.stock.ledger.flush-interval-ms:100}")
+    public void flush() {
+        try {
+            flushNow();
+        } catch (RuntimeException e) {
+            log.warn("Stock ledger flush failed, retrying on next run: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        try {
+            flushNow();
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * Writes the next journal batch in one transaction.
+     */
+    void flushNow() {
+        synchronized (flushLock) {
+            StockJournal.Batch batch = journal.drain();
+            if (batch != null) {
+                Set<Long> stale = writeBatch(batch).block(flushTimeout);
+                journal.flushed(batch);
+                if (stale != null) {
+                    // their counters hold reservations the database never got
+                    stale.forEach(this::evict);
+                }
+            }
+        }
+    }
+
+    private Mono<List<StockReservationResult>> reserve(List<ProductStockEvent> events, Set<Long> notFound,
+                                                       int loads) {
+        return Mono.defer(() -> {
+            Set<Long> missing = new HashSet<>();
+            for (ProductStockEvent event : events) {
+                if (isValid(event) && !counters.containsKey(event.getProductId())
+                        && !notFound.contains(event.getProductId())) {
+                    missing.add(event.getProductId());
+                }
+            }
+            if (missing.isEmpty() || loads == 0) {
+                return Mono.just(reserveLoaded(events, notFound));
+            }
+            return load(missing)
+                    .doOnNext(loaded -> missing.stream().filter(id -> !loaded.contains(id)).forEach(notFound::add))
+                    .then(reserve(events, notFound, loads - 1));
+        });
+    }
+
+    private List<StockReservationResult> reserveLoaded(List<ProductStockEvent> events, Set<Long> notFound) {
+        StockReservationResult[] results = new StockReservationResult[events.size()];
+        long[] productIds = new long[events.size()];
+        int[] quantities = new int[events.size()];
+        String[] eventIds = new String[events.size()];
+        int reserved = 0;
+        countersLock.readLock().lock();
+        try {
+            for (int i = 0; i < events.size(); i++) {
+                ProductStockEvent event = events.get(i);
+                if (!isValid(event)) {
+                    results[i] = StockReservationResult.failed(event != null ? event.getProductId() : null,
+                            event != null ? event.getNewStock() : null, "Invalid reservation event");
+                    continue;
+                }
+                Long productId = event.getProductId();
+                int quantity = event.getNewStock();
+                StripedStockCounter counter = counters.get(productId);
+                if (counter == null) {
+                    results[i] = StockReservationResult.failed(productId, quantity,
+                            notFound.contains(productId) ? "Product not found" : "Product stock was reloading");
+                } else if (counter.tryReserve(quantity)) {
+                    results[i] = StockReservationResult.reserved(productId, quantity);
+                    productIds[reserved] = productId;
+                    quantities[reserved] = quantity;
+                    eventIds[reserved++] = event.getEventId();
+                } else {
+                    results[i] = StockReservationResult.failed(productId, quantity, "Not enough stock");
+                }
+            }
+            // journal while still holding the read lock, so a reload sees these as pending
+            journal.append(productIds, quantities, eventIds, reserved);
+        } finally {
+            countersLock.readLock().unlock();
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Loads counters for products, retrying while a flush commits in between.
+     *
+     * @return a Mono of the IDs that exist in the database
+     */
+    private Mono<Set<Long>> load(Set<Long> productIds) {
+        return Mono.defer(() -> {
+                    long flushedSeq = journal.flushedSeq();
+                    return productRepository.findAllById(productIds).collectList()
+                            .flatMap(products -> Mono.justOrEmpty(install(products, flushedSeq)));
+                })
+                .repeatWhenEmpty(MAX_LOAD_ATTEMPTS, repeats -> repeats)
+                .switchIfEmpty(Mono.error(new IllegalStateException(
+                        "Stock ledger could not load a consistent stock snapshot")));
+    }
+
+    private Set<Long> install(List<Product> products, long flushedSeq) {
+        countersLock.writeLock().lock();
+        try {
+            if (journal.flushedSeq() != flushedSeq) {
+                // a flush committed after the read, the rows may or may not include it
+                return null;
+            }
+            Set<Long> loaded = new HashSet<>();
+            for (Product product : products) {
+                int stock = product.getStock() != null ? product.getStock() : 0;
+                counters.computeIfAbsent(product.getId(), id ->
+                        new StripedStockCounter(stock - journal.pendingDelta(id), stripes));
+                loaded.add(product.getId());
+            }
+            return loaded;
+        } finally {
+            countersLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a batch in one transaction.
+     *
+     * @return a Mono of the products whose counters must be reloaded
+     */
+    private Mono<Set<Long>> writeBatch(StockJournal.Batch batch) {
+        Mono<Set<Long>> write = checkpointRepository.advance(instanceId, batch.fromSeq(), batch.upToSeq())
+                .flatMap(moved -> moved == 1 ? applyBatch(batch) : alreadyApplied(batch));
+        return transactionalOperator.transactional(write);
+    }
+
+    private Mono<Set<Long>> applyBatch(StockJournal.Batch batch) {
+        return claimEventIds(batch).flatMap(claimed -> {
+            Map<Long, Long> net = new HashMap<>(batch.deltas());
+            Set<Long> stale = new HashSet<>();
+            for (StockJournal.Reservation reservation : batch.reservations()) {
+                // removing makes a second record of the same event a duplicate as well
+                if (!claimed.remove(reservation.eventId())) {
+                    net.merge(reservation.productId(), (long) -reservation.quantity(), Long::sum);
+                    stale.add(reservation.productId());
+                }
+            }
+            if (!stale.isEmpty()) {
+                log.warn("Dropped journaled reservations of {} products whose payment events were already applied",
+                        stale.size());
+            }
+            net.values().removeIf(delta -> delta == 0);
+            if (net.isEmpty()) {
+                return Mono.just(stale);
+            }
+            Long[] ids = new Long[net.size()];
+            Integer[] deltas = new Integer[ids.length];
+            int i = 0;
+            for (Map.Entry<Long, Long> entry : net.entrySet()) {
+                ids[i] = entry.getKey();
+                deltas[i++] = Math.toIntExact(entry.getValue());
+            }
+            return productRepository.findShortOfStock(ids, deltas).collectList()
+                    .flatMap(shortOfStock -> {
+                        if (!shortOfStock.isEmpty()) {
+                            // stock was lowered outside the ledger while these deltas were pending
+                            log.warn("Stock of products {} is short of their flushed ledger deltas, clamping at 0",
+                                    shortOfStock);
+                            shortfalls.increment(shortOfStock.size());
+                            stale.addAll(shortOfStock);
+                        }
+                        return productRepository.applyStockDeltas(ids, deltas).collectList();
+                    })
+                    .flatMap(updated -> outboxRepository.appendAll(updated, "SOLD"))
+                    .thenReturn(stale);
+        });
+    }
+
+    private Mono<Set<String>> claimEventIds(StockJournal.Batch batch) {
+        String[] eventIds = batch.reservations().stream()
+                .map(StockJournal.Reservation::eventId)
+                .distinct()
+                .toArray(String[]::new);
+        if (eventIds.length == 0) {
+            return Mono.just(new HashSet<>());
+        }
+        return processedEventRepository.claim(eventIds).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private Mono<Set<Long>> alreadyApplied(StockJournal.Batch batch) {
+        // the previous attempt committed but its acknowledgement was lost, and with it which events were duplicates
+        return checkpointRepository.findJournalSeq(instanceId)
+                .filter(seq -> seq == batch.upToSeq())
+                .switchIfEmpty(Mono.error(new IllegalStateException(
+                        "Stock ledger checkpoint of " + instanceId + " moved unexpectedly")))
+                .thenReturn(batch.reservations().stream()
+                        .map(StockJournal.Reservation::productId)
+                        .collect(Collectors.toSet()));
+    }
+
+    private static boolean isValid(ProductStockEvent event) {
+        return event != null && event.getProductId() != null
+                && event.getNewStock() != null && event.getNewStock() > 0
+                && (event.getEventId() == null || event.getEventId().length() <= ProcessedEvent.MAX_EVENT_ID_LENGTH);
+    }
+}
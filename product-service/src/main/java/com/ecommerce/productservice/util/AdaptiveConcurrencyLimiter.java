@@ -0,0 +1,159 @@
+package com.ecommerce.productservice.util;
+
+import com.ecommerce.productservice.customexception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Non-blocking concurrency limiter whose limit adapts to observed latency (AIMD).
+ * <p>
+ * Business rules:
+ * 1. A call takes a permit when it is subscribed and returns it when it terminates or is cancelled;
+ *    no thread is held or switched, callers beyond the limit fail fast with ServiceUnavailableException
+ * 2. A call faster than the latency threshold grows the limit by one per limit's worth of calls,
+ *    but only while at least half the limit is in use (additive increase)
+ * 3. A call slower than the threshold, or one that timed out, shrinks the limit by the backoff ratio
+ *    (multiplicative decrease)
+ * 4. The limit stays within [minLimit, maxLimit]
+ * 5. Publishes "concurrency.limit", "concurrency.inflight" and "concurrency.rejected", tagged with the name
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+    private volatile double limit;
+
+    /**
+     * Constructor for AdaptiveConcurrencyLimiter.
+     *
+     * @param name the name tag of the published meters
+     * @param initialLimit the limit to start with
+     * @param minLimit the lowest limit
+     * @param maxLimit the highest limit
+     * @param backoffRatio the factor applied to the limit on a slow call, e.g. 0.9
+     * @param latencyThreshold calls slower than this count as overload
+     * @param meterRegistry the registry the meters are bound to
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, Duration latencyThreshold, MeterRegistry meterRegistry) {
+        this(name, initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold, meterRegistry, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                               Duration latencyThreshold, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.nanoClock = nanoClock;
+        this.limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        Gauge.builder("concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("concurrency.inflight", inFlight, AtomicInteger::get)
+                .description("Calls currently holding a permit")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("concurrency.rejected")
+                .description("Calls rejected because the limit was reached")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call under the limit.
+     *
+     * @param call the call to run; subscribed only if a permit is available
+     * @param <T> the value type
+     * @return a Mono of the call's result, or a ServiceUnavailableException when the limit is reached
+     */
+    public <T> Mono<T> limit(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                rejected.increment();
+                return Mono.error(new ServiceUnavailableException(
+                        "Concurrency limit of " + getLimit() + " reached"));
+            }
+            long start = nanoClock.getAsLong();
+            AtomicBoolean released = new AtomicBoolean();
+            return call
+                    .doOnSuccess(value -> release(released, start, false))
+                    .doOnError(e -> release(released, start, e instanceof TimeoutException))
+                    .doOnCancel(() -> {
+                        if (released.compareAndSet(false, true)) {
+                            inFlight.decrementAndGet();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Returns the current limit.
+     *
+     * @return the number of calls allowed in flight
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Returns the number of calls holding a permit.
+     *
+     * @return the in-flight count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void release(AtomicBoolean released, long start, boolean timedOut) {
+        if (!released.compareAndSet(false, true)) {
+            return;
+        }
+        int used = inFlight.getAndDecrement();
+        long latency = nanoClock.getAsLong() - start;
+        if (timedOut || latency > latencyThresholdNanos) {
+            decrease();
+        } else if (used * 2 >= (int) limit) {
+            increase();
+        }
+    }
+
+    private synchronized void increase() {
+        limit = Math.min(limit + 1.0 / limit, maxLimit);
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(limit * backoffRatio, minLimit);
+    }
+}
@@ -5,7 +5,6 @@ import com.ecommerce.productservice.repo.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.util.List;
 
@@ -39,8 +38,7 @@ public class DataInitializer {
         );
 
         return productRepository.deleteAll()
-                .thenMany(Flux.fromIterable(demoProducts))
-                .flatMap(productRepository::save)
+                .thenMany(productRepository.insertAll(demoProducts))
                 .then()
                 .doOnSuccess(v -> log.info("Demo products initialized"))
                 .doOnError(e -> log.error("Failed to initialize demo products", e));
@@ -0,0 +1,134 @@
+package com.ecommerce.productservice.util;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaCompatibility;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * File-based stand-in for a schema registry: the versions of one Avro subject, read from
+ * "{subject}.v{version}.avsc" files under a Spring resource location.
+ * <p>
+ * Business rules:
+ * 1. The version number is the schema ID written in front of every message
+ * 2. Every version must be backward and forward compatible with the previous one, otherwise loading fails;
+ *    old readers can read new data and new readers old data
+ * 3. An unknown version triggers one rescan of the location, so a shared directory (file:...) works like
+ *    a registry that producers publish new versions to before writing with them
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class FileSchemaRegistry {
+
+    private final String location;
+    private final String subject;
+    private final Pattern fileName;
+    private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    private volatile NavigableMap<Integer, Schema> versions;
+
+    /**
+     * Constructor for FileSchemaRegistry.
+     *
+     * @param location the resource location of the schema files, e.g. "classpath:avro/" or "file:/etc/schemas/"
+     * @param subject the subject, i.e. the file name prefix
+     */
+    public FileSchemaRegistry(String location, String subject) {
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.subject = subject;
+        this.fileName = Pattern.compile(Pattern.quote(subject) + "\\.v(\\d+)\\.avsc");
+        this.versions = load();
+        if (versions.isEmpty()) {
+            throw new IllegalStateException("No schema found for " + subject + " under " + this.location);
+        }
+    }
+
+    /**
+     * Returns the newest schema version.
+     *
+     * @return the version used to write new messages
+     */
+    public int latestVersion() {
+        return versions.lastKey();
+    }
+
+    /**
+     * Returns the newest schema.
+     *
+     * @return the schema of latestVersion
+     */
+    public Schema latest() {
+        return versions.lastEntry().getValue();
+    }
+
+    /**
+     * Looks up a schema version, rescanning the location once if it is unknown.
+     *
+     * @param version the schema version
+     * @return the schema
+     * @throws IllegalArgumentException if the version does not exist
+     */
+    public Schema schema(int version) {
+        Schema schema = versions.get(version);
+        if (schema == null) {
+            synchronized (this) {
+                schema = versions.get(version);
+                if (schema == null) {
+                    versions = load();
+                    schema = versions.get(version);
+                }
+            }
+        }
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown schema version " + version + " of " + subject);
+        }
+        return schema;
+    }
+
+    private NavigableMap<Integer, Schema> load() {
+        NavigableMap<Integer, Schema> loaded = new TreeMap<>();
+        try {
+            for (Resource resource : resolver.getResources(location + subject + ".v*.avsc")) {
+                Matcher matcher = fileName.matcher(String.valueOf(resource.getFilename()));
+                if (!matcher.matches()) {
+                    continue;
+                }
+                try (InputStream in = resource.getInputStream()) {
+                    loaded.put(Integer.parseInt(matcher.group(1)), new Schema.Parser().parse(in));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read schemas of " + subject + " under " + location, e);
+        }
+        Map.Entry<Integer, Schema> previous = null;
+        for (Map.Entry<Integer, Schema> current : loaded.entrySet()) {
+            if (previous != null) {
+                requireCompatible(previous.getValue(), current.getValue(), previous.getKey(), current.getKey());
+            }
+            previous = current;
+        }
+        return Collections.unmodifiableNavigableMap(loaded);
+    }
+
+    private void requireCompatible(Schema older, Schema newer, int olderVersion, int newerVersion) {
+        boolean backward = SchemaCompatibility.checkReaderWriterCompatibility(newer, older).getType()
+                == SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE;
+        boolean forward = SchemaCompatibility.checkReaderWriterCompatibility(older, newer).getType()
+                == SchemaCompatibility.SchemaCompatibilityType.COMPATIBLE;
+        if (!backward || !forward) {
+            throw new IllegalStateException("Schema v" + newerVersion + " of " + subject + " is not "
+                    + (backward ? "forward" : "backward") + " compatible with v" + olderVersion);
+        }
+    }
+}
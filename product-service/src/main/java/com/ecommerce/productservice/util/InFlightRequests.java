@@ -0,0 +1,98 @@
+package com.ecommerce.productservice.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of concurrent loads for the same key.
+ * <p>
+ * Business rules:
+ * 1. The first caller for a key starts the load; callers arriving while it is pending share its result
+ * 2. The entry is released as soon as the load terminates, so nothing is cached beyond the flight
+ * 3. Errors are shared as well; the next call after a failure starts a fresh load
+ * 4. Publishes calls, coalesced calls, the coalescing ratio and pending keys as "singleflight.*",
+ *    tagged with the given name
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class InFlightRequests<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Constructor for InFlightRequests.
+     *
+     * @param name the name tag of the published meters
+     * @param meterRegistry the registry the meters are bound to
+     */
+    public InFlightRequests(String name, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("singleflight.calls", calls, LongAdder::sum)
+                .description("Loads requested")
+                .tag("name", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("singleflight.coalesced", coalesced, LongAdder::sum)
+                .description("Loads served by joining one already in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("singleflight.coalescing.ratio", this, InFlightRequests::coalescingRatio)
+                .description("Share of loads served by joining one already in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("singleflight.pending", inFlight, Map::size)
+                .description("Keys currently being loaded")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the value for a key, joining a load already in flight for the same key.
+     *
+     * @param key the key
+     * @param loader starts the load; only called by the first of concurrent callers
+     * @return a Mono of the shared result
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            calls.increment();
+            Mono<V> existing = inFlight.get(key);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            AtomicReference<Mono<V>> self = new AtomicReference<>();
+            Mono<V> flight = Mono.defer(loader)
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .share();
+            self.set(flight);
+            existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            return flight;
+        });
+    }
+
+    /**
+     * Returns the share of calls that joined a load already in flight.
+     *
+     * @return a ratio between 0 and 1
+     */
+    public double coalescingRatio() {
+        long total = calls.sum();
+        return total == 0 ? 0.0 : (double) coalesced.sum() / total;
+    }
+}
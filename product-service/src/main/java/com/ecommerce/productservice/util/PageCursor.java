@@ -0,0 +1,118 @@
+package com.ecommerce.productservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Opaque keyset cursor used by the product listing API.
+ * <p>
+ * Business rules:
+ * 1. Encodes the sort key, the last seen sort value and the last seen product ID
+ * 2. Is URL-safe Base64 so clients can pass it back unchanged in the "after" parameter
+ * 3. Rejects tampered or mismatched cursors with IllegalArgumentException (HTTP 400)
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public final class PageCursor {
+
+    /**
+     * Supported sort keys for keyset pagination. Each one is backed by a (column, id) index.
+     */
+    public enum SortKey {
+        ID, PRICE, NAME;
+
+        /**
+         * Parses a sort key from a request parameter, defaulting to ID.
+         *
+         * @param value the raw request value (may be null)
+         * @return the sort key
+         */
+        public static SortKey from(String value) {
+            if (value == null || value.isBlank()) {
+                return ID;
+            }
+            try {
+                return SortKey.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported sort key: " + value);
+            }
+        }
+    }
+
+    private static final char SEPARATOR = '|';
+
+    private final SortKey sortKey;
+    private final String sortValue;
+    private final long lastId;
+
+    /**
+     * Constructor with all fields.
+     *
+     * @param sortKey the sort key the cursor was issued for
+     * @param sortValue the sort column value of the last row (null for ID sort)
+     * @param lastId the ID of the last row
+     */
+    public PageCursor(SortKey sortKey, String sortValue, long lastId) {
+        this.sortKey = sortKey;
+        this.sortValue = sortValue;
+        this.lastId = lastId;
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public String getSortValue() {
+        return sortValue;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Encodes this cursor into its opaque string form.
+     *
+     * @return the URL-safe cursor string
+     */
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + lastId + SEPARATOR + (sortValue != null ? sortValue : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     * <p>
+     * Business rules:
+     * 1. The cursor must have been issued for the requested sort key
+     * 2. Any malformed cursor is reported as IllegalArgumentException
+     *
+     * @param cursor the opaque cursor string
+     * @param expected the sort key of the current request
+     * @return the decoded cursor
+     */
+    public static PageCursor decode(String cursor, SortKey expected) {
+        SortKey key;
+        long id;
+        String value;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            key = SortKey.valueOf(raw.substring(0, first));
+            id = Long.parseLong(raw.substring(first + 1, second));
+            value = raw.substring(second + 1);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+        if (key != expected) {
+            throw new IllegalArgumentException("Cursor was issued for sort " + key + ", not " + expected);
+        }
+        if (key != SortKey.ID && value.isEmpty()) {
+            throw new IllegalArgumentException("Cursor is missing its sort value");
+        }
+        return new PageCursor(key, key == SortKey.ID ? null : value, id);
+    }
+}
@@ -0,0 +1,120 @@
+package com.ecommerce.productservice.util;
+
+import com.ecommerce.productservice.dto.ProductDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Minimal RFC 4180 style parser for product CSV feeds.
+ * <p>
+ * Business rules:
+ * 1. The first line is a header naming the columns (name, description, category, price, stock, imageUrl)
+ * 2. Column order is free and unknown columns are ignored
+ * 3. Fields may be quoted; quotes inside quoted fields are escaped by doubling them
+ * 4. A malformed row raises IllegalArgumentException, which the importer reports for that row only
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public final class ProductCsvParser {
+
+    private final Map<String, Integer> columns;
+
+    private ProductCsvParser(Map<String, Integer> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Creates a parser from the header line.
+     *
+     * @param headerLine the first CSV line
+     * @return the parser
+     */
+    public static ProductCsvParser fromHeader(String headerLine) {
+        List<String> names = split(headerLine);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("price")) {
+            throw new IllegalArgumentException("CSV header must contain at least 'name' and 'price'");
+        }
+        return new ProductCsvParser(columns);
+    }
+
+    /**
+     * Parses one data line into a ProductDto.
+     *
+     * @param line the CSV line
+     * @return the parsed product (not yet validated)
+     */
+    public ProductDto parse(String line) {
+        List<String> fields = split(line);
+        ProductDto dto = new ProductDto();
+        dto.setName(field(fields, "name"));
+        dto.setDescription(field(fields, "description"));
+        dto.setCategory(field(fields, "category"));
+        dto.setImageUrl(field(fields, "imageurl"));
+        String price = field(fields, "price");
+        String stock = field(fields, "stock");
+        try {
+            dto.setPrice(price != null ? Double.valueOf(price) : null);
+            dto.setStock(stock != null ? Integer.valueOf(stock) : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in row: " + e.getMessage());
+        }
+        return dto;
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits one CSV line into fields, honouring quotes.
+     *
+     * @param line the CSV line
+     * @return the fields
+     */
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,105 @@
+package com.ecommerce.productservice.util;
+
+import com.ecommerce.productservice.dto.ProductDto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Validators (ETag and Last-Modified) of product read responses, derived from products.updated_at.
+ * <p>
+ * Business rules:
+ * 1. A single product's ETag is its ID and updatedAt in microseconds, so it changes with every write
+ * 2. A page's ETag is a digest of the ID and updatedAt of every item, in order, plus the next cursor;
+ *    any write, insert or delete inside the page changes it
+ * 3. Last-Modified is the newest updatedAt; HTTP dates have second precision, so ETags are preferred
+ * 4. Without an updatedAt on every item there are no validators and the response is always sent in full
+ * 5. updated_at is a TIMESTAMP without time zone, read in the JVM's default zone
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public final class ProductETags {
+
+    private ProductETags() {
+    }
+
+    /**
+     * Computes the strong ETag of a single product.
+     *
+     * @param product the product
+     * @return the unquoted ETag, or null if the product has no updatedAt
+     */
+    public static String of(ProductDto product) {
+        if (product == null || product.getId() == null || product.getUpdatedAt() == null) {
+            return null;
+        }
+        return product.getId() + "-" + Long.toHexString(micros(product.getUpdatedAt()));
+    }
+
+    /**
+     * Computes the strong ETag of a page of products.
+     *
+     * @param products the items, in response order
+     * @param nextCursor the cursor sent along with the page (optional)
+     * @return the unquoted ETag, or null if any item has no updatedAt
+     */
+    public static String ofPage(List<ProductDto> products, String nextCursor) {
+        ByteBuffer versions = ByteBuffer.allocate(products.size() * 2 * Long.BYTES);
+        for (ProductDto product : products) {
+            if (product.getId() == null || product.getUpdatedAt() == null) {
+                return null;
+            }
+            versions.putLong(product.getId()).putLong(micros(product.getUpdatedAt()));
+        }
+        MessageDigest digest = sha256();
+        digest.update(versions.array());
+        if (nextCursor != null) {
+            digest.update(nextCursor.getBytes(StandardCharsets.UTF_8));
+        }
+        // 128 bits are plenty to tell versions of one URL apart
+        byte[] hash = digest.digest();
+        return "p" + products.size() + "-"
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+    }
+
+    /**
+     * Computes the Last-Modified time of one or more products.
+     *
+     * @param products the products
+     * @return the newest updatedAt, or null if any product has none
+     */
+    public static Instant lastModified(List<ProductDto> products) {
+        LocalDateTime newest = null;
+        for (ProductDto product : products) {
+            if (product.getUpdatedAt() == null) {
+                return null;
+            }
+            if (newest == null || product.getUpdatedAt().isAfter(newest)) {
+                newest = product.getUpdatedAt();
+            }
+        }
+        return newest != null ? newest.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+
+    private static long micros(LocalDateTime updatedAt) {
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
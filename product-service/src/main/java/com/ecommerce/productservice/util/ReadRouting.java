@@ -0,0 +1,66 @@
+package com.ecommerce.productservice.util;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Reactor context markers that steer R2DBC connections between the primary and read replicas.
+ * <p>
+ * Business rules:
+ * 1. Read-only service methods mark their pipeline with preferReplica
+ * 2. A caller that has just written is pinned to the primary for a short window (read-your-writes);
+ *    the pin wins over preferReplica
+ * 3. Unmarked pipelines, and everything inside a transaction, use the primary
+ * 4. Without configured replicas the markers are ignored
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public final class ReadRouting {
+
+    private static final String PREFER_REPLICA = ReadRouting.class.getName() + ".preferReplica";
+    private static final String PIN_PRIMARY = ReadRouting.class.getName() + ".pinPrimary";
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Marks a read-only pipeline, for use with contextWrite.
+     *
+     * @param context the subscriber context
+     * @return the context with the replica preference
+     */
+    public static Context preferReplica(Context context) {
+        return context.put(PREFER_REPLICA, Boolean.TRUE);
+    }
+
+    /**
+     * Pins a pipeline to the primary, for use with contextWrite.
+     *
+     * @param context the subscriber context
+     * @return the context with the primary pin
+     */
+    public static Context pinPrimary(Context context) {
+        return context.put(PIN_PRIMARY, Boolean.TRUE);
+    }
+
+    /**
+     * Tells whether a pipeline is pinned to the primary.
+     *
+     * @param context the subscriber context
+     * @return true if it must read from the primary
+     */
+    public static boolean isPinnedToPrimary(ContextView context) {
+        return context.getOrDefault(PIN_PRIMARY, Boolean.FALSE);
+    }
+
+    /**
+     * Tells whether a pipeline may read from a replica.
+     *
+     * @param context the subscriber context
+     * @return true if it prefers a replica and is not pinned to the primary
+     */
+    public static boolean mayUseReplica(ContextView context) {
+        return context.getOrDefault(PREFER_REPLICA, Boolean.FALSE) && !isPinnedToPrimary(context);
+    }
+}
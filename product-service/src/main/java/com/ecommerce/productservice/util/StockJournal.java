@@ -0,0 +1,304 @@
+package com.ecommerce.productservice.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of in-memory stock reservations, kept in numbered segment files.
+ * <p>
+ * Business rules:
+ * 1. Every reservation gets a sequence number and a CRC-protected record carrying its payment event ID,
+ *    so the write-behind flush can claim the IDs in processed_events
+ * 2. Records are buffered and made durable by sync(), called once per payment batch (group commit)
+ * 3. Net per-product deltas accumulate until drain() hands them to the write-behind flush;
+ *    a failed flush is retried with the very same batch, so its checkpoint guard stays valid
+ * 4. Segments whose records are all flushed are deleted; a torn record at the tail is ignored on replay
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class StockJournal implements AutoCloseable {
+    private static final org.slf4j.Logger log
+            = org.slf4j.LoggerFactory.getLogger(StockJournal.class);
+
+    /** seq (8) + productId (8) + quantity (4) + eventId length (2) + crc (4), followed by the eventId bytes. */
+    static final int RECORD_BYTES = 26;
+    /** Four UTF-8 bytes for each of the 128 characters processed_events.event_id can hold. */
+    static final int MAX_EVENT_ID_BYTES = 512;
+    private static final byte[] NO_EVENT_ID = new byte[0];
+    private static final String SEGMENT_PREFIX = "stock-journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * One journaled reservation of a payment event that carries an ID.
+     *
+     * @param eventId the payment event ID
+     * @param productId the product ID
+     * @param quantity the reserved quantity
+     */
+    public record Reservation(String eventId, long productId, int quantity) {
+    }
+
+    /**
+     * Net deltas of the records in (fromSeq, upToSeq].
+     *
+     * @param fromSeq the last sequence number already in the database
+     * @param upToSeq the last sequence number covered by this batch
+     * @param deltas the quantity sold per product ID
+     * @param reservations the records of the batch that carry an event ID, in sequence order
+     */
+    public record Batch(long fromSeq, long upToSeq, Map<Long, Long> deltas, List<Reservation> reservations) {
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocate((RECORD_BYTES + MAX_EVENT_ID_BYTES) * 256);
+    private final CRC32 crc = new CRC32();
+    private FileChannel segment;
+    private long segmentSize;
+    private long nextSeq;
+    private long flushedSeq;
+    private Map<Long, Long> pending = new HashMap<>();
+    private List<Reservation> pendingReservations = new ArrayList<>();
+    private Batch flushing;
+
+    /**
+     * Opens a new segment after the given sequence number.
+     * Everything up to lastSeq must already be in the database (see replay).
+     *
+     * @param directory the journal directory
+     * @param segmentBytes the size after which a new segment is started
+     * @param lastSeq the last sequence number already applied to the database
+     * @throws IOException if the segment cannot be created
+     */
+    public StockJournal(Path directory, long segmentBytes, long lastSeq) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, RECORD_BYTES);
+        this.nextSeq = lastSeq + 1;
+        this.flushedSeq = lastSeq;
+        Files.createDirectories(directory);
+        openSegment();
+        deleteFlushedSegments();
+    }
+
+    /**
+     * Reads every intact record after the given sequence number and sums it per product.
+     *
+     * @param directory the journal directory
+     * @param afterSeq the checkpoint stored in the database
+     * @return a batch covering (afterSeq, last record on disk], empty deltas if nothing is pending
+     * @throws IOException if a segment cannot be read
+     */
+    public static Batch replay(Path directory, long afterSeq) throws IOException {
+        Map<Long, Long> deltas = new HashMap<>();
+        List<Reservation> reservations = new ArrayList<>();
+        long lastSeq = afterSeq;
+        if (!Files.isDirectory(directory)) {
+            return new Batch(afterSeq, afterSeq, deltas, reservations);
+        }
+        CRC32 crc = new CRC32();
+        for (Path file : segments(directory)) {
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+            while (bytes.remaining() >= RECORD_BYTES) {
+                int start = bytes.position();
+                long seq = bytes.getLong();
+                long productId = bytes.getLong();
+                int quantity = bytes.getInt();
+                int eventIdLength = Short.toUnsignedInt(bytes.getShort());
+                if (bytes.remaining() < eventIdLength + 4) {
+                    log.warn("Ignoring torn stock journal record at {}:{}", file.getFileName(), start);
+                    break;
+                }
+                bytes.position(bytes.position() + eventIdLength);
+                int checksum = bytes.getInt();
+                crc.reset();
+                crc.update(bytes.array(), start, RECORD_BYTES - 4 + eventIdLength);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Ignoring torn stock journal record at {}:{}", file.getFileName(), start);
+                    break;
+                }
+                if (seq > afterSeq) {
+                    deltas.merge(productId, (long) quantity, Long::sum);
+                    if (eventIdLength > 0) {
+                        String eventId = new String(bytes.array(), start + RECORD_BYTES - 4, eventIdLength,
+                                StandardCharsets.UTF_8);
+                        reservations.add(new Reservation(eventId, productId, quantity));
+                    }
+                    lastSeq = Math.max(lastSeq, seq);
+                }
+            }
+        }
+        return new Batch(afterSeq, lastSeq, deltas, reservations);
+    }
+
+    /**
+     * Journals a set of reservations that were just taken from the in-memory counters.
+     * The records are durable only after the next sync().
+     *
+     * @param productIds the product IDs
+     * @param quantities the reserved quantities, index-aligned with productIds
+     * @param eventIds the payment event IDs (null entries for events without one), index-aligned with productIds
+     * @param count the number of valid entries
+     */
+    public synchronized void append(long[] productIds, int[] quantities, String[] eventIds, int count) {
+        for (int i = 0; i < count; i++) {
+            byte[] eventId = eventIds[i] != null ? eventIds[i].getBytes(StandardCharsets.UTF_8) : NO_EVENT_ID;
+            if (eventId.length > MAX_EVENT_ID_BYTES) {
+                throw new IllegalArgumentException("Event ID is longer than " + MAX_EVENT_ID_BYTES + " bytes");
+            }
+            if (buffer.remaining() < RECORD_BYTES + eventId.length) {
+                writeBuffer();
+            }
+            int start = buffer.position();
+            buffer.putLong(nextSeq++).putLong(productIds[i]).putInt(quantities[i])
+                    .putShort((short) eventId.length).put(eventId);
+            crc.reset();
+            crc.update(buffer.array(), start, RECORD_BYTES - 4 + eventId.length);
+            buffer.putInt((int) crc.getValue());
+            pending.merge(productIds[i], (long) quantities[i], Long::sum);
+            if (eventIds[i] != null) {
+                pendingReservations.add(new Reservation(eventIds[i], productIds[i], quantities[i]));
+            }
+        }
+    }
+
+    /**
+     * Writes buffered records and forces them to disk, then rolls the segment if it is full.
+     */
+    public synchronized void sync() {
+        writeBuffer();
+        try {
+            segment.force(false);
+            if (segmentSize >= segmentBytes) {
+                segment.close();
+                openSegment();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync stock journal", e);
+        }
+    }
+
+    /**
+     * Returns the next batch to write to the database.
+     * An unacknowledged batch is returned again unchanged.
+     *
+     * @return the batch, or null if nothing is pending
+     */
+    public synchronized Batch drain() {
+        if (flushing == null && !pending.isEmpty()) {
+            flushing = new Batch(flushedSeq, nextSeq - 1, pending, pendingReservations);
+            pending = new HashMap<>();
+            pendingReservations = new ArrayList<>();
+        }
+        return flushing;
+    }
+
+    /**
+     * Marks a drained batch as committed to the database and deletes segments it made obsolete.
+     *
+     * @param batch the batch returned by drain()
+     */
+    public synchronized void flushed(Batch batch) {
+        if (flushing != batch) {
+            throw new IllegalStateException("Batch is not the one being flushed");
+        }
+        flushing = null;
+        flushedSeq = batch.upToSeq();
+        deleteFlushedSegments();
+    }
+
+    /**
+     * Returns the quantity of a product reserved in memory but not yet committed to the database.
+     *
+     * @param productId the product ID
+     * @return the pending quantity, including a batch that is currently being flushed
+     */
+    public synchronized long pendingDelta(Long productId) {
+        long delta = pending.getOrDefault(productId, 0L);
+        if (flushing != null) {
+            delta += flushing.deltas().getOrDefault(productId, 0L);
+        }
+        return delta;
+    }
+
+    /**
+     * Returns the last sequence number committed to the database.
+     * It only changes when a batch is flushed, so callers can use it to detect a concurrent flush.
+     *
+     * @return the flushed sequence number
+     */
+    public synchronized long flushedSeq() {
+        return flushedSeq;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writeBuffer();
+        segment.force(false);
+        segment.close();
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                segmentSize += segment.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write stock journal", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void openSegment() throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSeq, SEGMENT_SUFFIX));
+        // a file with this name can only hold a torn tail from before a crash, never a valid record
+        segment = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segmentSize = 0;
+    }
+
+    private void deleteFlushedSegments() {
+        try {
+            List<Path> files = segments(directory);
+            // a segment ends where the next one starts; the newest one is still being written
+            for (int i = 0; i + 1 < files.size(); i++) {
+                if (firstSeq(files.get(i + 1)) - 1 <= flushedSeq) {
+                    Files.deleteIfExists(files.get(i));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete flushed stock journal segments: {}", e.getMessage());
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(f -> f.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .toList());
+            // zero-padded names sort by first sequence number
+            segments.sort(null);
+            return segments;
+        }
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
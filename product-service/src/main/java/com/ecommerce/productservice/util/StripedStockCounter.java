@@ -0,0 +1,112 @@
+package com.ecommerce.productservice.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Available stock of one product spread over padded atomic stripes.
+ * <p>
+ * Business rules:
+ * 1. A reservation CASes a single stripe, starting at the caller thread's home stripe,
+ *    so concurrent buyers of the same product rarely touch the same cache line
+ * 2. When no single stripe holds enough, the stripes are drained and rebalanced under the
+ *    counter's monitor; this is the only blocking path and only happens near sell-out
+ * 3. The total never goes below zero and never grows: stock only leaves through reservations
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public final class StripedStockCounter {
+    /** 16 longs = 128 bytes between stripes, enough to keep them on separate cache lines. */
+    private static final int PAD = 16;
+
+    private final AtomicLongArray stripes;
+    private final int mask;
+
+    /**
+     * Constructor for StripedStockCounter.
+     *
+     * @param available the initial available quantity
+     * @param stripeCount the number of stripes, rounded up to a power of two
+     */
+    public StripedStockCounter(long available, int stripeCount) {
+        int n = Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1);
+        this.stripes = new AtomicLongArray(n * PAD);
+        this.mask = n - 1;
+        spread(Math.max(available, 0), 0);
+    }
+
+    /**
+     * Reserves the given quantity if it is available.
+     *
+     * @param quantity the quantity to reserve (positive)
+     * @return true if reserved, false if not enough stock is left
+     */
+    public boolean tryReserve(int quantity) {
+        int home = homeStripe();
+        if (tryStripes(home, quantity)) {
+            return true;
+        }
+        return rebalanceAndReserve(home, quantity);
+    }
+
+    /**
+     * Returns the current available quantity.
+     * The value is a moving snapshot while reservations are in flight.
+     *
+     * @return the sum of all stripes
+     */
+    public long available() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += stripes.get(i * PAD);
+        }
+        return sum;
+    }
+
+    private boolean tryStripes(int home, int quantity) {
+        for (int i = 0; i <= mask; i++) {
+            int index = ((home + i) & mask) * PAD;
+            long current = stripes.get(index);
+            while (current >= quantity) {
+                if (stripes.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+                current = stripes.get(index);
+            }
+        }
+        return false;
+    }
+
+    private synchronized boolean rebalanceAndReserve(int home, int quantity) {
+        // another thread may have rebalanced while we were waiting for the monitor
+        if (tryStripes(home, quantity)) {
+            return true;
+        }
+        long total = 0;
+        for (int i = 0; i <= mask; i++) {
+            total += stripes.getAndSet(i * PAD, 0);
+        }
+        boolean reserved = total >= quantity;
+        if (reserved) {
+            total -= quantity;
+        }
+        spread(total, home);
+        return reserved;
+    }
+
+    private void spread(long total, int first) {
+        long share = total / (mask + 1);
+        long remainder = total % (mask + 1);
+        for (int i = 0; i <= mask; i++) {
+            long amount = share + (i < remainder ? 1 : 0);
+            if (amount > 0) {
+                stripes.getAndAdd(((first + i) & mask) * PAD, amount);
+            }
+        }
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+}
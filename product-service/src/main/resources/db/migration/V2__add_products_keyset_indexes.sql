@@ -0,0 +1,7 @@
+-- Flyway Migration Script: V2__add_products_keyset_indexes.sql
+-- Composite indexes backing keyset pagination on GET /api/products (sort=price / sort=name).
+-- Sorting by id uses the primary key index.
+
+CREATE INDEX IF NOT EXISTS idx_products_price_id ON products (price, id);
+
+CREATE INDEX IF NOT EXISTS idx_products_name_id ON products (name, id);
@@ -0,0 +1,14 @@
+-- Flyway Migration Script: V3__add_products_search_index.sql
+-- Full-text search over name, category and description for GET /api/products/search.
+-- The generated column keeps itself in sync on every INSERT/UPDATE, and the GIN index
+-- replaces the sequential scan that ILIKE '%keyword%' needed.
+
+ALTER TABLE products
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (
+            setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+            setweight(to_tsvector('simple', coalesce(category, '')), 'B') ||
+            setweight(to_tsvector('simple', coalesce(description, '')), 'C')
+        ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_products_search_vector ON products USING GIN (search_vector);
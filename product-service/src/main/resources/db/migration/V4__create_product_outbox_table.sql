@@ -0,0 +1,11 @@
+-- Flyway Migration Script: V4__create_product_outbox_table.sql
+-- Transactional outbox for product-stock-updated events. Rows are inserted in the same
+-- transaction as the products change and deleted by the relay once Kafka acknowledged them.
+
+CREATE TABLE IF NOT EXISTS product_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    new_stock INTEGER NOT NULL,
+    action VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
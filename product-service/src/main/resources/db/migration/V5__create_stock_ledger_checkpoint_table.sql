@@ -0,0 +1,9 @@
+-- Flyway Migration Script: V5__create_stock_ledger_checkpoint_table.sql
+-- Write-behind checkpoint of the optional in-memory stock ledger: the last journal sequence
+-- number of each product-service instance whose reservations are already in "products".
+
+CREATE TABLE IF NOT EXISTS stock_ledger_checkpoint (
+    instance_id VARCHAR(100) PRIMARY KEY,
+    journal_seq BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
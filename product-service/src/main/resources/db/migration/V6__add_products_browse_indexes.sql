@@ -0,0 +1,18 @@
+-- Flyway Migration Script: V6__add_products_browse_indexes.sql
+-- Covering indexes for GET /api/products/browse. Filters, ordering and facet counts read only
+-- index columns (key + INCLUDE), so category pages are served by index-only scans once the
+-- visibility map is current; only the rows of the returned page visit the heap.
+
+-- category pages sorted by price, and their price-bucket facets
+CREATE INDEX IF NOT EXISTS idx_products_category_price_id ON products (category, price, id) INCLUDE (stock);
+
+-- category pages sorted by newest (IDs are assigned in creation order)
+CREATE INDEX IF NOT EXISTS idx_products_category_id ON products (category, id) INCLUDE (price, stock);
+
+-- per-category facet counts over a price range, and price-sorted browsing across categories;
+-- same key as idx_products_price_id, so it also serves keyset pagination by price
+CREATE INDEX IF NOT EXISTS idx_products_price_id_covering ON products (price, id) INCLUDE (category, stock);
+
+-- superseded by the composite indexes above
+DROP INDEX IF EXISTS idx_products_price_id;
+DROP INDEX IF EXISTS idx_products_category;
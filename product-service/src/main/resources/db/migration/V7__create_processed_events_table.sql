@@ -0,0 +1,11 @@
+-- Flyway Migration Script: V7__create_processed_events_table.sql
+-- IDs of payment events whose stock reservation has been applied. A row is inserted in the same
+-- transaction as the reservation, so a redelivered event finds its ID and becomes a no-op.
+-- Rows older than product.stock.dedup.retention are purged.
+
+CREATE TABLE IF NOT EXISTS processed_events (
+    event_id VARCHAR(128) PRIMARY KEY,
+    processed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_processed_events_processed_at ON processed_events (processed_at);
@@ -0,0 +1,25 @@
+-- Flyway Migration Script: V8__maintain_products_updated_at.sql
+-- products.updated_at is the version behind the ETag and Last-Modified of product reads, so it has
+-- to move on every write, including the set-based stock UPDATEs that never touch the column.
+-- A writer may set it explicitly (ProductService does, to cache what it saved); the trigger only
+-- steps in when the value is missing or would not move forward.
+
+UPDATE products SET updated_at = COALESCE(created_at, CURRENT_TIMESTAMP) WHERE updated_at IS NULL;
+
+ALTER TABLE products ALTER COLUMN updated_at SET NOT NULL;
+
+CREATE OR REPLACE FUNCTION products_touch_updated_at() RETURNS trigger AS '
+BEGIN
+    IF NEW.updated_at IS NULL OR NEW.updated_at <= OLD.updated_at THEN
+        NEW.updated_at := GREATEST(CAST(clock_timestamp() AS TIMESTAMP), OLD.updated_at + INTERVAL ''1 microsecond'');
+    END IF;
+    RETURN NEW;
+END;
+' LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_products_touch_updated_at ON products;
+
+CREATE TRIGGER trg_products_touch_updated_at
+    BEFORE UPDATE ON products
+    FOR EACH ROW
+    EXECUTE FUNCTION products_touch_updated_at();
@@ -0,0 +1,7 @@
+-- Flyway Migration Script: V9__add_product_outbox_claims.sql
+-- The outbox relay claims a batch in a short transaction, publishes it with no transaction open and
+-- deletes it in a second one. claimed_until is the lease of the batch being published: while any row
+-- holds a live lease no other relay claims, which keeps events in order; a relay that dies mid-send
+-- leaves a lease that simply runs out, after which the rows are published again.
+
+ALTER TABLE product_outbox ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;
@@ -0,0 +1,100 @@
+package com.ecommerce.productservice.config;
+
+import com.ecommerce.productservice.util.ReadRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.ResponseCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ReadWriteRoutingTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReadWriteRoutingConnectionFactory routing() {
+        Map<String, ConnectionFactory> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", mock(ConnectionFactory.class));
+        replicas.put("replica-1", mock(ConnectionFactory.class));
+        return new ReadWriteRoutingConnectionFactory(mock(ConnectionFactory.class), replicas,
+                Duration.ofSeconds(2), Duration.ofMillis(500), meterRegistry);
+    }
+
+    @Test
+    void readsGoToHealthyReplicasAndEverythingElseToThePrimary() {
+        ReadWriteRoutingConnectionFactory routing = routing();
+        Context read = ReadRouting.preferReplica(Context.empty());
+
+        // replicas start out of rotation until their first successful check
+        StepVerifier.create(routing.determineCurrentLookupKey().contextWrite(read))
+                .expectNext(ReadWriteRoutingConnectionFactory.PRIMARY)
+                .verifyComplete();
+
+        routing.setReplicaState("replica-0", true, 0.1);
+        routing.setReplicaState("replica-1", true, 0.3);
+        StepVerifier.create(routing.determineCurrentLookupKey().repeat(3).contextWrite(read))
+                .expectNext("replica-0", "replica-1", "replica-0", "replica-1")
+                .verifyComplete();
+
+        // writes and pinned reads never see a replica
+        StepVerifier.create(routing.determineCurrentLookupKey())
+                .expectNext(ReadWriteRoutingConnectionFactory.PRIMARY)
+                .verifyComplete();
+        StepVerifier.create(routing.determineCurrentLookupKey().contextWrite(ReadRouting.pinPrimary(read)))
+                .expectNext(ReadWriteRoutingConnectionFactory.PRIMARY)
+                .verifyComplete();
+
+        routing.setReplicaState("replica-1", false, 9.0);
+        StepVerifier.create(routing.determineCurrentLookupKey().repeat(1).contextWrite(read))
+                .expectNext("replica-0", "replica-0")
+                .verifyComplete();
+        assertThat(meterRegistry.get("product.r2dbc.replica.healthy").tag("replica", "replica-1").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void readYourWritesCookiePinsReadsUntilTheWindowEnds() {
+        Clock clock = Clock.fixed(Instant.parse("2025-04-01T00:00:00Z"), ZoneOffset.UTC);
+        ReadYourWritesWebFilter filter = new ReadYourWritesWebFilter(Duration.ofSeconds(5), clock);
+
+        MockServerWebExchange write = MockServerWebExchange.from(MockServerHttpRequest.post("/api/products"));
+        filter.filter(write, exchange -> exchange.getResponse().setComplete()).block();
+        ResponseCookie cookie = write.getResponse().getCookies().getFirst(ReadYourWritesWebFilter.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getValue()).isEqualTo(String.valueOf(clock.millis() + 5000));
+
+        AtomicBoolean mayUseReplica = new AtomicBoolean(true);
+        MockServerWebExchange read = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1")
+                .cookie(new HttpCookie(ReadYourWritesWebFilter.COOKIE_NAME, cookie.getValue())));
+        filter.filter(read, exchange -> Mono.deferContextual(context -> {
+            mayUseReplica.set(ReadRouting.mayUseReplica(context));
+            return Mono.<Void>empty();
+        }).contextWrite(ReadRouting::preferReplica)).block();
+        assertThat(mayUseReplica).isFalse();
+
+        ReadYourWritesWebFilter later = new ReadYourWritesWebFilter(Duration.ofSeconds(5),
+                Clock.offset(clock, Duration.ofSeconds(6)));
+        MockServerWebExchange expired = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1")
+                .cookie(new HttpCookie(ReadYourWritesWebFilter.COOKIE_NAME, cookie.getValue())));
+        later.filter(expired, exchange -> Mono.deferContextual(context -> {
+            mayUseReplica.set(ReadRouting.mayUseReplica(context));
+            return Mono.<Void>empty();
+        }).contextWrite(ReadRouting::preferReplica)).block();
+        assertThat(mayUseReplica).isTrue();
+    }
+}
@@ -0,0 +1,83 @@
+package com.ecommerce.productservice.controller;
+
+import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.dto.ProductPage;
+import com.ecommerce.productservice.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductControllerConditionalGetTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2025, 4, 1, 12, 0, 0, 123_456_000);
+
+    private ProductService productService;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        productService = mock(ProductService.class);
+        client = WebTestClient.bindToController(new ProductController(productService, null, null, null, null))
+                .build();
+    }
+
+    @Test
+    void getOne_RevalidatesWithETagAndLastModified() {
+        when(productService.getById(1L)).thenReturn(Mono.just(product(1L, 5, UPDATED_AT)));
+
+        HttpHeaders headers = client.get().uri("/api/products/1").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.updatedAt").doesNotExist()
+                .returnResult().getResponseHeaders();
+        String eTag = headers.getETag();
+        assertThat(eTag).startsWith("\"1-");
+
+        client.get().uri("/api/products/1").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        assertThat(headers.getLastModified())
+                .isEqualTo(UPDATED_AT.withNano(0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+        client.get().uri("/api/products/1").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified).exchange()
+                .expectStatus().isNotModified();
+
+        // one microsecond later is a new version
+        when(productService.getById(1L)).thenReturn(Mono.just(product(1L, 4, UPDATED_AT.plusNanos(1_000))));
+        client.get().uri("/api/products/1").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.stock").isEqualTo(4);
+    }
+
+    @Test
+    void listAll_PageETagChangesWithAnyItem() {
+        List<ProductDto> items = List.of(product(1L, 5, UPDATED_AT), product(2L, 7, UPDATED_AT.minusDays(1)));
+        when(productService.getPage(null, null, 10)).thenReturn(Mono.just(new ProductPage(items, null)));
+
+        String eTag = client.get().uri("/api/products").exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        client.get().uri("/api/products").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        List<ProductDto> changed = List.of(items.get(0), product(2L, 6, UPDATED_AT));
+        when(productService.getPage(null, null, 10)).thenReturn(Mono.just(new ProductPage(changed, null)));
+        client.get().uri("/api/products").header(HttpHeaders.IF_NONE_MATCH, eTag).exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(HttpHeaders.ETAG, value -> assertThat(value).isNotEqualTo(eTag));
+    }
+
+    private static ProductDto product(Long id, int stock, LocalDateTime updatedAt) {
+        return new ProductDto(id, "Phone " + id, "desc", "Electronics", 199.0, stock, null, updatedAt);
+    }
+}
@@ -0,0 +1,75 @@
+package com.ecommerce.productservice.controller;
+
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.service.ProductExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductControllerExportTest {
+
+    private ProductExportService exportService;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        exportService = mock(ProductExportService.class);
+        client = WebTestClient.bindToController(new ProductController(null, exportService, null, null, null))
+                .build();
+    }
+
+    @Test
+    void exportNdjson_StreamsOneProductPerLineInOrder() {
+        when(exportService.exportAfter(0, 2)).thenReturn(Flux.just(product(1L), product(2L), product(3L)));
+
+        Flux<ProductDto> body = client.get().uri("/api/products/export?fetchSize=2")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(ProductDto.class).getResponseBody();
+
+        StepVerifier.create(body)
+                .expectNextMatches(dto -> dto.getId() == 1L)
+                .expectNextMatches(dto -> dto.getId() == 2L)
+                .expectNextMatches(dto -> dto.getId() == 3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void exportEvents_UsesProductIdsAsEventIdsAndResumesAfterLastEventId() {
+        when(exportService.exportAfter(41, null)).thenReturn(Flux.just(product(42L), product(43L)));
+
+        Flux<ServerSentEvent<ProductDto>> body = client.get().uri("/api/products/export?after=10")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", "41")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<ProductDto>>() { })
+                .getResponseBody();
+
+        StepVerifier.create(body)
+                .expectNextMatches(event -> "42".equals(event.id()) && "product".equals(event.event())
+                        && event.data().getId() == 42L)
+                .expectNextMatches(event -> "43".equals(event.id()) && event.data().getId() == 43L)
+                .verifyComplete();
+        verify(exportService).exportAfter(41, null);
+    }
+
+    private static Product product(Long id) {
+        Product product = new Product(null, "Item " + id, "desc", "Misc", 9.99, 1, null);
+        product.setId(id);
+        return product;
+    }
+}
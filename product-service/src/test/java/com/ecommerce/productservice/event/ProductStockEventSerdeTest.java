@@ -0,0 +1,89 @@
+package com.ecommerce.productservice.event;
+
+import com.ecommerce.productservice.util.FileSchemaRegistry;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductStockEventSerdeTest {
+
+    private static final String SUBJECT = "product-stock-event";
+
+    @TempDir
+    Path schemas;
+
+    @Test
+    void evolvesInBothDirectionsAcrossSchemaVersions() throws IOException {
+        copySchema(1);
+        ProductStockEventAvroCodec v1Codec = new ProductStockEventAvroCodec(registry());
+        copySchema(2);
+        ProductStockEventAvroCodec v2Codec = new ProductStockEventAvroCodec(registry());
+
+        ProductStockEvent fromV1 = v2Codec.decode(v1Codec.encode(new ProductStockEvent(7L, 3, "RESERVE")));
+        assertThat(fromV1.getProductId()).isEqualTo(7L);
+        assertThat(fromV1.getNewStock()).isEqualTo(3);
+        assertThat(fromV1.getAction()).isEqualTo("RESERVE");
+        assertThat(fromV1.getEventId()).isNull();
+
+        // the v1 reader learns v2 by rescanning the location and ignores the new field
+        ProductStockEvent fromV2 = v1Codec.decode(v2Codec.encode(new ProductStockEvent("evt-1", 8L, 2, "RESERVE")));
+        assertThat(fromV2.getProductId()).isEqualTo(8L);
+        assertThat(fromV2.getNewStock()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsIncompatibleSchemaVersion() throws IOException {
+        copySchema(1);
+        Files.writeString(schemas.resolve(SUBJECT + ".v2.avsc"), """
+                {"type": "record", "name": "ProductStockEvent", "namespace": "com.ecommerce.productservice.event",
+                 "fields": [{"name": "productId", "type": "long"}, {"name": "newStock", "type": "int"},
+                            {"name": "action", "type": "string"}, {"name": "warehouse", "type": "string"}]}
+                """);
+
+        assertThatThrownBy(this::registry)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not backward compatible");
+    }
+
+    @Test
+    void dualReadAcceptsJsonAndAvroWhileAvroStaysCompact() {
+        ProductStockEventAvroCodec codec = new ProductStockEventAvroCodec(
+                new FileSchemaRegistry("classpath:avro/", SUBJECT));
+        ProductStockEvent event = new ProductStockEvent("payment-42", 1001L, 5, "RESERVE");
+        byte[] json = new ProductStockEventSerializer(codec, ProductStockEventSerializer.Format.JSON)
+                .serialize("payment-success-events", event);
+        byte[] avro = new ProductStockEventSerializer(codec, ProductStockEventSerializer.Format.AVRO)
+                .serialize("payment-success-events", event);
+
+        ProductStockEventDeserializer dualRead = new ProductStockEventDeserializer(codec, true);
+        assertThat(dualRead.deserialize("payment-success-events", json).getEventId()).isEqualTo("payment-42");
+        assertThat(dualRead.deserialize("payment-success-events", avro).getEventId()).isEqualTo("payment-42");
+        assertThat(avro.length * 2).isLessThan(json.length);
+
+        ProductStockEventDeserializer avroOnly = new ProductStockEventDeserializer(codec, false);
+        assertThat(avroOnly.deserialize("payment-success-events", avro).getProductId()).isEqualTo(1001L);
+        assertThatThrownBy(() -> avroOnly.deserialize("payment-success-events", json))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    private FileSchemaRegistry registry() {
+        return new FileSchemaRegistry(schemas.toUri().toString(), SUBJECT);
+    }
+
+    private void copySchema(int version) throws IOException {
+        String file = SUBJECT + ".v" + version + ".avsc";
+        try (InputStream in = new ClassPathResource("avro/" + file).getInputStream()) {
+            Files.copy(in, schemas.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ecommerce.productservice.kafka;
 
+import com.ecommerce.productservice.domain.ProductOutboxEvent;
 import com.ecommerce.productservice.event.ProductStockEvent;
 import com.ecommerce.productservice.service.KafkaProducerService;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -13,6 +14,7 @@ import org.springframework.kafka.test.EmbeddedKafkaBroker;
 import org.springframework.kafka.test.utils.ContainerTestUtils;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,7 +41,7 @@ public class KafkaIntegrationTest {
         var consumer = consumerFactory.createConsumer();
         embeddedKafka.consumeFromAnEmbeddedTopic(consumer, "product-stock-events");
 
-        producerService.sendStockUpdateEvent(42L, 10, "CREATE");
+        producerService.publish(List.of(new ProductOutboxEvent(1L, 42L, 10, "CREATE"))).join();
 
         ConsumerRecord<String, ProductStockEvent> record = KafkaTestUtils.getSingleRecord(consumer, "product-stock-events");
 
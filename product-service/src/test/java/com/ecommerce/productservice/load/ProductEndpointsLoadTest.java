@@ -0,0 +1,171 @@
+package com.ecommerce.productservice.load;
+
+import com.ecommerce.loadtest.EndpointReport;
+import com.ecommerce.loadtest.LoadGenerator;
+import com.ecommerce.loadtest.LoadProfile;
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.repo.ProductRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.KafkaContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the product read endpoints against real Postgres and Kafka containers.
+ * <p>
+ * Not part of the normal build; run with {@code mvn -Pload-test test}, optionally tuned with
+ * -Dload.rps, -Dload.duration, -Dload.products, -Dload.&lt;endpoint&gt;.p99-ms (see {@link LoadProfile}).
+ * Each endpoint is driven on its own; results are logged and written to target/load-reports
+ * (summary.json plus one .hgrm percentile file per endpoint). The run fails if any endpoint
+ * exceeds its latency or error budget.
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ProductEndpointsLoadTest {
+    private static final org.slf4j.Logger log
+            = org.slf4j.LoggerFactory.getLogger(ProductEndpointsLoadTest.class);
+
+    private static final Path REPORT_DIR = Path.of("target", "load-reports");
+    private static final String[] WORDS = {"galaxy", "phone", "laptop", "oak", "desk", "lamp", "watch",
+            "camera", "speaker", "chair", "monitor", "keyboard", "tablet", "router", "charger"};
+    private static final String[] CATEGORIES = {"Electronics", "Furniture", "Home", "Office", "Accessories"};
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.2")
+            .withDatabaseName("productdb");
+
+    @Container
+    static final KafkaContainer kafka = new KafkaContainer(DockerImageName.parse("confluentinc/cp-kafka:7.5.0"));
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> String.format("r2dbc:postgresql://%s:%d/%s",
+                postgres.getHost(), postgres.getFirstMappedPort(), postgres.getDatabaseName()));
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("spring.flyway.enabled", () -> false);
+        // apply the Flyway scripts through R2DBC, in version order
+        registry.add("spring.sql.init.mode", () -> "always");
+        registry.add("spring.sql.init.schema-locations", () -> "classpath:db/migration/V*.sql");
+        registry.add("logging.level.root", () -> "WARN");
+        registry.add("logging.level.com.ecommerce.productservice.load", () -> "INFO");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    private WebClient client;
+    private long minId;
+    private long maxId;
+    private final List<EndpointReport> reports = new ArrayList<>();
+
+    @BeforeAll
+    void seedCatalog() {
+        int products = Integer.getInteger("load.products", 10_000);
+        List<Product> saved = Flux.range(0, products)
+                .map(i -> new Product(null,
+                        capitalize(WORDS[i % WORDS.length]) + " " + capitalize(WORDS[(i / WORDS.length) % WORDS.length]) + " " + i,
+                        "Load test product " + i + " " + WORDS[(i * 7) % WORDS.length],
+                        CATEGORIES[i % CATEGORIES.length],
+                        10.0 + (i % 500),
+                        1_000,
+                        null))
+                .buffer(1_000)
+                .concatMap(productRepository::insertAll)
+                .collectList()
+                .block();
+        assertThat(saved).hasSize(products);
+        minId = saved.stream().mapToLong(Product::getId).min().orElseThrow();
+        maxId = saved.stream().mapToLong(Product::getId).max().orElseThrow();
+        client = WebClient.builder().baseUrl("http://localhost:" + port).build();
+    }
+
+    @Test
+    @Order(1)
+    void listProducts() {
+        LoadProfile profile = LoadProfile.forEndpoint("list", 200, 100);
+        record(LoadGenerator.run(profile, i -> client.get()
+                .uri("/api/products?size=20&sort={sort}", i % 2 == 0 ? "id" : "price")
+                .retrieve()
+                .toBodilessEntity()));
+    }
+
+    @Test
+    @Order(2)
+    void getProductById() {
+        LoadProfile profile = LoadProfile.forEndpoint("get", 500, 50);
+        record(LoadGenerator.run(profile, i -> client.get()
+                .uri("/api/products/{id}", ThreadLocalRandom.current().nextLong(minId, maxId + 1))
+                .retrieve()
+                .toBodilessEntity()));
+    }
+
+    @Test
+    @Order(3)
+    void searchProducts() {
+        LoadProfile profile = LoadProfile.forEndpoint("search", 200, 150);
+        record(LoadGenerator.run(profile, i -> client.get()
+                .uri("/api/products/search?keyword={keyword}&limit=20",
+                        WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)].substring(0, 3))
+                .retrieve()
+                .toBodilessEntity()));
+    }
+
+    @AfterAll
+    void writeReportAndCheckBudgets() throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        for (EndpointReport report : reports) {
+            report.writeTo(REPORT_DIR);
+        }
+        Files.writeString(REPORT_DIR.resolve("summary.json"), reports.stream()
+                .map(EndpointReport::toJson)
+                .collect(Collectors.joining(",\n  ", "[\n  ", "\n]\n")));
+
+        List<String> violations = reports.stream()
+                .flatMap(report -> report.violations().stream())
+                .toList();
+        assertThat(violations).as("latency budget violations").isEmpty();
+    }
+
+    private void record(EndpointReport report) {
+        reports.add(report);
+        log.info("[load] {}", report.summaryLine());
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,138 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.util.ReadRouting;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.RowsFetchSpec;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ProductExportServiceTest {
+
+    @Mock
+    DatabaseClient databaseClient;
+
+    @Mock
+    DatabaseClient.GenericExecuteSpec spec;
+
+    @Mock
+    RowsFetchSpec<Product> rows;
+
+    @Mock
+    ReactiveTransactionManager transactionManager;
+
+    @Mock
+    Statement statement;
+
+    @Captor
+    ArgumentCaptor<Function<? super Statement, ? extends Statement>> filters;
+
+    private final List<Long> upstreamRequests = new CopyOnWriteArrayList<>();
+    private final List<Boolean> replicaAllowed = new CopyOnWriteArrayList<>();
+    private final ProductExportService service;
+
+    ProductExportServiceTest() {
+        MockitoAnnotations.openMocks(this);
+        when(databaseClient.sql(anyString())).thenReturn(spec);
+        when(spec.bind(eq("afterId"), anyLong())).thenReturn(spec);
+        when(spec.filter(ArgumentMatchers.<Function<? super Statement, ? extends Statement>>any())).thenReturn(spec);
+        doReturn(rows).when(spec).map(ArgumentMatchers.<BiFunction<Row, RowMetadata, Product>>any());
+        when(statement.fetchSize(anyInt())).thenReturn(statement);
+        when(transactionManager.getReactiveTransaction(any())).thenReturn(Mono.just(mock(ReactiveTransaction.class)));
+        when(transactionManager.commit(any())).thenReturn(Mono.empty());
+        when(transactionManager.rollback(any())).thenReturn(Mono.empty());
+        service = new ProductExportService(databaseClient, mock(R2dbcConverter.class), transactionManager, 500);
+    }
+
+    @Test
+    void exportAfter_StreamsInIdOrderAcrossFetchBoundaries() {
+        stubRows(7);
+
+        StepVerifier.create(service.exportAfter(0, 3))
+                .expectNextMatches(p -> p.getId() == 1L)
+                .expectNextMatches(p -> p.getId() == 2L)
+                .expectNextMatches(p -> p.getId() == 3L)
+                .expectNextMatches(p -> p.getId() == 4L)
+                .expectNextMatches(p -> p.getId() == 5L)
+                .expectNextMatches(p -> p.getId() == 6L)
+                .expectNextMatches(p -> p.getId() == 7L)
+                .verifyComplete();
+
+        // an unbounded subscriber still pulls one fetch at a time
+        assertThat(upstreamRequests).hasSizeGreaterThanOrEqualTo(3).allMatch(n -> n == 3L);
+        assertThat(replicaAllowed).containsExactly(true);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void exportAfter_DemandDrivesFetches() {
+        stubRows(10);
+
+        StepVerifier.create(service.exportAfter(0, 4), 2)
+                .expectNextCount(2)
+                .then(() -> assertThat(upstreamRequests).containsExactly(4L))
+                .thenRequest(3)
+                .expectNextCount(3)
+                .then(() -> assertThat(upstreamRequests).containsExactly(4L, 3L))
+                .thenCancel()
+                .verify();
+
+        verify(transactionManager, never()).commit(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void exportAfter_ClampsFetchSize() {
+        stubRows(0);
+
+        service.exportAfter(5, 0).blockLast();
+        service.exportAfter(5, 100_000).blockLast();
+        service.exportAfter(5, null).blockLast();
+
+        verify(spec, times(3)).filter(filters.capture());
+        filters.getAllValues().forEach(filter -> filter.apply(statement));
+        verify(statement).fetchSize(1);
+        verify(statement).fetchSize(ProductExportService.MAX_FETCH_SIZE);
+        verify(statement).fetchSize(500);
+        verify(spec, times(3)).bind("afterId", 5L);
+    }
+
+    private void stubRows(int count) {
+        when(rows.all()).thenReturn(Flux.deferContextual(context -> {
+            replicaAllowed.add(ReadRouting.mayUseReplica(context));
+            return Flux.range(1, count).map(ProductExportServiceTest::product);
+        }).doOnRequest(upstreamRequests::add));
+    }
+
+    private static Product product(int id) {
+        Product product = new Product(null, "Item " + id, "desc", "Misc", 9.99, 1, null);
+        product.setId((long) id);
+        return product;
+    }
+}
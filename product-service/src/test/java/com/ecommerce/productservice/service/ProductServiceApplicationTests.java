@@ -1,21 +1,65 @@
 package com.ecommerce.productservice.service;
 
+import com.ecommerce.productservice.customexception.ServiceUnavailableException;
 import com.ecommerce.productservice.domain.Product;
+import com.ecommerce.productservice.domain.ProductOutboxEvent;
+import com.ecommerce.productservice.dto.BulkImportResult;
+import com.ecommerce.productservice.dto.ProductBrowseResult;
 import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.dto.ProductPage;
+import com.ecommerce.productservice.dto.StockReservationResult;
+import com.ecommerce.productservice.event.ProductStockEvent;
+import com.ecommerce.productservice.repo.ProcessedEventRepository;
+import com.ecommerce.productservice.repo.ProductOutboxRepository;
 import com.ecommerce.productservice.repo.ProductRepository;
+import com.ecommerce.productservice.repo.StockLedgerCheckpointRepository;
+import com.ecommerce.productservice.util.AdaptiveConcurrencyLimiter;
+import com.ecommerce.productservice.util.InFlightRequests;
+import com.ecommerce.productservice.util.PageCursor;
+import com.ecommerce.productservice.util.ReadRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 class ProductServiceTest {
@@ -23,11 +67,30 @@ class ProductServiceTest {
     @Mock
     ProductRepository repo;
 
+    @Mock
+    ProductOutboxRepository outboxRepository;
+
+    @Mock
+    ProcessedEventRepository processedEventRepository;
+
+    @Spy
+    ProductCache productCache = new ProductCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Spy
+    InFlightRequests<Long, ProductDto> productByIdRequests = new InFlightRequests<>("productById", new SimpleMeterRegistry());
+
+    @Spy
+    AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter("productService",
+            10, 10, 10, 0.9, Duration.ofSeconds(1), new SimpleMeterRegistry());
+
     @InjectMocks
     ProductService service;
 
     public ProductServiceTest() {
         MockitoAnnotations.openMocks(this);
+        when(outboxRepository.append(anyLong(), anyInt(), anyString())).thenReturn(Mono.just(1));
+        when(outboxRepository.appendAll(anyCollection(), anyString())).thenReturn(Mono.empty());
+        when(repo.findShortOfStock(any(Long[].class), any(Integer[].class))).thenReturn(Flux.empty());
     }
 
     @Test
@@ -35,13 +98,585 @@ class ProductServiceTest {
         Product p1 = new Product(1L, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
         Product p2 = new Product(2L, "Laptop", "Gaming laptop", "Electronics", 1500.0, 5, "");
 
-        when(repo.findAll()).thenReturn(Flux.just(p1, p2));
+        when(repo.findPage(10, 0L)).thenReturn(Flux.just(p1, p2));
 
         StepVerifier.create(service.getAll(0,10))
                 .expectNextCount(2)
                 .verifyComplete();
     }
 
+    @Test
+    void getPage_ShouldIssueCursorAndSeekFromIt() {
+        Product p1 = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        p1.setId(1L);
+        Product p2 = new Product(null, "Laptop", "Gaming laptop", "Electronics", 1500.0, 5, "");
+        p2.setId(2L);
+        Product p3 = new Product(null, "Watch", "Smart watch", "Electronics", 1500.0, 7, "");
+        p3.setId(3L);
+
+        when(repo.findFirstPageByPrice(2)).thenReturn(Flux.just(p1, p2));
+        when(repo.findPageAfterPrice(1500.0, 2L, 2)).thenReturn(Flux.just(p3));
+
+        ProductPage first = service.getPage(null, "price", 2).block();
+        assertThat(first.getItems()).extracting(ProductDto::getId).containsExactly(1L, 2L);
+        assertThat(first.getNextCursor()).isNotNull();
+
+        StepVerifier.create(service.getPage(first.getNextCursor(), "price", 2))
+                .expectNextMatches(page -> page.getItems().size() == 1 && page.getNextCursor() == null)
+                .verifyComplete();
+        verify(repo, never()).findAll();
+    }
+
+    @Test
+    void getPage_RejectsCursorIssuedForAnotherSort() {
+        String idCursor = new PageCursor(PageCursor.SortKey.ID, null, 5L).encode();
+
+        StepVerifier.create(service.getPage(idCursor, "name", 10))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+    }
+
+    @Test
+    void getById_SecondReadIsServedFromCache() {
+        Product p = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        p.setId(7L);
+        when(repo.findById(7L)).thenReturn(Mono.just(p));
+
+        StepVerifier.create(service.getById(7L)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.getById(7L))
+                .expectNextMatches(dto -> dto.getStock() == 10)
+                .verifyComplete();
+
+        verify(repo, times(1)).findById(7L);
+    }
+
+    @Test
+    void getById_ConcurrentMissesShareOneQuery() {
+        Product p = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        p.setId(5L);
+        Sinks.One<Product> row = Sinks.one();
+        when(repo.findById(5L)).thenReturn(row.asMono());
+
+        List<ProductDto> received = new CopyOnWriteArrayList<>();
+        IntStream.range(0, 5).forEach(i -> service.getById(5L).subscribe(received::add));
+        row.tryEmitValue(p);
+
+        assertThat(received).hasSize(5).allMatch(dto -> dto.getId() == 5L);
+        verify(repo, times(1)).findById(5L);
+        assertThat(productByIdRequests.coalescingRatio()).isEqualTo(0.8);
+
+        // released after completion: a later miss queries again
+        productCache.invalidate(5L);
+        when(repo.findById(5L)).thenReturn(Mono.just(p));
+        StepVerifier.create(service.getById(5L)).expectNextCount(1).verifyComplete();
+        verify(repo, times(2)).findById(5L);
+    }
+
+    @Test
+    void getById_CallerPinnedToPrimaryDoesNotJoinAReplicaFlight() {
+        Product p = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        p.setId(6L);
+        Sinks.One<Product> replicaRow = Sinks.one();
+        List<Boolean> replicaAllowed = new CopyOnWriteArrayList<>();
+        when(repo.findById(6L)).thenReturn(
+                Mono.deferContextual(context -> {
+                    replicaAllowed.add(ReadRouting.mayUseReplica(context));
+                    return replicaRow.asMono();
+                }),
+                Mono.deferContextual(context -> {
+                    replicaAllowed.add(ReadRouting.mayUseReplica(context));
+                    return Mono.just(p);
+                }));
+
+        Disposable replicaFlight = service.getById(6L).subscribe();
+        StepVerifier.create(service.getById(6L).contextWrite(ReadRouting::pinPrimary))
+                .expectNextMatches(dto -> dto.getId() == 6L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        verify(repo, times(2)).findById(6L);
+        assertThat(replicaAllowed).containsExactly(true, false);
+        replicaFlight.dispose();
+    }
+
+    @Test
+    void updateStock_EvictsTheCachedProductInsteadOfCachingTheUncommittedRow() {
+        Product p = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        p.setId(7L);
+        productCache.put(ProductDto.fromEntity(p));
+        Product row = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        row.setId(7L);
+        when(repo.findById(7L)).thenReturn(Mono.just(row));
+        when(repo.save(row)).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(service.updateStock(7L, 4))
+                .expectNextMatches(dto -> dto.getStock() == 4)
+                .verifyComplete();
+        assertThat(productCache.get(7L)).isNull();
+
+        // a failed outbox write rolls the update back and must not leave the new stock cached either
+        when(outboxRepository.append(7L, 2, "UPDATE")).thenReturn(Mono.error(new RuntimeException("DB down")));
+        StepVerifier.create(service.updateStock(7L, 2))
+                .expectErrorMessage("DB down")
+                .verify();
+        assertThat(productCache.get(7L)).isNull();
+    }
+
+    @Test
+    void getByIds_QueriesUncachedIdsOnceAndKeepsRequestOrder() {
+        Product cached = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        cached.setId(1L);
+        productCache.put(ProductDto.fromEntity(cached));
+        Product p2 = new Product(null, "Laptop", "Gaming laptop", "Electronics", 1500.0, 5, "");
+        p2.setId(2L);
+        Product p3 = new Product(null, "Watch", "Smart watch", "Electronics", 300.0, 7, "");
+        p3.setId(3L);
+        when(repo.findAllByIdIn(new Long[]{3L, 9L, 2L})).thenReturn(Flux.just(p2, p3));
+
+        StepVerifier.create(service.getByIds(List.of(3L, 1L, 9L, 2L, 3L)))
+                .assertNext(batch -> {
+                    assertThat(batch.getItems()).extracting(ProductDto::getId).containsExactly(3L, 1L, 2L);
+                    assertThat(batch.getMissingIds()).containsExactly(9L);
+                })
+                .verifyComplete();
+        verify(repo, never()).findById(anyLong());
+
+        List<Long> tooMany = IntStream.rangeClosed(1, ProductService.MAX_BATCH_IDS + 1)
+                .mapToObj(Long::valueOf).toList();
+        StepVerifier.create(service.getByIds(tooMany)).expectError(IllegalArgumentException.class).verify();
+    }
+
+    @Test
+    void stockEvents_EvictCachedProductsSoTheNextReadSeesTheRow() {
+        Product p = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        p.setId(8L);
+        p.setUpdatedAt(LocalDateTime.of(2025, 4, 1, 12, 0));
+        when(repo.findById(8L)).thenReturn(Mono.just(p));
+        service.getById(8L).block();
+
+        Product sold = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 3, "");
+        sold.setId(8L);
+        sold.setUpdatedAt(LocalDateTime.of(2025, 4, 1, 12, 5));
+        when(repo.findById(8L)).thenReturn(Mono.just(sold));
+        productCache.onStockEvent(new ProductStockEvent(8L, 3, "SOLD"));
+        assertThat(productCache.get(8L)).isNull();
+
+        // stock and updatedAt both come from the row, never from the local clock
+        StepVerifier.create(service.getById(8L))
+                .expectNextMatches(dto -> dto.getStock() == 3
+                        && dto.getUpdatedAt().equals(LocalDateTime.of(2025, 4, 1, 12, 5)))
+                .verifyComplete();
+
+        productCache.onStockEvent(new ProductStockEvent(8L, 0, "DELETE"));
+        assertThat(productCache.get(8L)).isNull();
+    }
+
+    @Test
+    void reserveStockBatch_MergesPerProductAndReportsPerEvent() {
+        Product phone = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 7, "");
+        phone.setId(1L);
+        Product laptopAfterFirst = new Product(null, "Laptop", "Gaming laptop", "Electronics", 1500.0, 0, "");
+        laptopAfterFirst.setId(2L);
+
+        // merged: phone 3 (ok), laptop 3 (only 2 left) -> laptop retried per event
+        when(repo.reserveStockBatch(new Long[]{1L, 2L}, new Integer[]{3, 3}))
+                .thenReturn(Flux.just(phone));
+        when(repo.reserveStockBatch(new Long[]{2L}, new Integer[]{2}))
+                .thenReturn(Flux.just(laptopAfterFirst));
+        when(repo.reserveStockBatch(new Long[]{2L}, new Integer[]{1}))
+                .thenReturn(Flux.empty());
+
+        List<ProductStockEvent> events = List.of(
+                new ProductStockEvent(1L, 1, "SOLD"),
+                new ProductStockEvent(2L, 2, "SOLD"),
+                new ProductStockEvent(1L, 2, "SOLD"),
+                new ProductStockEvent(2L, 1, "SOLD"));
+
+        StepVerifier.create(service.reserveStockBatch(events))
+                .assertNext(results -> assertThat(results)
+                        .extracting(StockReservationResult::isReserved)
+                        .containsExactly(true, true, true, false))
+                .verifyComplete();
+
+        verify(outboxRepository).appendAll(argThat((Collection<Product> updated) ->
+                updated.size() == 1 && updated.contains(phone)), eq("SOLD"));
+        verify(outboxRepository).append(2L, 0, "SOLD");
+        verify(repo, never()).reserveStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void reserveStockBatch_SkipsEventsWhoseIdWasAlreadyProcessed() {
+        Product phone = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 4, "");
+        phone.setId(1L);
+        when(processedEventRepository.claim(new String[]{"pay-1", "pay-2"})).thenReturn(Flux.just("pay-2"));
+        when(repo.reserveStockBatch(new Long[]{1L}, new Integer[]{3})).thenReturn(Flux.just(phone));
+
+        List<ProductStockEvent> events = List.of(
+                new ProductStockEvent("pay-1", 1L, 5, "SOLD"),   // applied before the redelivery
+                new ProductStockEvent("pay-2", 1L, 3, "SOLD"),
+                new ProductStockEvent("pay-2", 1L, 3, "SOLD"));  // repeated within the batch
+
+        StepVerifier.create(service.reserveStockBatch(events))
+                .assertNext(results -> assertThat(results)
+                        .extracting(StockReservationResult::isReserved, StockReservationResult::isDuplicate)
+                        .containsExactly(tuple(false, true), tuple(true, false), tuple(false, true)))
+                .verifyComplete();
+
+        verify(repo).reserveStockBatch(new Long[]{1L}, new Integer[]{3});
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void paymentPoll_DropsRecentlyAppliedEventsBeforeTheDatabase() {
+        ProductService productService = mock(ProductService.class);
+        when(productService.reserveStockBatch(anyList())).thenAnswer(invocation -> Mono.just(
+                ((List<ProductStockEvent>) invocation.getArgument(0)).stream()
+                        .map(e -> StockReservationResult.reserved(e.getProductId(), e.getNewStock()))
+                        .toList()));
+        ProcessedEventIds processedEventIds = processedEventIds();
+        KafkaConsumerService consumer = new KafkaConsumerService(productService, productCache,
+                mock(ObjectProvider.class), processedEventIds, Duration.ofSeconds(5), 1, new SimpleMeterRegistry());
+
+        poll(consumer, 0, new ProductStockEvent("pay-1", 1L, 1, "SOLD"));
+        assertThat(processedEventIds.contains("pay-1")).isTrue();
+
+        // redelivered after a rebalance, together with a new event
+        poll(consumer, 0,
+                new ProductStockEvent("pay-1", 1L, 1, "SOLD"),
+                new ProductStockEvent("pay-2", 2L, 1, "SOLD"));
+
+        verify(productService).reserveStockBatch(argThat((List<ProductStockEvent> batch) ->
+                batch.size() == 1 && "pay-2".equals(batch.get(0).getEventId())));
+        verify(productService, times(2)).reserveStockBatch(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void paymentPoll_IdentifiesEventsWithoutIdByTheirRecord() {
+        ProductService productService = mock(ProductService.class);
+        when(productService.reserveStockBatch(anyList())).thenAnswer(invocation -> Mono.just(
+                ((List<ProductStockEvent>) invocation.getArgument(0)).stream()
+                        .map(e -> StockReservationResult.reserved(e.getProductId(), e.getNewStock()))
+                        .toList()));
+        KafkaConsumerService consumer = new KafkaConsumerService(productService, productCache,
+                mock(ObjectProvider.class), processedEventIds(), Duration.ofSeconds(5), 1, new SimpleMeterRegistry());
+
+        poll(consumer, 41, new ProductStockEvent(1L, 1, "SOLD"), new ProductStockEvent(2L, 1, "SOLD"));
+        // the record at offset 42 is redelivered, the producer never assigned an ID
+        poll(consumer, 42, new ProductStockEvent(2L, 1, "SOLD"), new ProductStockEvent(3L, 1, "SOLD"));
+
+        verify(productService).reserveStockBatch(argThat((List<ProductStockEvent> batch) ->
+                batch.stream().map(ProductStockEvent::getEventId).toList()
+                        .equals(List.of("payment-success-events-0-41", "payment-success-events-0-42"))));
+        verify(productService).reserveStockBatch(argThat((List<ProductStockEvent> batch) ->
+                batch.stream().map(ProductStockEvent::getEventId).toList()
+                        .equals(List.of("payment-success-events-0-43"))));
+        verify(productService, times(2)).reserveStockBatch(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void paymentPoll_FailedShardIdsAreNotRememberedAndTheRedeliveryAppliesThem() {
+        ProductService productService = mock(ProductService.class);
+        AtomicBoolean databaseDown = new AtomicBoolean(true);
+        when(productService.reserveStockBatch(anyList())).thenAnswer(invocation -> {
+            List<ProductStockEvent> shard = invocation.getArgument(0);
+            if (shard.get(0).getProductId() == 2L && databaseDown.get()) {
+                return Mono.<List<StockReservationResult>>error(new IllegalStateException("connection reset"));
+            }
+            return Mono.just(shard.stream()
+                    .map(e -> e.getProductId() == 3L
+                            ? StockReservationResult.failed(e.getProductId(), e.getNewStock(), "Not enough stock")
+                            : StockReservationResult.reserved(e.getProductId(), e.getNewStock()))
+                    .toList());
+        });
+        ProcessedEventIds processedEventIds = processedEventIds();
+        KafkaConsumerService consumer = new KafkaConsumerService(productService, productCache,
+                mock(ObjectProvider.class), processedEventIds, Duration.ofSeconds(5), 2, new SimpleMeterRegistry());
+        ProductStockEvent[] events = {
+                new ProductStockEvent("pay-1", 1L, 1, "SOLD"),
+                new ProductStockEvent("pay-2", 2L, 1, "SOLD"),
+                new ProductStockEvent("pay-3", 3L, 1, "SOLD")};
+
+        // products 1 and 3 share a shard, 2 has its own
+        assertThatThrownBy(() -> poll(consumer, 0, events)).hasRootCauseMessage("connection reset");
+        assertThat(processedEventIds.contains("pay-2")).isFalse();
+
+        // the offsets were not committed, so the poll comes back
+        databaseDown.set(false);
+        poll(consumer, 0, events);
+
+        verify(productService, times(2)).reserveStockBatch(argThat((List<ProductStockEvent> shard) ->
+                shard.size() == 1 && "pay-2".equals(shard.get(0).getEventId())));
+        assertThat(processedEventIds.contains("pay-1")).isTrue();
+        assertThat(processedEventIds.contains("pay-2")).isTrue();
+        // rejected, not applied
+        assertThat(processedEventIds.contains("pay-3")).isFalse();
+    }
+
+    private static void poll(KafkaConsumerService consumer, long firstOffset, ProductStockEvent... events) {
+        consumer.handlePaymentSuccess(List.of(events),
+                Collections.nCopies(events.length, "payment-success-events"),
+                Collections.nCopies(events.length, 0),
+                LongStream.range(firstOffset, firstOffset + events.length).boxed().toList());
+    }
+
+    private ProcessedEventIds processedEventIds() {
+        return new ProcessedEventIds(processedEventRepository, 100, Duration.ofMinutes(1), Duration.ofDays(1),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void search_UsesRankedPrefixQueryAndSanitizesInput() {
+        assertThat(ProductService.toPrefixTsQuery("Galaxy S23")).isEqualTo("galaxy:* & s23:*");
+        assertThat(ProductService.toPrefixTsQuery("phone' | !(drop)")).isEqualTo("phone:* & drop:*");
+        assertThat(ProductService.toPrefixTsQuery("  &|! ")).isEmpty();
+
+        when(repo.searchRanked("gal:*", 100)).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.search("gal", 500)).verifyComplete();
+        StepVerifier.create(service.search("***", 10)).verifyComplete();
+
+        verify(repo).searchRanked("gal:*", 100);
+        verify(repo, never()).findByNameContainingIgnoreCase(anyString());
+    }
+
+    @Test
+    void browse_FacetsIgnoreTheirOwnFilterAndBucketsAreLabelled() {
+        String byCategory = ProductBrowseService.sql(ProductBrowseService.Sort.PRICE, true);
+        String categoryFacets = byCategory.substring(byCategory.indexOf("category_facets AS"),
+                byCategory.indexOf("price_facets AS"));
+        String priceFacets = byCategory.substring(byCategory.indexOf("price_facets AS"),
+                byCategory.indexOf("SELECT 'item'"));
+        assertThat(categoryFacets).doesNotContain(":category").contains(":minPrice");
+        assertThat(priceFacets).contains("category = :category").doesNotContain(":minPrice");
+        assertThat(ProductBrowseService.sql(ProductBrowseService.Sort.NEWEST, false))
+                .doesNotContain(":category").contains("ORDER BY id DESC");
+
+        ProductBrowseService browse = new ProductBrowseService(null, null, new double[]{100, 0, 50});
+        TreeMap<Integer, Long> counts = new TreeMap<>(Map.of(1, 4L, 3, 2L));
+        assertThat(browse.priceBuckets(counts))
+                .extracting(ProductBrowseResult.PriceBucket::getMin, ProductBrowseResult.PriceBucket::getMax,
+                        ProductBrowseResult.PriceBucket::getCount)
+                .containsExactly(tuple(0.0, 50.0, 4L), tuple(100.0, null, 2L));
+        StepVerifier.create(browse.browse(null, null, null, false, "rating", null, 10))
+                .expectError(IllegalArgumentException.class).verify();
+    }
+
+    @Test
+    void importCsv_InsertsValidRowsInBatchesAndRejectsInvalidOnes() {
+        TransactionalOperator tx = mock(TransactionalOperator.class);
+        when(tx.transactional(ArgumentMatchers.<Mono<List<Product>>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        ProductImportService importService = new ProductImportService(repo, outboxRepository, tx, 2);
+        when(repo.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Product> batch = invocation.getArgument(0);
+            return Flux.fromIterable(batch).index().map(indexed -> {
+                indexed.getT2().setId(100 + indexed.getT1());
+                return indexed.getT2();
+            });
+        });
+
+        Flux<String> csv = Flux.just(
+                "name,price,stock,category",
+                "Phone,999.0,10,Electronics",
+                "\"Desk, oak\",250,3,Furniture",
+                ",10,1,Misc",
+                "Lamp,abc,1,Home");
+
+        StepVerifier.create(importService.importCsv(csv).map(BulkImportResult::getStatus))
+                .expectNext(BulkImportResult.Status.CREATED, BulkImportResult.Status.CREATED,
+                        BulkImportResult.Status.REJECTED, BulkImportResult.Status.REJECTED)
+                .verifyComplete();
+
+        verify(repo, times(1)).insertAll(anyList());
+        verify(repo, never()).save(any(Product.class));
+        verify(outboxRepository, times(1)).appendAll(anyCollection(), eq("CREATE"));
+    }
+
+    @Test
+    void outboxRelay_DeletesRowsOnlyAfterKafkaAcknowledgedThem() {
+        KafkaProducerService producer = mock(KafkaProducerService.class);
+        TransactionalOperator tx = mock(TransactionalOperator.class);
+        AtomicBoolean inTransaction = new AtomicBoolean();
+        when(tx.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation
+                .<Mono<?>>getArgument(0)
+                .doOnSubscribe(s -> inTransaction.set(true))
+                .doFinally(signal -> inTransaction.set(false)));
+        StockEventOutboxRelay relay = new StockEventOutboxRelay(outboxRepository, producer, tx, 10, Duration.ofSeconds(1));
+
+        List<ProductOutboxEvent> rows = List.of(
+                new ProductOutboxEvent(1L, 7L, 3, "SOLD"),
+                new ProductOutboxEvent(2L, 8L, 0, "DELETE"));
+        when(outboxRepository.tryRelayLock(StockEventOutboxRelay.RELAY_LOCK_KEY)).thenReturn(Mono.just(true));
+        // RETURNING order is arbitrary, the relay restores the outbox order
+        when(outboxRepository.claimOldest(10, 2000L)).thenReturn(Flux.just(rows.get(1), rows.get(0)));
+        when(outboxRepository.deleteAllByIds(any(Long[].class))).thenReturn(Mono.just(2));
+        when(outboxRepository.releaseClaims(any(Long[].class))).thenReturn(Mono.just(2));
+
+        when(producer.publish(rows)).thenAnswer(invocation -> {
+            assertThat(inTransaction).as("publishing inside the claim transaction").isFalse();
+            return CompletableFuture.failedFuture(new IllegalStateException("broker down"));
+        });
+        StepVerifier.create(relay.relayBatch()).expectError(IllegalStateException.class).verify();
+        verify(outboxRepository, never()).deleteAllByIds(any(Long[].class));
+        verify(outboxRepository).releaseClaims(new Long[]{1L, 2L});
+
+        when(producer.publish(rows)).thenReturn(CompletableFuture.completedFuture(null));
+        StepVerifier.create(relay.relayBatch()).expectNext(2).verifyComplete();
+        verify(outboxRepository).deleteAllByIds(new Long[]{1L, 2L});
+        verify(outboxRepository, times(1)).releaseClaims(any(Long[].class));
+    }
+
+    @Test
+    void outboxRelay_SkipsWhileAnotherRelayHoldsTheLockOrAClaim() {
+        KafkaProducerService producer = mock(KafkaProducerService.class);
+        TransactionalOperator tx = mock(TransactionalOperator.class);
+        when(tx.transactional(ArgumentMatchers.<Mono<Object>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        StockEventOutboxRelay relay = new StockEventOutboxRelay(outboxRepository, producer, tx, 10, Duration.ofSeconds(1));
+
+        when(outboxRepository.tryRelayLock(StockEventOutboxRelay.RELAY_LOCK_KEY)).thenReturn(Mono.just(false));
+        StepVerifier.create(relay.relayBatch()).expectNext(0).verifyComplete();
+        verify(outboxRepository, never()).claimOldest(anyInt(), anyLong());
+
+        when(outboxRepository.tryRelayLock(StockEventOutboxRelay.RELAY_LOCK_KEY)).thenReturn(Mono.just(true));
+        when(outboxRepository.claimOldest(10, 2000L)).thenReturn(Flux.empty());
+        StepVerifier.create(relay.relayBatch()).expectNext(0).verifyComplete();
+        verify(producer, never()).publish(anyList());
+    }
+
+    @Test
+    void stockLedger_ReservesInMemoryAndFlushesNetDeltasOnce(@TempDir Path journalDir) throws IOException {
+        StockLedgerCheckpointRepository checkpoints = mock(StockLedgerCheckpointRepository.class);
+        TransactionalOperator tx = mock(TransactionalOperator.class);
+        when(tx.transactional(ArgumentMatchers.<Mono<Void>>any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(checkpoints.createIfAbsent("p1")).thenReturn(Mono.just(1));
+        when(checkpoints.findJournalSeq("p1")).thenReturn(Mono.just(0L));
+        StockLedger ledger = new StockLedger(repo, outboxRepository, processedEventRepository, checkpoints, tx,
+                new SimpleMeterRegistry(), journalDir, 1 << 20, 4, "p1", Duration.ofSeconds(1));
+        ledger.afterPropertiesSet();
+
+        Product phone = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 3, "");
+        phone.setId(1L);
+        when(repo.findAllById(anyIterable())).thenReturn(Flux.just(phone));
+
+        List<ProductStockEvent> events = List.of(
+                new ProductStockEvent(1L, 2, "SOLD"),
+                new ProductStockEvent(1L, 2, "SOLD"),
+                new ProductStockEvent(1L, 1, "SOLD"),
+                new ProductStockEvent(9L, 1, "SOLD"));
+        StepVerifier.create(ledger.reserveBatch(events))
+                .assertNext(results -> assertThat(results)
+                        .extracting(StockReservationResult::isReserved)
+                        .containsExactly(true, false, true, false))
+                .verifyComplete();
+        ledger.sync();
+        verify(repo, never()).reserveStockBatch(any(Long[].class), any(Integer[].class));
+
+        Product flushed = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 0, "");
+        flushed.setId(1L);
+        when(checkpoints.advance("p1", 0L, 2L)).thenReturn(Mono.just(1));
+        when(repo.applyStockDeltas(new Long[]{1L}, new Integer[]{3})).thenReturn(Flux.just(flushed));
+        ledger.flushNow();
+        ledger.flushNow();
+
+        verify(repo, times(1)).applyStockDeltas(new Long[]{1L}, new Integer[]{3});
+        verify(outboxRepository).appendAll(List.of(flushed), "SOLD");
+        ledger.destroy();
+    }
+
+    @Test
+    void stockLedger_AdminStockUpdateOverlappingPendingDeltasIsClampedNotNegative(@TempDir Path journalDir)
+            throws IOException {
+        StockLedgerCheckpointRepository checkpoints = mock(StockLedgerCheckpointRepository.class);
+        TransactionalOperator tx = mock(TransactionalOperator.class);
+        when(tx.transactional(ArgumentMatchers.<Mono<Set<Long>>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(checkpoints.createIfAbsent("p1")).thenReturn(Mono.just(1));
+        when(checkpoints.findJournalSeq("p1")).thenReturn(Mono.just(0L));
+        when(checkpoints.advance(eq("p1"), anyLong(), anyLong())).thenReturn(Mono.just(1));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StockLedger ledger = new StockLedger(repo, outboxRepository, processedEventRepository, checkpoints, tx,
+                meterRegistry, journalDir, 1 << 20, 4, "p1", Duration.ofSeconds(1));
+        ledger.afterPropertiesSet();
+
+        Product phone = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        phone.setId(1L);
+        when(repo.findAllById(anyIterable())).thenReturn(Flux.just(phone));
+        StepVerifier.create(ledger.reserveBatch(List.of(new ProductStockEvent(1L, 4, "SOLD"))))
+                .assertNext(results -> assertThat(results.get(0).isReserved()).isTrue())
+                .verifyComplete();
+        ledger.sync();
+
+        // an admin sets the stock to 2 while the 4 reserved in memory are not flushed yet
+        Product counted = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        counted.setId(1L);
+        when(repo.findById(1L)).thenReturn(Mono.just(counted));
+        when(repo.save(counted)).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        StepVerifier.create(service.updateStock(1L, 2))
+                .expectNextMatches(dto -> dto.getStock() == 2)
+                .verifyComplete();
+
+        Product empty = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 0, "");
+        empty.setId(1L);
+        when(repo.findShortOfStock(new Long[]{1L}, new Integer[]{4})).thenReturn(Flux.just(1L));
+        when(repo.applyStockDeltas(new Long[]{1L}, new Integer[]{4})).thenReturn(Flux.just(empty));
+        ledger.flushNow();
+
+        assertThat(meterRegistry.get("product.stock.ledger.shortfall").counter().count()).isEqualTo(1);
+        verify(outboxRepository).appendAll(List.of(empty), "SOLD");
+        // the counter still believed 6 were left; it is reloaded from the clamped row
+        when(repo.findAllById(anyIterable())).thenReturn(Flux.just(empty));
+        StepVerifier.create(ledger.reserveBatch(List.of(new ProductStockEvent(1L, 1, "SOLD"))))
+                .assertNext(results -> assertThat(results.get(0).getReason()).isEqualTo("Not enough stock"))
+                .verifyComplete();
+        verify(repo, times(2)).findAllById(anyIterable());
+        ledger.destroy();
+    }
+
+    @Test
+    void stockLedger_FlushClaimsEventIdsAndDropsReservationsAppliedElsewhere(@TempDir Path journalDir)
+            throws IOException {
+        StockLedgerCheckpointRepository checkpoints = mock(StockLedgerCheckpointRepository.class);
+        TransactionalOperator tx = mock(TransactionalOperator.class);
+        when(tx.transactional(ArgumentMatchers.<Mono<Set<Long>>>any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        when(checkpoints.createIfAbsent("p1")).thenReturn(Mono.just(1));
+        when(checkpoints.findJournalSeq("p1")).thenReturn(Mono.just(0L));
+        when(checkpoints.advance(eq("p1"), anyLong(), anyLong())).thenReturn(Mono.just(1));
+        when(processedEventRepository.claim(any(String[].class))).thenReturn(Flux.empty());
+        StockLedger ledger = new StockLedger(repo, outboxRepository, processedEventRepository, checkpoints, tx,
+                new SimpleMeterRegistry(), journalDir, 1 << 20, 4, "p1", Duration.ofSeconds(1));
+        ledger.afterPropertiesSet();
+
+        Product phone = new Product(null, "Phone", "Smartphone", "Electronics", 999.0, 10, "");
+        phone.setId(1L);
+        when(repo.findAllById(anyIterable())).thenReturn(Flux.just(phone));
+        StepVerifier.create(ledger.reserveBatch(List.of(
+                        new ProductStockEvent("pay-1", 1L, 2, "SOLD"),
+                        new ProductStockEvent("pay-2", 1L, 3, "SOLD"))))
+                .assertNext(results -> assertThat(results).allMatch(StockReservationResult::isReserved))
+                .verifyComplete();
+        ledger.sync();
+
+        // another instance applied pay-1 before the partition moved here
+        when(processedEventRepository.claim(new String[]{"pay-1", "pay-2"})).thenReturn(Flux.just("pay-2"));
+        when(repo.applyStockDeltas(new Long[]{1L}, new Integer[]{3})).thenReturn(Flux.just(phone));
+        ledger.flushNow();
+
+        InOrder flush = inOrder(checkpoints, processedEventRepository, repo);
+        flush.verify(checkpoints).advance("p1", 0L, 2L);
+        flush.verify(processedEventRepository).claim(new String[]{"pay-1", "pay-2"});
+        flush.verify(repo).applyStockDeltas(new Long[]{1L}, new Integer[]{3});
+
+        // the counter still held pay-1's reservation, so the product is reloaded
+        StepVerifier.create(ledger.reserveBatch(List.of(new ProductStockEvent("pay-3", 1L, 1, "SOLD"))))
+                .expectNextCount(1)
+                .verifyComplete();
+        verify(repo, times(2)).findAllById(anyIterable());
+        ledger.destroy();
+    }
+
     @Test
     void getProductById_FallbackTriggered() {
         when(repo.findById(anyLong()))
@@ -65,15 +700,95 @@ class ProductServiceTest {
     }
 
     @Test
-    void bulkheadShouldRejectWhenTooManyConcurrentRequests() {
-        List<Mono<ProductDto>> calls = IntStream.range(0, 20)
-                .mapToObj(i -> service.getById((long) i))
+    void concurrencyLimiterShouldRejectWhenTooManyConcurrentRequests() {
+        when(repo.findById(anyLong())).thenReturn(Mono.never());
+
+        List<Throwable> rejections = new CopyOnWriteArrayList<>();
+        List<Disposable> pending = IntStream.range(0, 20)
+                .mapToObj(i -> service.getById((long) i).subscribe(dto -> { }, rejections::add))
                 .toList();
 
-        StepVerifier.create(Flux.merge(calls))
-                .expectNextCount(10)  // 10 allowed
-                .expectErrorMatches(e -> e.getMessage().contains("Bulkhead"))
-                .verify();
+        assertThat(rejections).hasSize(10)  // 10 allowed, no thread is parked for them
+                .allMatch(e -> e instanceof ServiceUnavailableException);
+        assertThat(concurrencyLimiter.getInFlight()).isEqualTo(10);
+
+        pending.forEach(Disposable::dispose);
+        assertThat(concurrencyLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void paymentPoll_ReservesProductShardsInParallelKeepingPerProductOrder() {
+        ProductService productService = mock(ProductService.class);
+        List<List<ProductStockEvent>> calls = new CopyOnWriteArrayList<>();
+        when(productService.reserveStockBatch(anyList())).thenAnswer(invocation -> {
+            List<ProductStockEvent> shard = invocation.getArgument(0);
+            calls.add(shard);
+            return Mono.just(shard.stream()
+                    .map(e -> StockReservationResult.reserved(e.getProductId(), e.getNewStock()))
+                    .toList());
+        });
+        KafkaConsumerService consumer = new KafkaConsumerService(productService, productCache,
+                mock(ObjectProvider.class), processedEventIds(), Duration.ofSeconds(5), 2, new SimpleMeterRegistry());
+
+        List<ProductStockEvent> events = List.of(
+                new ProductStockEvent(1L, 1, "SOLD"),
+                new ProductStockEvent(2L, 2, "SOLD"),
+                new ProductStockEvent(1L, 3, "SOLD"),
+                new ProductStockEvent(4L, 4, "SOLD"),
+                new ProductStockEvent(3L, 5, "SOLD"));
+
+        StepVerifier.create(consumer.reserveInShards(events))
+                .assertNext(results -> assertThat(results)
+                        .extracting(StockReservationResult::getProductId, StockReservationResult::getQuantity)
+                        .containsExactly(tuple(1L, 1), tuple(2L, 2), tuple(1L, 3), tuple(4L, 4), tuple(3L, 5)))
+                .verifyComplete();
+
+        // one transaction per shard, every product in exactly one shard, in arrival order
+        assertThat(calls).hasSize(2);
+        assertThat(calls).anySatisfy(shard -> assertThat(shard)
+                .extracting(ProductStockEvent::getProductId, ProductStockEvent::getNewStock)
+                .containsExactly(tuple(1L, 1), tuple(1L, 3), tuple(3L, 5)));
+        assertThat(calls).anySatisfy(shard -> assertThat(shard)
+                .extracting(ProductStockEvent::getProductId)
+                .containsExactly(2L, 4L));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void paymentPoll_ShardThatKeepsFailingFailsThePoll() {
+        ProductService productService = mock(ProductService.class);
+        AtomicInteger failingAttempts = new AtomicInteger();
+        AtomicInteger committedShards = new AtomicInteger();
+        when(productService.reserveStockBatch(anyList())).thenAnswer(invocation -> {
+            List<ProductStockEvent> shard = invocation.getArgument(0);
+            if (shard.get(0).getProductId() == 2L) {
+                return Mono.<List<StockReservationResult>>error(new IllegalStateException("connection reset"))
+                        .doOnSubscribe(subscription -> failingAttempts.incrementAndGet());
+            }
+            return Mono.fromSupplier(() -> {
+                committedShards.incrementAndGet();
+                return shard.stream()
+                        .map(e -> StockReservationResult.reserved(e.getProductId(), e.getNewStock()))
+                        .toList();
+            });
+        });
+        KafkaConsumerService consumer = new KafkaConsumerService(productService, productCache,
+                mock(ObjectProvider.class), processedEventIds(), Duration.ofSeconds(5), 2, new SimpleMeterRegistry());
+
+        List<ProductStockEvent> events = List.of(
+                new ProductStockEvent(1L, 1, "SOLD"),
+                new ProductStockEvent(2L, 2, "SOLD"),
+                new ProductStockEvent(3L, 3, "SOLD"),
+                new ProductStockEvent(4L, 4, "SOLD"));
+
+        // products 1 and 3 share the committed shard, 2 and 4 the failing one; the infrastructure error
+        // reaches the listener so the poll is redelivered instead of reporting the payments as failed
+        StepVerifier.create(consumer.reserveInShards(events))
+                .expectErrorSatisfies(e -> assertThat(e).hasRootCauseMessage("connection reset"))
+                .verify();
+
+        assertThat(failingAttempts).hasValue(1 + KafkaConsumerService.SHARD_RETRIES);
+        assertThat(committedShards).hasValue(1);
+    }
 }
@@ -0,0 +1,105 @@
+package com.ecommerce.productservice.service;
+
+import com.ecommerce.productservice.customexception.ServiceUnavailableException;
+import com.ecommerce.productservice.dto.ProductDto;
+import com.ecommerce.productservice.repo.ProcessedEventRepository;
+import com.ecommerce.productservice.repo.ProductOutboxRepository;
+import com.ecommerce.productservice.repo.ProductRepository;
+import com.ecommerce.productservice.util.AdaptiveConcurrencyLimiter;
+import com.ecommerce.productservice.util.InFlightRequests;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.springboot3.circuitbreaker.autoconfigure.CircuitBreakerAutoConfiguration;
+import io.github.resilience4j.springboot3.ratelimiter.autoconfigure.RateLimiterAutoConfiguration;
+import io.github.resilience4j.springboot3.retry.autoconfigure.RetryAutoConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * getById through the real resilience4j aspects, with the service's own application.properties.
+ */
+@SpringBootTest(classes = ProductServiceResilienceTest.Config.class)
+class ProductServiceResilienceTest {
+
+    @Configuration
+    @ImportAutoConfiguration({AopAutoConfiguration.class, CircuitBreakerAutoConfiguration.class,
+            RetryAutoConfiguration.class, RateLimiterAutoConfiguration.class})
+    @Import(ProductService.class)
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        ProductCache productCache(MeterRegistry meterRegistry) {
+            return new ProductCache(100, Duration.ofMinutes(1), meterRegistry);
+        }
+
+        @Bean
+        InFlightRequests<Long, ProductDto> productByIdRequests(MeterRegistry meterRegistry) {
+            return new InFlightRequests<>("productById", meterRegistry);
+        }
+
+        @Bean
+        AdaptiveConcurrencyLimiter concurrencyLimiter(MeterRegistry meterRegistry) {
+            return new AdaptiveConcurrencyLimiter("productService", 1, 1, 1, 0.9, Duration.ofSeconds(1),
+                    meterRegistry);
+        }
+    }
+
+    @MockBean
+    ProductRepository productRepository;
+
+    @MockBean
+    ProductOutboxRepository outboxRepository;
+
+    @MockBean
+    ProcessedEventRepository processedEventRepository;
+
+    @Autowired
+    ProductService service;
+
+    @Autowired
+    AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    CircuitBreakerRegistry circuitBreakers;
+
+    @Test
+    void getById_LimiterRejectionIsA503NotADegradedProduct() {
+        when(productRepository.findById(anyLong())).thenReturn(Mono.empty());
+        // the only permit is taken, so the lookup is shed
+        Disposable busy = concurrencyLimiter.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(service.getById(1L))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+        busy.dispose();
+
+        // neither retried nor counted against the breaker
+        verify(productRepository, times(1)).findById(anyLong());
+        assertThat(circuitBreakers.circuitBreaker("productServiceCB").getMetrics().getNumberOfFailedCalls())
+                .isZero();
+    }
+}
@@ -0,0 +1,57 @@
+package com.ecommerce.productservice.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test",
+            4, 2, 8, 0.5, Duration.ofMillis(100), registry, nanos::get);
+
+    @Test
+    void growsWhileBusyAndFastThenHalvesOnSlowOrTimedOutCalls() {
+        // fast calls while the limit is in use: +1 per limit's worth of calls
+        for (int i = 0; i < 40; i++) {
+            Sinks.One<Integer> first = Sinks.one();
+            Sinks.One<Integer> second = Sinks.one();
+            limiter.limit(first.asMono()).subscribe();
+            limiter.limit(second.asMono()).subscribe();
+            first.tryEmitValue(i);
+            second.tryEmitValue(i);
+        }
+        assertThat(limiter.getLimit()).isGreaterThan(4);
+
+        int before = limiter.getLimit();
+        StepVerifier.create(limiter.limit(Mono.fromSupplier(() -> nanos.addAndGet(200_000_000L))))
+                .expectNextCount(1).verifyComplete();
+        assertThat(limiter.getLimit()).isEqualTo(Math.max(before / 2, 2));
+
+        StepVerifier.create(limiter.limit(Mono.error(new TimeoutException()))).expectError().verify();
+        StepVerifier.create(limiter.limit(Mono.error(new TimeoutException()))).expectError().verify();
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void exportsLimitInFlightAndRejections() {
+        Mono<Object> hanging = Mono.never();
+        for (int i = 0; i < 5; i++) {
+            limiter.limit(hanging).subscribe(v -> { }, e -> { });
+        }
+
+        assertThat(registry.get("concurrency.limit").tag("name", "test").gauge().value()).isEqualTo(4.0);
+        assertThat(registry.get("concurrency.inflight").tag("name", "test").gauge().value()).isEqualTo(4.0);
+        assertThat(registry.get("concurrency.rejected").tag("name", "test").counter().count()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecommerce.productservice.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysSyncedRecordsAfterCheckpointAndIgnoresTornTail() throws IOException {
+        try (StockJournal journal = new StockJournal(dir, 1 << 20, 0)) {
+            journal.append(new long[]{7, 8, 7}, new int[]{2, 1, 3}, new String[]{"pay-1", null, "pay-3"}, 3);
+            journal.sync();
+        }
+        try (var files = Files.list(dir)) {
+            Path segment = files.findFirst().orElseThrow();
+            // a crash in the middle of the next record
+            Files.write(segment, new byte[]{1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        }
+
+        StockJournal.Batch all = StockJournal.replay(dir, 0);
+        assertThat(all.upToSeq()).isEqualTo(3);
+        assertThat(all.deltas()).isEqualTo(Map.of(7L, 5L, 8L, 1L));
+        assertThat(all.reservations()).containsExactly(
+                new StockJournal.Reservation("pay-1", 7, 2), new StockJournal.Reservation("pay-3", 7, 3));
+
+        StockJournal.Batch afterFirst = StockJournal.replay(dir, 1);
+        assertThat(afterFirst.fromSeq()).isEqualTo(1);
+        assertThat(afterFirst.deltas()).isEqualTo(Map.of(7L, 3L, 8L, 1L));
+        assertThat(afterFirst.reservations()).containsExactly(new StockJournal.Reservation("pay-3", 7, 3));
+    }
+
+    @Test
+    void retriesTheSameBatchUntilFlushedAndDropsObsoleteSegments() throws IOException {
+        try (StockJournal journal = new StockJournal(dir, StockJournal.RECORD_BYTES * 2L, 10)) {
+            journal.append(new long[]{7, 7}, new int[]{1, 1}, new String[2], 2);
+            journal.sync();
+            journal.append(new long[]{8}, new int[]{4}, new String[1], 1);
+            journal.sync();
+
+            StockJournal.Batch batch = journal.drain();
+            assertThat(batch.fromSeq()).isEqualTo(10);
+            assertThat(batch.upToSeq()).isEqualTo(13);
+            assertThat(journal.pendingDelta(7L)).isEqualTo(2);
+
+            journal.append(new long[]{7}, new int[]{5}, new String[]{"pay-9"}, 1);
+            // the write failed: the next drain hands out the very same batch
+            assertThat(journal.drain()).isSameAs(batch);
+            assertThat(journal.pendingDelta(7L)).isEqualTo(7);
+
+            journal.flushed(batch);
+            assertThat(journal.flushedSeq()).isEqualTo(13);
+            assertThat(journal.pendingDelta(7L)).isEqualTo(5);
+            try (var files = Files.list(dir)) {
+                assertThat(files.count()).isEqualTo(1);
+            }
+            StockJournal.Batch next = journal.drain();
+            assertThat(next.deltas()).isEqualTo(Map.of(7L, 5L));
+            assertThat(next.reservations()).containsExactly(new StockJournal.Reservation("pay-9", 7, 5));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.r2dbc;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+class TimedConnectionFactoryTest {
+
+    @Test
+    void recordsAcquireTimeByOutcomeAndExposesThePool() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConnectionFactory pool = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        TimedConnectionFactory timed = new TimedConnectionFactory("primary", pool, meterRegistry);
+
+        doReturn(Mono.just(connection)).when(pool).create();
+        StepVerifier.create(timed.create()).expectNext(connection).verifyComplete();
+        StepVerifier.create(timed.create()).expectNext(connection).verifyComplete();
+
+        doReturn(Mono.error(new TimeoutException("acquire timeout"))).when(pool).create();
+        StepVerifier.create(timed.create()).verifyError(TimeoutException.class);
+
+        assertThat(meterRegistry.get("r2dbc.pool.acquire").tags("name", "primary", "outcome", "success")
+                .timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("r2dbc.pool.acquire").tags("name", "primary", "outcome", "error")
+                .timer().count()).isEqualTo(1);
+        assertThat(timed.unwrap()).isSameAs(pool);
+    }
+}
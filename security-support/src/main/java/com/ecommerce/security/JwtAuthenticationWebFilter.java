@@ -0,0 +1,52 @@
+package com.ecommerce.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Authenticates requests carrying "Authorization: Bearer &lt;jwt&gt;".
+ * <p>
+ * Business rules:
+ * 1. Requests without a bearer token pass through anonymously; authorization rules decide
+ * 2. An invalid or expired token is answered with 401 right away
+ * 3. A valid token puts its user and roles in the reactive security context for this request only
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtVerifier jwtVerifier;
+
+    /**
+     * Constructor for JwtAuthenticationWebFilter.
+     *
+     * @param jwtVerifier the token verifier
+     */
+    public JwtAuthenticationWebFilter(JwtVerifier jwtVerifier) {
+        this.jwtVerifier = jwtVerifier;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return chain.filter(exchange);
+        }
+        return jwtVerifier.verify(header.substring(BEARER_PREFIX.length()).trim())
+                .map(token -> chain.filter(exchange)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(token.getAuthentication())))
+                .orElseGet(() -> {
+                    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+                    exchange.getResponse().getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer error=\"invalid_token\"");
+                    return exchange.getResponse().setComplete();
+                });
+    }
+}
@@ -0,0 +1,186 @@
+package com.ecommerce.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Verifies HS256 tokens issued by user-service, locally and without any remote call.
+ * Shared by every service that accepts those tokens, user-service included.
+ * <p>
+ * Business rules:
+ * 1. Signature and "exp" are checked with the shared secret; tokens without "exp" are rejected
+ * 2. Verified tokens are cached by their SHA-256 hash (the raw token is never kept),
+ *    so repeat requests skip the HMAC and the JSON parse
+ * 3. A cached token expires from the cache when its "exp" passes, and is re-checked on every hit
+ * 4. Publishes hit, miss and eviction counters to the Micrometer registry as "jwtCache"
+ *
+ * @author JackyChen
+ * @since 2025-04-01
+ */
+public class JwtVerifier {
+
+    static final String CACHE_NAME = "jwtCache";
+
+    private final JwtParser parser;
+    private final Cache<String, VerifiedToken> cache;
+    private final Clock clock;
+
+    /**
+     * Constructor for JwtVerifier.
+     *
+     * @param signingKey the HMAC key the tokens are signed with
+     * @param maxCachedTokens the maximum number of cached verified tokens
+     * @param meterRegistry the registry the cache statistics are bound to
+     */
+    public JwtVerifier(SecretKey signingKey, long maxCachedTokens, MeterRegistry meterRegistry) {
+        this(signingKey, maxCachedTokens, meterRegistry, Clock.systemUTC());
+    }
+
+    JwtVerifier(SecretKey signingKey, long maxCachedTokens, MeterRegistry meterRegistry, Clock clock) {
+        this.clock = clock;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .setClock(() -> Date.from(clock.instant()))
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxCachedTokens)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        return Math.max(0, Duration.between(clock.instant(), token.getExpiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Verifies a compact JWS.
+     *
+     * @param token the token from the Authorization header, without the "Bearer " prefix
+     * @return the verified token, or empty if the signature, format or expiry is invalid
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        String key = fingerprint(token);
+        VerifiedToken cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (cached.getExpiresAt().isAfter(clock.instant())) {
+                return Optional.of(cached);
+            }
+            cache.invalidate(key);
+            return Optional.empty();
+        }
+        VerifiedToken verified = parse(token);
+        if (verified == null) {
+            return Optional.empty();
+        }
+        cache.put(key, verified);
+        return Optional.of(verified);
+    }
+
+    private VerifiedToken parse(String token) {
+        Claims claims;
+        try {
+            claims = parser.parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims.getExpiration() == null || claims.getSubject() == null) {
+            return null;
+        }
+        String username = claims.get("username", String.class);
+        List<GrantedAuthority> authorities = toAuthorities(claims.get("roles", String.class));
+        Authentication authentication = new UsernamePasswordAuthenticationToken(
+                username != null ? username : claims.getSubject(), null, authorities);
+        return new VerifiedToken(claims.getSubject(), claims.getExpiration().toInstant(), authentication);
+    }
+
+    /** "USER,ADMIN" becomes [ROLE_USER, ROLE_ADMIN]. */
+    static List<GrantedAuthority> toAuthorities(String roles) {
+        if (roles == null || roles.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(roles.split(","))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .map(role -> role.toUpperCase(Locale.ROOT))
+                .map(role -> role.startsWith("ROLE_") ? role : "ROLE_" + role)
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+    }
+
+    private static String fingerprint(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A token whose signature has been verified.
+     */
+    public static final class VerifiedToken {
+        /** The user ID ("sub" claim). */
+        private final String subject;
+        /** The "exp" claim. */
+        private final Instant expiresAt;
+        /** The authenticated principal with its ROLE_ authorities, built once per token. */
+        private final Authentication authentication;
+
+        VerifiedToken(String subject, Instant expiresAt, Authentication authentication) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
+            this.authentication = authentication;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+
+        public Authentication getAuthentication() {
+            return authentication;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecommerce.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthenticationWebFilterTest {
+
+    private static final SecretKey KEY =
+            Keys.hmacShaKeyFor("changeitpleasechangemeplease32chars".getBytes(StandardCharsets.UTF_8));
+
+    private final JwtAuthenticationWebFilter filter =
+            new JwtAuthenticationWebFilter(new JwtVerifier(KEY, 100, new SimpleMeterRegistry()));
+    private final AtomicReference<Authentication> seen = new AtomicReference<>();
+    private boolean chained;
+
+    @Test
+    void passesRequestsWithoutBearerTokenThroughAnonymously() {
+        MockServerWebExchange exchange = exchange(null);
+
+        StepVerifier.create(filter.filter(exchange, chain())).verifyComplete();
+
+        assertThat(chained).isTrue();
+        assertThat(seen.get()).isNull();
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+    }
+
+    @Test
+    void putsTheTokenUserInTheSecurityContext() {
+        String token = Jwts.builder()
+                .setSubject("42")
+                .claim("username", "alice")
+                .claim("roles", "USER")
+                .setExpiration(Date.from(Instant.now().plus(Duration.ofHours(1))))
+                .signWith(KEY)
+                .compact();
+
+        StepVerifier.create(filter.filter(exchange("bearer " + token), chain())).verifyComplete();
+
+        assertThat(chained).isTrue();
+        assertThat(seen.get().getName()).isEqualTo("alice");
+    }
+
+    @Test
+    void answersInvalidTokensWith401WithoutCallingTheChain() {
+        MockServerWebExchange exchange = exchange("Bearer not-a-jwt");
+
+        StepVerifier.create(filter.filter(exchange, chain())).verifyComplete();
+
+        assertThat(chained).isFalse();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.WWW_AUTHENTICATE))
+                .isEqualTo("Bearer error=\"invalid_token\"");
+    }
+
+    private static MockServerWebExchange exchange(String authorization) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/products");
+        if (authorization != null) {
+            request.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private WebFilterChain chain() {
+        return exchange -> {
+            chained = true;
+            return ReactiveSecurityContextHolder.getContext()
+                    .map(SecurityContext::getAuthentication)
+                    .doOnNext(seen::set)
+                    .then(Mono.empty());
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecommerce.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtVerifierTest {
+
+    private static final SecretKey KEY =
+            Keys.hmacShaKeyFor("changeitpleasechangemeplease32chars".getBytes(StandardCharsets.UTF_8));
+    private static final Instant NOW = Instant.parse("2025-04-01T10:00:00Z");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final JwtVerifier verifier = new JwtVerifier(KEY, 100, registry, Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @Test
+    void verifiesOnceThenServesRepeatRequestsFromCache() {
+        String token = token(KEY, "42", "ADMIN,USER", NOW.plus(Duration.ofHours(1)));
+
+        JwtVerifier.VerifiedToken first = verifier.verify(token).orElseThrow();
+        assertThat(first.getSubject()).isEqualTo("42");
+        assertThat(first.getAuthentication().getName()).isEqualTo("alice");
+        assertThat(first.getAuthentication().getAuthorities())
+                .extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN", "ROLE_USER");
+
+        assertThat(verifier.verify(token)).containsSame(first);
+        assertThat(registry.get("cache.gets").tag("cache", JwtVerifier.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void rejectsExpiredForgedAndMalformedTokens() {
+        SecretKey otherKey = Keys.hmacShaKeyFor("another-secret-another-secret-0123".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(verifier.verify(token(KEY, "42", "USER", NOW.minusSeconds(1)))).isEmpty();
+        assertThat(verifier.verify(token(otherKey, "42", "ADMIN", NOW.plusSeconds(60)))).isEmpty();
+        assertThat(verifier.verify("not-a-jwt")).isEmpty();
+    }
+
+    private static String token(SecretKey key, String subject, String roles, Instant expiresAt) {
+        return Jwts.builder()
+                .setSubject(subject)
+                .claim("username", "alice")
+                .claim("roles", roles)
+                .setIssuedAt(Date.from(NOW))
+                .setExpiration(Date.from(expiresAt))
+                .signWith(key)
+                .compact();
+    }
+}
@@ -0,0 +1,43 @@
+package com.ecommerce.userservice.config;
+
+import com.ecommerce.r2dbc.TimedConnectionFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * R2DBC pool extras on top of spring.r2dbc.pool.*: a bounded prepared-statement cache on the driver
+ * and acquire-time metrics for the pool.
+ */
+@Configuration
+public class R2dbcPoolConfig {
+
+    /**
+     * Keeps the most recent statements parsed per connection so login lookups skip the Parse round trip.
+     */
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer preparedStatementCacheCustomizer(
+            @Value("${user.r2dbc.statement-cache-size:64}") int statementCacheSize) {
+        return options -> options.option(PostgresqlConnectionFactoryProvider.PREPARED_STATEMENT_CACHE_QUERIES,
+                statementCacheSize);
+    }
+
+    @Bean
+    public static BeanPostProcessor timedConnectionPoolPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof ConnectionPool pool) {
+                    return new TimedConnectionFactory(beanName, pool, meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
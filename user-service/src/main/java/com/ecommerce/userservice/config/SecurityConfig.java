@@ -1,28 +1,51 @@
 package com.ecommerce.userservice.config;
 
+import com.ecommerce.security.JwtAuthenticationWebFilter;
+import com.ecommerce.security.JwtVerifier;
+import com.ecommerce.userservice.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.config.Customizer;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
 
 /**
- * Basic reactive security config - permit /api/users/register and /api/users/login for now.
- * JWT filter and RBAC should be implemented and wired here for production.
+ * Reactive security config - /api/users/register and /api/users/login are public,
+ * everything else needs a valid JWT (stateless, no session, no HTTP Basic).
  */
 @Configuration
 public class SecurityConfig {
 
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtVerifier jwtVerifier) {
         return http
                 .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+                .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterAt(new JwtAuthenticationWebFilter(jwtVerifier), SecurityWebFiltersOrder.AUTHENTICATION)
                 .authorizeExchange(exchanges -> exchanges
-                        .pathMatchers("/users/register", "/users/login", "/actuator/**").permitAll()
+                        .pathMatchers("/api/users/register", "/api/users/login", "/api/users/availability",
+                                "/actuator/**").permitAll()
                         .anyExchange().authenticated()
                 )
-                // Instead of formLogin(), use HTTP Basic or your custom authentication entrypoint
-                .httpBasic(Customizer.withDefaults())
                 .build();
     }
+
+    /**
+     * Verifies tokens with the same key JwtUtil signs them with.
+     */
+    @Bean
+    public JwtVerifier jwtVerifier(JwtUtil jwtUtil,
+                                   @Value("${jwt.cache.max-size:100000}") long maxCachedTokens,
+                                   MeterRegistry meterRegistry) {
+        return new JwtVerifier(jwtUtil.getSigningKey(), maxCachedTokens, meterRegistry);
+    }
 }
@@ -1,10 +1,21 @@
 package com.ecommerce.userservice.config;
 
 import com.ecommerce.userservice.repo.UserRepository;
+import com.ecommerce.userservice.service.PasswordHasher;
+import com.ecommerce.userservice.service.TakenNamesFilter;
+import com.ecommerce.userservice.service.UserCache;
 import com.ecommerce.userservice.service.UserService;
 import com.ecommerce.userservice.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
 
 /**
  * Manual bean wiring for service implementation to allow easy unit testing.
@@ -13,7 +24,49 @@ import org.springframework.context.annotation.Configuration;
 public class ServiceConfig {
 
     @Bean
-    public UserService userService(UserRepository userRepository, JwtUtil jwtUtil) {
-        return new UserService(userRepository, jwtUtil);
+    public UserService userService(UserRepository userRepository, JwtUtil jwtUtil, PasswordHasher passwordHasher,
+                                   UserCache userCache, TakenNamesFilter takenNamesFilter) {
+        return new UserService(userRepository, jwtUtil, passwordHasher, userCache, takenNamesFilter);
+    }
+
+    /**
+     * Bloom filter of taken usernames and emails, rebuilt from the database in the background.
+     */
+    @Bean
+    public TakenNamesFilter takenNamesFilter(UserRepository userRepository,
+                                             @Value("${user.names-filter.min-expected-insertions:100000}") long minExpected,
+                                             @Value("${user.names-filter.fpp:0.01}") double fpp,
+                                             @Value("${user.names-filter.rebuild-interval:15m}") Duration rebuildInterval,
+                                             MeterRegistry meterRegistry) {
+        TakenNamesFilter filter = new TakenNamesFilter(userRepository, minExpected, fpp, meterRegistry);
+        filter.start(rebuildInterval);
+        return filter;
+    }
+
+    /**
+     * Near cache per instance over the Redis tier; invalidations arrive on a Redis channel.
+     */
+    @Bean
+    public UserCache userCache(@Value("${user.cache.max-size:100000}") long maxSize,
+                               @Value("${user.cache.near-ttl:30s}") Duration nearTtl,
+                               @Value("${user.cache.shared-ttl:10m}") Duration sharedTtl,
+                               @Value("${user.cache.negative-ttl:30s}") Duration negativeTtl,
+                               @Value("${user.cache.redis-timeout:100ms}") Duration redisTimeout,
+                               ReactiveStringRedisTemplate redisTemplate,
+                               ReactiveRedisConnectionFactory redisConnectionFactory,
+                               ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        return new UserCache(maxSize, nearTtl, sharedTtl, negativeTtl, redisTimeout, redisTemplate,
+                redisConnectionFactory, objectMapper, meterRegistry);
+    }
+
+    /**
+     * Bounded BCrypt pool; threads default to the number of cores since hashing is pure CPU.
+     */
+    @Bean
+    public PasswordHasher passwordHasher(@Value("${user.password-hashing.threads:0}") int threads,
+                                         @Value("${user.password-hashing.queue-capacity:64}") int queueCapacity,
+                                         MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new PasswordHasher(new BCryptPasswordEncoder(), poolSize, queueCapacity, meterRegistry);
     }
 }
@@ -0,0 +1,20 @@
+package com.ecommerce.userservice.domain;
+
+/**
+ * Outcome of {@code UserRepository.insertIfAbsent}: the new user's id, or null when a unique key conflicted,
+ * and which keys were already taken. Both flags can be false on a conflict with a signup that committed
+ * while the statement ran.
+ */
+public class SignupResult {
+    public Long id;
+    public boolean usernameTaken;
+    public boolean emailTaken;
+
+    public SignupResult() {}
+
+    public SignupResult(Long id, boolean usernameTaken, boolean emailTaken) {
+        this.id = id;
+        this.usernameTaken = usernameTaken;
+        this.emailTaken = emailTaken;
+    }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
 /**
@@ -17,6 +18,7 @@ public class User {
     public String username;
     public String email;
     public String passwordHash;
+    @Column("role")
     public String roles; // comma-separated roles
 
     public User() {}
@@ -0,0 +1,14 @@
+package com.ecommerce.userservice.dto;
+
+/**
+ * Whether a username and an email are still free; a field is null when it was not asked for.
+ */
+public class AvailabilityResponse {
+    public Boolean usernameAvailable;
+    public Boolean emailAvailable;
+
+    public AvailabilityResponse(Boolean usernameAvailable, Boolean emailAvailable) {
+        this.usernameAvailable = usernameAvailable;
+        this.emailAvailable = emailAvailable;
+    }
+}
@@ -1,7 +1,10 @@
 package com.ecommerce.userservice.repo;
 
+import com.ecommerce.userservice.domain.SignupResult;
 import com.ecommerce.userservice.domain.User;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -11,4 +14,36 @@ public interface UserRepository extends ReactiveCrudRepository<User, Long> {
     Mono<User> findByUsername(String username);
     Mono<User> findByEmail(String email);
     Mono<User> findByUsernameOrEmail(String username, String email);
+
+    /**
+     * Offset page evaluated by the database (legacy page-number clients).
+     */
+    @Query("SELECT * FROM users ORDER BY id LIMIT :limit OFFSET :offset")
+    Flux<User> findPage(int limit, long offset);
+
+    /**
+     * Keyset page: users with an id greater than {@code afterId}, in id order.
+     */
+    @Query("SELECT * FROM users WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<User> findPageAfterId(long afterId, int limit);
+
+    /**
+     * Registers a user in one atomic statement: inserts unless the username or email is taken and reports
+     * which one was. The EXISTS checks see the table as it was before the INSERT, so they are false for
+     * the row this statement inserted.
+     */
+    @Query("WITH inserted AS ("
+            + "INSERT INTO users (username, email, password_hash, role) "
+            + "VALUES (:username, :email, :passwordHash, :role) "
+            + "ON CONFLICT DO NOTHING RETURNING id) "
+            + "SELECT (SELECT id FROM inserted) AS id, "
+            + "EXISTS (SELECT 1 FROM users WHERE username = :username) AS username_taken, "
+            + "EXISTS (SELECT 1 FROM users WHERE email = :email) AS email_taken")
+    Mono<SignupResult> insertIfAbsent(String username, String email, String passwordHash, String role);
+
+    /**
+     * Usernames and emails of all users (other columns are left null), for the taken-names filter.
+     */
+    @Query("SELECT username, email FROM users")
+    Flux<User> findAllNames();
 }
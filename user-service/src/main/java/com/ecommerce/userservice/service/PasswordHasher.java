@@ -0,0 +1,82 @@
+package com.ecommerce.userservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated, bounded worker pool so it never blocks
+ * the Netty event loop.
+ * When all workers are busy and the queue is full, new work fails fast with a
+ * {@link RejectedExecutionException} (mapped to 503 by the controller) instead of piling up.
+ * Publishes executor metrics (queue depth, active workers) as "user.password.hashing"
+ * and the hash time as the "user.password.hash" timer.
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Scheduler scheduler;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, int threads, int queueCapacity, MeterRegistry registry) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Schedulers.fromExecutorService(executor, "password-hashing");
+        new ExecutorServiceMetrics(executor, "user.password.hashing", Tags.empty()).bindTo(registry);
+        this.encodeTimer = Timer.builder("user.password.hash").tag("operation", "encode")
+                .description("BCrypt time, excluding the wait in the queue").register(registry);
+        this.matchesTimer = Timer.builder("user.password.hash").tag("operation", "matches")
+                .description("BCrypt time, excluding the wait in the queue").register(registry);
+        this.rejected = Counter.builder("user.password.hash.rejected")
+                .description("Hashing requests rejected because the pool and its queue were full").register(registry);
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return offload(Mono.fromCallable(() -> encodeTimer.recordCallable(() -> passwordEncoder.encode(rawPassword))));
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return offload(Mono.fromCallable(() -> matchesTimer.recordCallable(
+                () -> passwordEncoder.matches(rawPassword, encodedPassword))));
+    }
+
+    private <T> Mono<T> offload(Mono<T> work) {
+        return work.subscribeOn(scheduler)
+                .doOnError(RejectedExecutionException.class, e -> rejected.increment());
+    }
+
+    @Override
+    public void close() {
+        scheduler.dispose();
+        executor.shutdown();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "password-hashing-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ecommerce.userservice.service;
+
+import com.ecommerce.userservice.domain.User;
+import com.ecommerce.userservice.repo.UserRepository;
+import com.ecommerce.userservice.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * In-memory Bloom filter of the usernames and emails already taken, so that registration and the
+ * availability check can skip the database for names that are definitely free.
+ * The filter is rebuilt from the users table every rebuild interval (sized for twice the current user count,
+ * so it stays near its target false-positive rate as users sign up) and every registration served here
+ * is added right away. A name registered on another instance is only seen after the next rebuild; the
+ * unique constraints still reject it, so a stale filter can cost a late conflict but never a duplicate.
+ * Until the first build completes every name counts as possibly taken.
+ * Publishes "user.names.filter.fpp" (expected false-positive rate), ".bits", ".entries" and the
+ * "user.names.filter.checks" counter tagged free / maybe / false_positive.
+ */
+public class TakenNamesFilter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TakenNamesFilter.class);
+
+    private final UserRepository repo;
+    private final long minExpectedInsertions;
+    private final double fpp;
+    private final Counter free;
+    private final Counter maybe;
+    private final Counter falsePositives;
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+    private Disposable rebuilds;
+
+    public TakenNamesFilter(UserRepository repo, long minExpectedInsertions, double fpp, MeterRegistry meterRegistry) {
+        this.repo = repo;
+        this.minExpectedInsertions = minExpectedInsertions;
+        this.fpp = fpp;
+        Gauge.builder("user.names.filter.fpp", this, f -> f.current != null ? f.current.expectedFpp() : 1.0)
+                .description("Expected false-positive rate of the taken-names filter at its current fill")
+                .register(meterRegistry);
+        Gauge.builder("user.names.filter.bits", this, f -> f.current != null ? f.current.bitSize() : 0)
+                .description("Size of the taken-names filter").baseUnit("bits").register(meterRegistry);
+        Gauge.builder("user.names.filter.entries", this,
+                        f -> f.current != null ? f.current.approximateElementCount() : 0)
+                .description("Usernames and emails in the taken-names filter").register(meterRegistry);
+        this.free = checks("free", meterRegistry);
+        this.maybe = checks("maybe", meterRegistry);
+        this.falsePositives = checks("false_positive", meterRegistry);
+    }
+
+    private static Counter checks(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("user.names.filter.checks").tag("result", result)
+                .description("Taken-names filter lookups; false_positive: maybe, but the database had no match")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the filter now and then every {@code interval}; a failed rebuild keeps the previous filter.
+     */
+    public void start(Duration interval) {
+        rebuilds = Flux.interval(Duration.ZERO, interval)
+                .concatMap(tick -> rebuild().onErrorResume(e -> {
+                    log.warn("Rebuilding the taken-names filter failed, keeping the previous one", e);
+                    return Mono.empty();
+                }))
+                .subscribe();
+    }
+
+    /**
+     * Rebuilds the filter from the users table and swaps it in.
+     */
+    public Mono<Void> rebuild() {
+        return repo.count()
+                .flatMap(count -> {
+                    // two entries per user, with room for the user count to double before the next rebuild
+                    BloomFilter next = BloomFilter.create(Math.max(4 * count, minExpectedInsertions), fpp);
+                    building = next;
+                    return repo.findAllNames()
+                            .doOnNext(user -> put(next, user.username, user.email))
+                            .then(Mono.fromRunnable(() -> {
+                                current = next;
+                                building = null;
+                                log.info("Taken-names filter rebuilt: {} users, {} bits", count, next.bitSize());
+                            }));
+                })
+                .doOnError(e -> building = null)
+                .then();
+    }
+
+    /**
+     * Records a newly registered user.
+     */
+    public void add(User user) {
+        put(current, user.username, user.email);
+        // a rebuild in progress may have read the table before this user was inserted
+        put(building, user.username, user.email);
+    }
+
+    /**
+     * False only when every given value (null ones are ignored) is definitely free.
+     */
+    public boolean mightBeTaken(String username, String email) {
+        BloomFilter filter = current;
+        boolean result = filter == null
+                || username != null && filter.mightContain(usernameKey(username))
+                || email != null && filter.mightContain(emailKey(email));
+        (result ? maybe : free).increment();
+        return result;
+    }
+
+    /**
+     * Reports that a name the filter could not rule out turned out to be free.
+     */
+    public void falsePositive() {
+        falsePositives.increment();
+    }
+
+    private static void put(BloomFilter filter, String username, String email) {
+        if (filter == null) {
+            return;
+        }
+        if (username != null) {
+            filter.put(usernameKey(username));
+        }
+        if (email != null) {
+            filter.put(emailKey(email));
+        }
+    }
+
+    private static String usernameKey(String username) {
+        return "u:" + username;
+    }
+
+    private static String emailKey(String email) {
+        return "e:" + email;
+    }
+
+    @Override
+    public void close() {
+        if (rebuilds != null) {
+            rebuilds.dispose();
+        }
+    }
+}
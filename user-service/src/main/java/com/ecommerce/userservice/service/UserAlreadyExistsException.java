@@ -0,0 +1,19 @@
+package com.ecommerce.userservice.service;
+
+/**
+ * A registration conflicted with an existing user; mapped to 409 Conflict by the controller.
+ */
+public class UserAlreadyExistsException extends RuntimeException {
+
+    /** The unique key that conflicted: "username", "email", or "username or email" when unknown. */
+    private final String field;
+
+    public UserAlreadyExistsException(String field) {
+        super(Character.toUpperCase(field.charAt(0)) + field.substring(1) + " already exists");
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+}
@@ -0,0 +1,259 @@
+package com.ecommerce.userservice.service;
+
+import com.ecommerce.userservice.domain.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier read-through cache of users for profile and login lookups: a bounded in-process near cache
+ * in front of a Redis tier shared by all instances, in front of Postgres.
+ * Unknown users are cached as well (negative entries, with a shorter TTL) so probing for names that do
+ * not exist does not reach the database. Changing a user deletes its Redis keys and broadcasts them on
+ * {@link #INVALIDATION_CHANNEL}, on which every instance evicts its near cache; the near TTL bounds the
+ * staleness of an instance that missed a message. Redis failures and timeouts fall through to the database.
+ * Redis only holds profile projections without the password hash; LOGIN entries carry the hash and stay in
+ * the near cache, so a login that misses it reads the hash from the database.
+ * Near cache statistics are published as "userCache", Redis lookups as "user.cache.shared".
+ */
+public class UserCache implements AutoCloseable {
+
+    static final String CACHE_NAME = "userCache";
+    static final String INVALIDATION_CHANNEL = "user-cache-invalidation";
+    static final String KEY_PREFIX = "user:";
+    /** Redis value of a negative entry; never valid JSON. */
+    static final String ABSENT = "-";
+
+    private static final Logger log = LoggerFactory.getLogger(UserCache.class);
+
+    /**
+     * The lookups a user is cached under.
+     */
+    public enum Kind {
+        ID(true), USERNAME(true), EMAIL(true), LOGIN(false);
+
+        /** Whether entries go to Redis; LOGIN needs the password hash, which never leaves the instance. */
+        final boolean shared;
+
+        Kind(boolean shared) {
+            this.shared = shared;
+        }
+
+        String key(Object value) {
+            return KEY_PREFIX + name().toLowerCase(Locale.ROOT) + ":" + value;
+        }
+    }
+
+    /**
+     * What the Redis tier stores of a user: everything but the password hash.
+     */
+    record Profile(Long id, String username, String email, String roles) {
+
+        static Profile of(User user) {
+            return new Profile(user.id, user.username, user.email, user.roles);
+        }
+
+        User toUser() {
+            User user = new User(username, email, null, roles);
+            user.id = id;
+            return user;
+        }
+    }
+
+    private final Cache<String, Optional<User>> near;
+    private final ReactiveStringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final Duration sharedTtl;
+    private final Duration negativeTtl;
+    private final Duration redisTimeout;
+    private final Counter sharedHits;
+    private final Counter sharedMisses;
+    private final Counter sharedErrors;
+    private final Disposable invalidations;
+
+    /**
+     * @param redis the shared tier; null keeps the cache in-process only
+     * @param connectionFactory where invalidations from other instances are received; null if redis is null
+     */
+    public UserCache(long maxSize, Duration nearTtl, Duration sharedTtl, Duration negativeTtl, Duration redisTimeout,
+                     ReactiveStringRedisTemplate redis, ReactiveRedisConnectionFactory connectionFactory,
+                     ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.sharedTtl = sharedTtl;
+        this.negativeTtl = negativeTtl;
+        this.redisTimeout = redisTimeout;
+        long nearNanos = nearTtl.toNanos();
+        long negativeNanos = Math.min(nearNanos, negativeTtl.toNanos());
+        this.near = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Optional<User>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<User> user, long currentTime) {
+                        return user.isPresent() ? nearNanos : negativeNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<User> user, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, user, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<User> user, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, near, CACHE_NAME);
+        this.sharedHits = sharedCounter("hit", meterRegistry);
+        this.sharedMisses = sharedCounter("miss", meterRegistry);
+        this.sharedErrors = sharedCounter("error", meterRegistry);
+        // the listener connects eagerly, so it is created inside the retry loop: no Redis at startup only delays it
+        this.invalidations = connectionFactory == null ? null : Flux.usingWhen(
+                        Mono.fromCallable(() -> new ReactiveRedisMessageListenerContainer(connectionFactory)),
+                        container -> container.receive(ChannelTopic.of(INVALIDATION_CHANNEL)),
+                        ReactiveRedisMessageListenerContainer::destroyLater)
+                .doOnNext(message -> evictNear(message.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("User cache invalidation subscription failed, retrying",
+                                signal.failure())))
+                .subscribe();
+    }
+
+    private static Counter sharedCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("user.cache.shared").tag("result", result)
+                .description("Lookups in the Redis tier of the user cache").register(meterRegistry);
+    }
+
+    /**
+     * Looks a user up in the near cache, then in Redis, then with {@code loader}; every tier that missed
+     * is filled on the way back, including with a negative entry when the loader finds nothing.
+     */
+    public Mono<User> get(Kind kind, Object value, Supplier<Mono<User>> loader) {
+        String key = kind.key(value);
+        return Mono.defer(() -> {
+            Optional<User> cached = near.getIfPresent(key);
+            if (cached != null) {
+                return Mono.justOrEmpty(cached);
+            }
+            return readShared(kind, key)
+                    .switchIfEmpty(Mono.defer(() -> loader.get()
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .flatMap(loaded -> writeShared(kind, key, loaded).thenReturn(loaded))))
+                    .doOnNext(loaded -> near.put(key, loaded))
+                    .flatMap(Mono::justOrEmpty);
+        });
+    }
+
+    /**
+     * Drops every entry of a user, positive or negative, here, in Redis and on every other instance.
+     * Call it after the user is written, with the old values too when a username or email changes.
+     */
+    public Mono<Void> invalidate(User... users) {
+        List<String> keys = new ArrayList<>();
+        for (User user : users) {
+            if (user.id != null) {
+                keys.add(Kind.ID.key(user.id));
+            }
+            if (user.username != null) {
+                keys.add(Kind.USERNAME.key(user.username));
+                keys.add(Kind.LOGIN.key(user.username));
+            }
+            if (user.email != null) {
+                keys.add(Kind.EMAIL.key(user.email));
+                keys.add(Kind.LOGIN.key(user.email));
+            }
+        }
+        near.invalidateAll(keys);
+        if (redis == null || keys.isEmpty()) {
+            return Mono.empty();
+        }
+        return redis.delete(Flux.fromIterable(keys))
+                .then(redis.convertAndSend(INVALIDATION_CHANNEL, String.join("\n", keys)))
+                .timeout(redisTimeout)
+                .doOnError(e -> {
+                    sharedErrors.increment();
+                    log.warn("Cannot invalidate {} in Redis; entries expire within {}", keys, sharedTtl, e);
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private void evictNear(String message) {
+        near.invalidateAll(List.of(message.split("\n")));
+    }
+
+    private Mono<Optional<User>> readShared(Kind kind, String key) {
+        if (redis == null || !kind.shared) {
+            return Mono.empty();
+        }
+        return redis.opsForValue().get(key)
+                .timeout(redisTimeout)
+                .map(this::fromRedis)
+                .doOnNext(found -> sharedHits.increment())
+                .switchIfEmpty(Mono.<Optional<User>>fromRunnable(sharedMisses::increment))
+                .onErrorResume(e -> {
+                    sharedErrors.increment();
+                    log.debug("Redis read of {} failed, falling through to the database", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> writeShared(Kind kind, String key, Optional<User> user) {
+        if (redis == null || !kind.shared) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> user.isPresent()
+                        ? objectMapper.writeValueAsString(Profile.of(user.get())) : ABSENT)
+                .flatMap(json -> redis.opsForValue().set(key, json, user.isPresent() ? sharedTtl : negativeTtl))
+                .timeout(redisTimeout)
+                .onErrorResume(e -> {
+                    sharedErrors.increment();
+                    log.debug("Redis write of {} failed", key, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Optional<User> fromRedis(String json) {
+        if (ABSENT.equals(json)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, Profile.class).toUser());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable cached user", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (invalidations != null) {
+            invalidations.dispose();
+        }
+    }
+}
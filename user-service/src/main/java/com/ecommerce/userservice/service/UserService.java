@@ -2,62 +2,113 @@ package com.ecommerce.userservice.service;
 
 import com.ecommerce.userservice.domain.User;
 import com.ecommerce.userservice.dto.AuthResponse;
+import com.ecommerce.userservice.dto.AvailabilityResponse;
 import com.ecommerce.userservice.dto.UserDto;
 import com.ecommerce.userservice.repo.UserRepository;
 import com.ecommerce.userservice.util.JwtUtil;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.function.Supplier;
+
 /**
  * Implementation of UserService using R2DBC repository.
+ * Password hashing runs on the {@link PasswordHasher} pool, never on the calling (event loop) thread.
+ * Profile and login lookups go through the {@link UserCache}; writes invalidate it.
  */
 public class UserService {
 
+    static final int MAX_PAGE_SIZE = 100;
+
     private final UserRepository repo;
-    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
     private final JwtUtil jwtUtil;
+    private final PasswordHasher passwordHasher;
+    private final UserCache userCache;
 
-    public UserService(UserRepository repo, JwtUtil jwtUtil) {
+    private final TakenNamesFilter takenNames;
+
+    public UserService(UserRepository repo, JwtUtil jwtUtil, PasswordHasher passwordHasher, UserCache userCache,
+                       TakenNamesFilter takenNames) {
         this.repo = repo;
         this.jwtUtil = jwtUtil;
+        this.passwordHasher = passwordHasher;
+        this.userCache = userCache;
+        this.takenNames = takenNames;
     }
 
+    /**
+     * Registers a user with a single INSERT ... ON CONFLICT DO NOTHING round trip, which is also what
+     * decides uniqueness: two concurrent signups for one name cannot both succeed.
+     * Only names the taken-names filter cannot rule out are probed first, so likely duplicates fail
+     * without spending a BCrypt hash. Conflicts fail with {@link UserAlreadyExistsException}.
+     */
     public Mono<UserDto> register(UserDto dto) {
-        // basic flow: check if username/email exists -> save user -> return dto without password
-        return repo.findByUsernameOrEmail(dto.username, dto.email)
-                .flatMap(existing -> Mono.<UserDto>error(new IllegalArgumentException("Username or email already exists")))
-                .switchIfEmpty(Mono.defer(() -> {
-                    String hash = passwordEncoder.encode(dto.password);
-                    User u = new User(dto.username, dto.email, hash, "USER");
-                    return repo.save(u).map(saved -> {
-                        UserDto out = new UserDto();
-                        out.id = saved.id;
-                        out.username = saved.username;
-                        out.email = saved.email;
-                        out.password = null;
-                        return out;
-                    });
-                }));
+        Mono<User> existing = takenNames.mightBeTaken(dto.username, dto.email)
+                ? repo.findByUsernameOrEmail(dto.username, dto.email)
+                : Mono.empty();
+        return existing
+                .flatMap(user -> Mono.<UserDto>error(new UserAlreadyExistsException(
+                        dto.username != null && dto.username.equals(user.username) ? "username" : "email")))
+                .switchIfEmpty(Mono.defer(() -> passwordHasher.encode(dto.password)
+                        .flatMap(hash -> repo.insertIfAbsent(dto.username, dto.email, hash, "USER"))
+                        .flatMap(result -> {
+                            if (result.id == null) {
+                                return Mono.error(new UserAlreadyExistsException(result.usernameTaken
+                                        ? "username" : result.emailTaken ? "email" : "username or email"));
+                            }
+                            User saved = new User(dto.username, dto.email, null, "USER");
+                            saved.id = result.id;
+                            takenNames.add(saved);
+                            // drops the negative entries cached while the name was free
+                            return userCache.invalidate(saved).thenReturn(toDto(saved));
+                        })));
+    }
+
+    /**
+     * Whether a username and/or email can still be registered, answered from the taken-names filter.
+     * Only values the filter cannot rule out are looked up, through the user cache (which also caches misses).
+     */
+    public Mono<AvailabilityResponse> checkAvailability(String username, String email) {
+        Mono<Boolean> usernameFree = username == null ? Mono.just(true)
+                : isFree(username, null, UserCache.Kind.USERNAME, () -> repo.findByUsername(username));
+        Mono<Boolean> emailFree = email == null ? Mono.just(true)
+                : isFree(null, email, UserCache.Kind.EMAIL, () -> repo.findByEmail(email));
+        return Mono.zip(usernameFree, emailFree)
+                .map(free -> new AvailabilityResponse(username == null ? null : free.getT1(),
+                        email == null ? null : free.getT2()));
+    }
+
+    private Mono<Boolean> isFree(String username, String email, UserCache.Kind kind, Supplier<Mono<User>> loader) {
+        if (!takenNames.mightBeTaken(username, email)) {
+            return Mono.just(true);
+        }
+        return userCache.get(kind, username != null ? username : email, loader)
+                .hasElement()
+                .map(taken -> {
+                    if (!taken) {
+                        takenNames.falsePositive();
+                    }
+                    return !taken;
+                });
     }
 
     public Mono<AuthResponse> login(String usernameOrEmail, String password) {
-        return repo.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
-                .flatMap(user -> {
-                    if (passwordEncoder.matches(password, user.passwordHash)) {
+        return userCache.get(UserCache.Kind.LOGIN, usernameOrEmail,
+                        () -> repo.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail))
+                .flatMap(user -> passwordHasher.matches(password, user.passwordHash).flatMap(matches -> {
+                    if (matches) {
                         String token = jwtUtil.generateToken(user.id.toString(), user.username, user.roles);
                         long exp = System.currentTimeMillis() + jwtUtil.getExpirationMs();
                         return Mono.just(new AuthResponse(token, exp));
                     } else {
                         return Mono.error(new IllegalArgumentException("Invalid credentials"));
                     }
-                })
+                }))
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("User not found")));
     }
 
     public Mono<UserDto> getById(Long id) {
-        return repo.findById(id).map(u -> {
+        return userCache.get(UserCache.Kind.ID, id, () -> repo.findById(id)).map(u -> {
             UserDto dto = new UserDto();
             dto.id = u.id;
             dto.username = u.username;
@@ -68,7 +119,7 @@ public class UserService {
     }
 
     public Mono<UserDto> findByUsername(String username) {
-        return repo.findByUsername(username).map(u -> {
+        return userCache.get(UserCache.Kind.USERNAME, username, () -> repo.findByUsername(username)).map(u -> {
             UserDto dto = new UserDto();
             dto.id = u.id;
             dto.username = u.username;
@@ -79,7 +130,7 @@ public class UserService {
     }
 
     public Mono<UserDto> findByEmail(String email) {
-        return repo.findByEmail(email).map(u -> {
+        return userCache.get(UserCache.Kind.EMAIL, email, () -> repo.findByEmail(email)).map(u -> {
             UserDto dto = new UserDto();
             dto.id = u.id;
             dto.username = u.username;
@@ -89,18 +140,35 @@ public class UserService {
         });
     }
 
+    /**
+     * Offset page of users; the offset is applied by the database.
+     * Prefer {@link #getUsersAfter(long, int)} for deep pages.
+     */
     public Flux<UserDto> getAllUsers(int page, int size) {
-        int skip = page * size;
-        return repo.findAll()
-                .skip(skip)
-                .take(size)
-                .map(u -> {;
-                    UserDto dto = new UserDto();
-                    dto.id = u.id;
-                    dto.username = u.username;
-                    dto.email = u.email;
-                    dto.password = null;
-                    return dto;
-                });
+        int limit = clampPageSize(size);
+        return repo.findPage(limit, (long) Math.max(page, 0) * limit)
+                .map(UserService::toDto);
+    }
+
+    /**
+     * Keyset page of users with an id greater than {@code afterId}.
+     * Costs one indexed range scan regardless of how deep the page is.
+     */
+    public Flux<UserDto> getUsersAfter(long afterId, int size) {
+        return repo.findPageAfterId(afterId, clampPageSize(size))
+                .map(UserService::toDto);
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
+
+    private static UserDto toDto(User u) {
+        UserDto dto = new UserDto();
+        dto.id = u.id;
+        dto.username = u.username;
+        dto.email = u.email;
+        dto.password = null;
+        return dto;
     }
 }
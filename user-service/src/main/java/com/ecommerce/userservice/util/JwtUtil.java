@@ -46,4 +46,11 @@ public class JwtUtil {
     public long getExpirationMs() {
         return expirationMs;
     }
+
+    /**
+     * The HMAC key tokens are signed with; shared with {@link com.ecommerce.security.JwtVerifier}.
+     */
+    public SecretKey getSigningKey() {
+        return key;
+    }
 }
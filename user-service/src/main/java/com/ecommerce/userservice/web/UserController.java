@@ -1,15 +1,22 @@
 package com.ecommerce.userservice.web;
 
 import com.ecommerce.userservice.dto.AuthResponse;
+import com.ecommerce.userservice.dto.AvailabilityResponse;
 import com.ecommerce.userservice.dto.LoginRequest;
 import com.ecommerce.userservice.dto.UserDto;
+import com.ecommerce.userservice.service.UserAlreadyExistsException;
 import com.ecommerce.userservice.service.UserService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Public API for user registration / login / profile.
  */
@@ -23,10 +30,15 @@ public class UserController {
         this.userService = userService;
     }
 
+    /**
+     * Registers a user; 409 Conflict with a problem detail naming the taken field if the username or email exists.
+     */
     @PostMapping("/register")
-    public Mono<ResponseEntity<UserDto>> register(@Validated @RequestBody UserDto dto) {
+    public Mono<ResponseEntity<?>> register(@Validated @RequestBody UserDto dto) {
         return userService.register(dto)
-                .map(saved -> ResponseEntity.ok(saved))
+                .<ResponseEntity<?>>map(saved -> ResponseEntity.ok(saved))
+                .onErrorResume(UserAlreadyExistsException.class, e -> Mono.just(conflict(e)))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(busy()))
                 .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().build()));
     }
 
@@ -34,9 +46,25 @@ public class UserController {
     public Mono<ResponseEntity<AuthResponse>> login(@Validated @RequestBody LoginRequest req) {
         return userService.login(req.usernameOrEmail, req.password)
                 .map(auth -> ResponseEntity.ok(auth))
+                .onErrorResume(RejectedExecutionException.class, e -> Mono.just(busy()))
                 .onErrorResume(e -> Mono.just(ResponseEntity.status(401).build()));
     }
 
+    /**
+     * Whether a username and/or email can still be registered, e.g. for a signup form checking as the user types.
+     * Mostly answered from memory; the registration itself still enforces uniqueness.
+     */
+    @GetMapping("/availability")
+    public Mono<ResponseEntity<AvailabilityResponse>> checkAvailability(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email) {
+        if (username == null && email == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return userService.checkAvailability(username, email)
+                .map(ResponseEntity::ok);
+    }
+
     @GetMapping("/{id}")
     public Mono<ResponseEntity<UserDto>> getProfile(@PathVariable Long id) {
         return userService.getById(id)
@@ -45,13 +73,34 @@ public class UserController {
     }
     /**
      * Get a paginated list of all users.
+     * Pass the id of the last user received as {@code after} to fetch the next page;
+     * {@code page} is only used when no cursor is given.
      * Accessible only to ADMIN role.
      */
     @GetMapping
     //@PreAuthorize("hasRole('ADMIN')")
     public Flux<UserDto> getAllUsers(
+            @RequestParam(required = false) Long after,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
+        if (after != null) {
+            return userService.getUsersAfter(after, size);
+        }
         return userService.getAllUsers(page, size);
     }
+
+    private static ResponseEntity<ProblemDetail> conflict(UserAlreadyExistsException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, e.getMessage());
+        problem.setProperty("field", e.getField());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(problem);
+    }
+
+    /**
+     * The password hashing pool is saturated: ask the client to back off instead of queueing.
+     */
+    private static <T> ResponseEntity<T> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
 }
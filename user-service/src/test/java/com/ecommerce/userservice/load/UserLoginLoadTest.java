@@ -0,0 +1,124 @@
+package com.ecommerce.userservice.load;
+
+import com.ecommerce.loadtest.EndpointReport;
+import com.ecommerce.loadtest.LoadGenerator;
+import com.ecommerce.loadtest.LoadProfile;
+import com.ecommerce.userservice.dto.LoginRequest;
+import com.ecommerce.userservice.dto.UserDto;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of POST /api/users/login against a real Postgres container.
+ * <p>
+ * Not part of the normal build; run with {@code mvn -Pload-test test}, optionally tuned with
+ * -Dload.login.rps, -Dload.login.p99-ms etc. (see {@link LoadProfile}). Login is dominated by BCrypt,
+ * so the default rate is low. Results go to target/load-reports; exceeding the budget fails the run.
+ */
+@Tag("load")
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserLoginLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(UserLoginLoadTest.class);
+
+    private static final Path REPORT_DIR = Path.of("target", "load-reports");
+    private static final String PASSWORD = "load-test-password";
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.2")
+            .withDatabaseName("userdb");
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> String.format("r2dbc:postgresql://%s:%d/%s",
+                postgres.getHost(), postgres.getFirstMappedPort(), postgres.getDatabaseName()));
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> false);
+        // apply the Flyway scripts through R2DBC, in version order
+        registry.add("spring.sql.init.mode", () -> "always");
+        registry.add("spring.sql.init.schema-locations", () -> "classpath:db/migration/V*.sql");
+        registry.add("logging.level.root", () -> "WARN");
+        registry.add("logging.level.com.ecommerce.userservice.load", () -> "INFO");
+    }
+
+    @LocalServerPort
+    int port;
+
+    private WebClient client;
+    private int users;
+    private final List<EndpointReport> reports = new ArrayList<>();
+
+    @BeforeAll
+    void registerUsers() {
+        client = WebClient.builder().baseUrl("http://localhost:" + port).build();
+        users = Integer.getInteger("load.users", 50);
+        Long registered = Flux.range(0, users)
+                .flatMap(i -> {
+                    UserDto dto = new UserDto();
+                    dto.username = "load" + i;
+                    dto.email = "load" + i + "@example.com";
+                    dto.password = PASSWORD;
+                    return client.post().uri("/api/users/register").bodyValue(dto)
+                            .retrieve().toBodilessEntity();
+                }, 4)
+                .count()
+                .block();
+        assertThat(registered).isEqualTo(users);
+    }
+
+    @Test
+    void login() {
+        LoadProfile profile = LoadProfile.forEndpoint("login", 20, 400);
+        EndpointReport report = LoadGenerator.run(profile, i -> {
+            LoginRequest request = new LoginRequest();
+            request.usernameOrEmail = "load" + (i % users);
+            request.password = PASSWORD;
+            return client.post().uri("/api/users/login").bodyValue(request)
+                    .retrieve().toBodilessEntity();
+        });
+        reports.add(report);
+        log.info("[load] {}", report.summaryLine());
+    }
+
+    @AfterAll
+    void writeReportAndCheckBudgets() throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        for (EndpointReport report : reports) {
+            report.writeTo(REPORT_DIR);
+        }
+        Files.writeString(REPORT_DIR.resolve("summary.json"), reports.stream()
+                .map(EndpointReport::toJson)
+                .collect(Collectors.joining(",\n  ", "[\n  ", "\n]\n")));
+
+        List<String> violations = reports.stream()
+                .flatMap(report -> report.violations().stream())
+                .toList();
+        assertThat(violations).as("latency budget violations").isEmpty();
+    }
+}
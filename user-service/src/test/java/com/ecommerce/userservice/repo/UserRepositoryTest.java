@@ -0,0 +1,77 @@
+package com.ecommerce.userservice.repo;
+
+import com.ecommerce.userservice.domain.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.test.StepVerifier;
+
+/**
+ * insertIfAbsent against a real Postgres: the single-statement signup and its conflict report.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataR2dbcTest
+class UserRepositoryTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.2")
+            .withDatabaseName("userdb");
+
+    @DynamicPropertySource
+    static void registerProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.r2dbc.url", () -> String.format("r2dbc:postgresql://%s:%d/%s",
+                postgres.getHost(), postgres.getFirstMappedPort(), postgres.getDatabaseName()));
+        registry.add("spring.r2dbc.username", postgres::getUsername);
+        registry.add("spring.r2dbc.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> false);
+        // apply the Flyway scripts through R2DBC, in version order
+        registry.add("spring.sql.init.mode", () -> "always");
+        registry.add("spring.sql.init.schema-locations", () -> "classpath:db/migration/V*.sql");
+    }
+
+    @Autowired
+    UserRepository repo;
+
+    @BeforeEach
+    void setUp() {
+        repo.deleteAll().block();
+    }
+
+    @Test
+    void insertIfAbsent_InsertsANewUser() {
+        StepVerifier.create(repo.insertIfAbsent("alice", "alice@example.com", "hash", "USER"))
+                .expectNextMatches(result -> result.id != null && !result.usernameTaken && !result.emailTaken)
+                .verifyComplete();
+
+        StepVerifier.create(repo.findByUsername("alice"))
+                .expectNextMatches(user -> "alice@example.com".equals(user.email)
+                        && "hash".equals(user.passwordHash) && "USER".equals(user.roles))
+                .verifyComplete();
+    }
+
+    @Test
+    void insertIfAbsent_ReportsATakenUsername() {
+        repo.save(new User("alice", "alice@example.com", "hash", "USER")).block();
+
+        StepVerifier.create(repo.insertIfAbsent("alice", "other@example.com", "hash", "USER"))
+                .expectNextMatches(result -> result.id == null && result.usernameTaken && !result.emailTaken)
+                .verifyComplete();
+        StepVerifier.create(repo.count()).expectNext(1L).verifyComplete();
+    }
+
+    @Test
+    void insertIfAbsent_ReportsATakenEmail() {
+        repo.save(new User("alice", "alice@example.com", "hash", "USER")).block();
+
+        StepVerifier.create(repo.insertIfAbsent("bob", "alice@example.com", "hash", "USER"))
+                .expectNextMatches(result -> result.id == null && !result.usernameTaken && result.emailTaken)
+                .verifyComplete();
+        StepVerifier.create(repo.findByUsername("bob")).verifyComplete();
+    }
+}
@@ -0,0 +1,54 @@
+package com.ecommerce.userservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHasherTest {
+
+    @Test
+    void hashesOffTheCallerThreadAndRejectsWhenSaturated() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash:" + Thread.currentThread().getName();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encodedPassword.equals("hash:" + rawPassword);
+            }
+        };
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (PasswordHasher hasher = new PasswordHasher(slowEncoder, 1, 1, registry)) {
+            var running = hasher.encode("a").toFuture();
+            var queued = hasher.encode("b").toFuture();
+            Thread.sleep(50); // let the first task occupy the only worker
+
+            StepVerifier.create(hasher.encode("c"))
+                    .expectError(RejectedExecutionException.class)
+                    .verify();
+
+            release.countDown();
+            assertThat(running.join()).startsWith("hash:password-hashing-");
+            assertThat(queued.join()).startsWith("hash:password-hashing-");
+            StepVerifier.create(hasher.matches("x", "hash:x")).expectNext(true).verifyComplete();
+
+            assertThat(registry.get("user.password.hash.rejected").counter().count()).isEqualTo(1.0);
+            assertThat(registry.get("user.password.hash").tag("operation", "encode").timer().count()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.ecommerce.userservice.service;
+
+import com.ecommerce.userservice.domain.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two instances sharing one Redis: the shared tier, negative entries, login entries and pub/sub invalidation.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UserCacheRedisTest {
+
+    @Container
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private LettuceConnectionFactory connectionFactory;
+    private UserCache first;
+    private UserCache second;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(REDIS.getHost(), REDIS.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        ReactiveStringRedisTemplate redis = new ReactiveStringRedisTemplate(connectionFactory);
+        redis.execute(connection -> connection.serverCommands().flushAll()).blockLast();
+        first = cache(redis);
+        second = cache(redis);
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void secondInstanceReadsTheSharedTierAndSeesInvalidations() throws InterruptedException {
+        User alice = new User("alice", "alice@example.com", "hash", "USER");
+        alice.id = 1L;
+        AtomicInteger loads = new AtomicInteger();
+
+        StepVerifier.create(first.get(UserCache.Kind.USERNAME, "alice", () -> count(loads, Mono.just(alice))))
+                .expectNextMatches(user -> user.id == 1L).verifyComplete();
+        StepVerifier.create(second.get(UserCache.Kind.USERNAME, "alice", () -> count(loads, Mono.just(alice))))
+                .expectNextMatches(user -> user.id == 1L && user.passwordHash == null).verifyComplete();
+        assertThat(loads).hasValue(1);
+
+        // login entries carry the hash and are never shared
+        StepVerifier.create(first.get(UserCache.Kind.LOGIN, "alice", () -> count(loads, Mono.just(alice))))
+                .expectNextMatches(user -> "hash".equals(user.passwordHash)).verifyComplete();
+        StepVerifier.create(second.get(UserCache.Kind.LOGIN, "alice", () -> count(loads, Mono.just(alice))))
+                .expectNextMatches(user -> "hash".equals(user.passwordHash)).verifyComplete();
+        assertThat(loads).hasValue(3);
+
+        // negative entries are shared too
+        StepVerifier.create(first.get(UserCache.Kind.USERNAME, "bob", () -> count(loads, Mono.empty())))
+                .verifyComplete();
+        StepVerifier.create(second.get(UserCache.Kind.USERNAME, "bob", () -> count(loads, Mono.empty())))
+                .verifyComplete();
+        assertThat(loads).hasValue(4);
+
+        User bob = new User("bob", "bob@example.com", "hash", "USER");
+        bob.id = 2L;
+        // wait for the subscription of the second instance before publishing
+        Thread.sleep(500);
+        StepVerifier.create(first.invalidate(bob)).verifyComplete();
+        Thread.sleep(200);
+        StepVerifier.create(second.get(UserCache.Kind.USERNAME, "bob", () -> count(loads, Mono.just(bob))))
+                .expectNextMatches(user -> user.id == 2L).verifyComplete();
+        assertThat(loads).hasValue(5);
+    }
+
+    private static Mono<User> count(AtomicInteger loads, Mono<User> result) {
+        loads.incrementAndGet();
+        return result;
+    }
+
+    private UserCache cache(ReactiveStringRedisTemplate redis) {
+        return new UserCache(100, Duration.ofMinutes(1), Duration.ofMinutes(10), Duration.ofSeconds(30),
+                Duration.ofSeconds(1), redis, connectionFactory, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+}
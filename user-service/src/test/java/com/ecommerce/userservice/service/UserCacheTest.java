@@ -0,0 +1,79 @@
+package com.ecommerce.userservice.service;
+
+import com.ecommerce.userservice.domain.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * What the user cache puts into Redis, without a Redis server.
+ */
+class UserCacheTest {
+
+    @SuppressWarnings("unchecked")
+    private final ReactiveValueOperations<String, String> values = mock(ReactiveValueOperations.class);
+    private final UserCache cache;
+
+    UserCacheTest() {
+        ReactiveStringRedisTemplate redis = mock(ReactiveStringRedisTemplate.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get(anyString())).thenReturn(Mono.empty());
+        when(values.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        cache = new UserCache(100, Duration.ofMinutes(1), Duration.ofMinutes(10), Duration.ofSeconds(30),
+                Duration.ofSeconds(1), redis, null, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void sharesProfilesWithoutThePasswordHash() {
+        StepVerifier.create(cache.get(UserCache.Kind.USERNAME, "alice", () -> Mono.just(alice())))
+                .expectNextMatches(user -> "hash".equals(user.passwordHash))
+                .verifyComplete();
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(values).set(eq("user:username:alice"), json.capture(), eq(Duration.ofMinutes(10)));
+        assertThat(json.getValue()).contains("\"alice@example.com\"").doesNotContain("hash");
+    }
+
+    @Test
+    void readsProfilesBackWithoutAHash() {
+        when(values.get("user:id:1")).thenReturn(Mono.just(
+                "{\"id\":1,\"username\":\"alice\",\"email\":\"alice@example.com\",\"roles\":\"USER\"}"));
+
+        StepVerifier.create(cache.get(UserCache.Kind.ID, 1L, Mono::empty))
+                .expectNextMatches(user -> user.id == 1L && "alice".equals(user.username)
+                        && "USER".equals(user.roles) && user.passwordHash == null)
+                .verifyComplete();
+    }
+
+    @Test
+    void keepsLoginEntriesOutOfRedis() {
+        StepVerifier.create(cache.get(UserCache.Kind.LOGIN, "alice", () -> Mono.just(alice())))
+                .expectNextMatches(user -> "hash".equals(user.passwordHash))
+                .verifyComplete();
+        // served from the near cache from now on
+        StepVerifier.create(cache.get(UserCache.Kind.LOGIN, "alice", Mono::empty))
+                .expectNextMatches(user -> "hash".equals(user.passwordHash))
+                .verifyComplete();
+
+        verifyNoInteractions(values);
+    }
+
+    private static User alice() {
+        User alice = new User("alice", "alice@example.com", "hash", "USER");
+        alice.id = 1L;
+        return alice;
+    }
+}
@@ -1,17 +1,23 @@
 package com.ecommerce.userservice.service;
 
+import com.ecommerce.userservice.domain.SignupResult;
 import com.ecommerce.userservice.domain.User;
 import com.ecommerce.userservice.dto.UserDto;
 import com.ecommerce.userservice.repo.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -24,12 +30,20 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
-    @InjectMocks
     private UserService userService;
+    private TakenNamesFilter takenNames;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        takenNames = new TakenNamesFilter(userRepository, 1_000, 0.01, new SimpleMeterRegistry());
+        userService = new UserService(userRepository, null,
+                new PasswordHasher(passwordEncoder, 1, 10, new SimpleMeterRegistry()), nearOnlyCache(), takenNames);
+    }
+
+    static UserCache nearOnlyCache() {
+        return new UserCache(100, Duration.ofMinutes(1), Duration.ofMinutes(10), Duration.ofSeconds(30),
+                Duration.ofMillis(100), null, null, new ObjectMapper(), new SimpleMeterRegistry());
     }
 
     @Test
@@ -38,11 +52,10 @@ class UserServiceTest {
         String username = "newuser";
         String password = "secret";
 
-        User savedUser = new User(username, email, "encoded-secret", "USER");
-
         when(userRepository.findByEmail(eq(email))).thenReturn(Mono.empty());
         when(passwordEncoder.encode(eq(password))).thenReturn("encoded-secret");
-        when(userRepository.save(any(User.class))).thenReturn(Mono.just(savedUser));
+        when(userRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(Mono.just(new SignupResult(1L, false, false)));
         when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenReturn(Mono.empty());
 
 
@@ -52,12 +65,13 @@ class UserServiceTest {
         dto.password = password;
 
         StepVerifier.create(userService.register(dto))
-                .expectNextMatches(user -> user.email.equals(email)
+                .expectNextMatches(user -> user.id == 1L
+                        && user.email.equals(email)
                         && user.username.equals(username)
                         && user.password == null)
                 .verifyComplete();
 
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).insertIfAbsent(eq(username), eq(email), eq("encoded-secret"), eq("USER"));
         verify(userRepository).findByUsernameOrEmail(eq(username),eq(email));
     }
 
@@ -78,13 +92,47 @@ class UserServiceTest {
         dto.username = username;
         dto.password = password;
         StepVerifier.create(userService.register(dto))
-                .expectErrorMatches(ex -> ex instanceof IllegalArgumentException &&
-                        ex.getMessage().equals("Username or email already exists"))
+                .expectErrorMatches(ex -> ex instanceof UserAlreadyExistsException conflict
+                        && conflict.getField().equals("email"))
                 .verify();
 
+        verify(userRepository, never()).insertIfAbsent(anyString(), anyString(), anyString(), anyString());
+        verify(passwordEncoder, never()).encode(anyString());
+    }
+
+    @Test
+    void register_ConcurrentSignupLosesOnTheAtomicInsert() {
+        when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenReturn(Mono.empty());
+        when(passwordEncoder.encode("secret")).thenReturn("encoded-secret");
+        // the other signup committed between the probe and the insert
+        when(userRepository.insertIfAbsent("racer", "racer@example.com", "encoded-secret", "USER"))
+                .thenReturn(Mono.just(new SignupResult(null, true, false)));
+
+        UserDto dto = new UserDto();
+        dto.username = "racer";
+        dto.email = "racer@example.com";
+        dto.password = "secret";
+        StepVerifier.create(userService.register(dto))
+                .expectErrorMatches(ex -> ex instanceof UserAlreadyExistsException conflict
+                        && conflict.getField().equals("username"))
+                .verify();
         verify(userRepository, never()).save(any(User.class));
     }
 
+    @Test
+    void getUsersAfter_UsesKeysetQuery() {
+        User user = new User("tester", "user@example.com", "hash", "USER");
+        user.id = 42L;
+
+        when(userRepository.findPageAfterId(41L, 10)).thenReturn(Flux.just(user));
+
+        StepVerifier.create(userService.getUsersAfter(41L, 10))
+                .expectNextMatches(dto -> dto.id == 42L && dto.password == null)
+                .verifyComplete();
+
+        verify(userRepository, never()).findAll();
+    }
+
     @Test
     void findByEmail_ReturnsUser() {
         String email = "user@example.com";
@@ -98,4 +146,78 @@ class UserServiceTest {
                 .expectNextMatches(found -> found.email.equals(email))
                 .verifyComplete();
     }
+
+    @Test
+    void getById_RepeatedLookupsAreServedFromTheCache() {
+        User user = new User("tester", "user@example.com", "hash", "USER");
+        user.id = 7L;
+        when(userRepository.findById(7L)).thenReturn(Mono.just(user));
+
+        StepVerifier.create(userService.getById(7L)).expectNextMatches(dto -> dto.id == 7L).verifyComplete();
+        StepVerifier.create(userService.getById(7L)).expectNextMatches(dto -> dto.id == 7L).verifyComplete();
+
+        verify(userRepository, times(1)).findById(7L);
+    }
+
+    @Test
+    void findByUsername_UnknownNameIsCachedUntilItIsRegistered() {
+        when(userRepository.findByUsername("newuser")).thenReturn(Mono.empty());
+
+        StepVerifier.create(userService.findByUsername("newuser")).verifyComplete();
+        StepVerifier.create(userService.findByUsername("newuser")).verifyComplete();
+        verify(userRepository, times(1)).findByUsername("newuser");
+
+        User saved = new User("newuser", "new@example.com", "encoded-secret", "USER");
+        saved.id = 8L;
+        when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenReturn(Mono.empty());
+        when(passwordEncoder.encode("secret")).thenReturn("encoded-secret");
+        when(userRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(Mono.just(new SignupResult(8L, false, false)));
+        when(userRepository.findByUsername("newuser")).thenReturn(Mono.just(saved));
+        UserDto dto = new UserDto();
+        dto.username = "newuser";
+        dto.email = "new@example.com";
+        dto.password = "secret";
+        StepVerifier.create(userService.register(dto)).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(userService.findByUsername("newuser"))
+                .expectNextMatches(found -> found.id == 8L)
+                .verifyComplete();
+    }
+
+    @Test
+    void register_DefinitelyFreeNameSkipsTheExistenceProbe() {
+        User taken = new User("alice", "alice@example.com", "hash", "USER");
+        when(userRepository.count()).thenReturn(Mono.just(1L));
+        when(userRepository.findAllNames()).thenReturn(Flux.just(taken));
+        StepVerifier.create(takenNames.rebuild()).verifyComplete();
+
+        when(passwordEncoder.encode("secret")).thenReturn("encoded-secret");
+        when(userRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(Mono.just(new SignupResult(2L, false, false)));
+        UserDto dto = new UserDto();
+        dto.username = "bob";
+        dto.email = "bob@example.com";
+        dto.password = "secret";
+
+        StepVerifier.create(userService.register(dto)).expectNextMatches(out -> out.id == 2L).verifyComplete();
+        verify(userRepository, never()).findByUsernameOrEmail(anyString(), anyString());
+        // registered names are added to the filter right away
+        assertThat(takenNames.mightBeTaken("bob", null)).isTrue();
+    }
+
+    @Test
+    void checkAvailability_OnlyLooksUpNamesTheFilterCannotRuleOut() {
+        User taken = new User("alice", "alice@example.com", "hash", "USER");
+        taken.id = 1L;
+        when(userRepository.count()).thenReturn(Mono.just(1L));
+        when(userRepository.findAllNames()).thenReturn(Flux.just(taken));
+        when(userRepository.findByUsername("alice")).thenReturn(Mono.just(taken));
+        StepVerifier.create(takenNames.rebuild()).verifyComplete();
+
+        StepVerifier.create(userService.checkAvailability("alice", "fresh@example.com"))
+                .expectNextMatches(result -> !result.usernameAvailable && result.emailAvailable)
+                .verifyComplete();
+        verify(userRepository, never()).findByEmail(anyString());
+    }
 }
@@ -0,0 +1,50 @@
+package com.ecommerce.userservice.web;
+
+import com.ecommerce.userservice.dto.UserDto;
+import com.ecommerce.userservice.service.UserAlreadyExistsException;
+import com.ecommerce.userservice.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserControllerTest {
+
+    private final UserService userService = mock(UserService.class);
+    private final WebTestClient client = WebTestClient.bindToController(new UserController(userService)).build();
+
+    @Test
+    void register_TakenEmailIsA409ProblemNamingTheField() {
+        when(userService.register(any(UserDto.class)))
+                .thenReturn(Mono.error(new UserAlreadyExistsException("email")));
+
+        client.post().uri("/api/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDto(null, "alice", "alice@example.com", "secret"))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(409)
+                .jsonPath("$.detail").isEqualTo("Email already exists")
+                .jsonPath("$.field").isEqualTo("email");
+    }
+
+    @Test
+    void register_TakenUsernameNamesTheUsername() {
+        when(userService.register(any(UserDto.class)))
+                .thenReturn(Mono.error(new UserAlreadyExistsException("username")));
+
+        client.post().uri("/api/users/register")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDto(null, "alice", "alice@example.com", "secret"))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody()
+                .jsonPath("$.field").isEqualTo("username");
+    }
+}